@@ -1,14 +1,10 @@
 package com.unir.gateway.decorator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.unir.gateway.model.GatewayRequest;
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferFactory;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
@@ -20,18 +16,16 @@ import java.net.URI;
 /**
  * This class is a decorator for the GatewayRequest object for POST requests.
  * It extends the ServerHttpRequestDecorator class and overrides its methods to modify the request.
- * It uses the ObjectMapper to convert the body of the GatewayRequest object into bytes.
+ * It forwards the body of the GatewayRequest object as it was received, without serializing it again.
  */
 @Slf4j
 public class PostRequestDecorator extends ServerHttpRequestDecorator {
 
     private final GatewayRequest gatewayRequest;
-    private final ObjectMapper objectMapper;
 
-    public PostRequestDecorator(GatewayRequest gatewayRequest, ObjectMapper objectMapper) {
+    public PostRequestDecorator(GatewayRequest gatewayRequest) {
         super(gatewayRequest.getExchange().getRequest());
         this.gatewayRequest = gatewayRequest;
-        this.objectMapper = objectMapper;
     }
 
     /**
@@ -72,18 +66,13 @@ public class PostRequestDecorator extends ServerHttpRequestDecorator {
 
     /**
      * This method overrides the getBody method of the ServerHttpRequestDecorator class.
-     * It converts the body of the GatewayRequest object into bytes using the ObjectMapper, and returns it as a Flux of DataBuffers.
+     * It returns the body of the GatewayRequest object, a slice of the incoming request buffer, as a Flux of DataBuffers.
      *
      * @return a Flux of DataBuffers representing the body of the request
      */
     @Override
     @NonNull
-    @SneakyThrows
     public Flux<DataBuffer> getBody() {
-        DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
-        byte[] bodyData = objectMapper.writeValueAsBytes(gatewayRequest.getBody());
-        DataBuffer buffer = bufferFactory.allocateBuffer(bodyData.length);
-        buffer.write(bodyData);
-        return Flux.just(buffer);
+        return gatewayRequest.getBody() == null ? Flux.empty() : Flux.just(gatewayRequest.getBody());
     }
 }
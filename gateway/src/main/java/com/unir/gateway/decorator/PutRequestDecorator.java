@@ -1,14 +1,10 @@
 package com.unir.gateway.decorator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.unir.gateway.model.GatewayRequest;
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferFactory;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
@@ -21,12 +17,10 @@ import java.net.URI;
 public class PutRequestDecorator extends ServerHttpRequestDecorator {
 
     private final GatewayRequest gatewayRequest;
-    private final ObjectMapper objectMapper;
 
-    public PutRequestDecorator(GatewayRequest gatewayRequest, ObjectMapper objectMapper) {
+    public PutRequestDecorator(GatewayRequest gatewayRequest) {
         super(gatewayRequest.getExchange().getRequest());
         this.gatewayRequest = gatewayRequest;
-        this.objectMapper = objectMapper;
     }
 
     @Override
@@ -51,12 +45,7 @@ public class PutRequestDecorator extends ServerHttpRequestDecorator {
 
     @Override
     @NonNull
-    @SneakyThrows
     public Flux<DataBuffer> getBody() {
-        DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
-        byte[] bodyData = objectMapper.writeValueAsBytes(gatewayRequest.getBody());
-        DataBuffer buffer = bufferFactory.allocateBuffer(bodyData.length);
-        buffer.write(bodyData);
-        return Flux.just(buffer);
+        return gatewayRequest.getBody() == null ? Flux.empty() : Flux.just(gatewayRequest.getBody());
     }
 }
@@ -1,25 +1,19 @@
 package com.unir.gateway.decorator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.unir.gateway.model.GatewayRequest;
-import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.stereotype.Component;
 
 /**
  * This class is responsible for creating decorators for the GatewayRequest
  * object.
- * It uses the ObjectMapper to convert the raw request body into a
- * GatewayRequest object.
  * Depending on the HTTP method of the request, it creates a different
  * decorator.
  */
 @Component
-@RequiredArgsConstructor
 public class RequestDecoratorFactory {
 
-    private final ObjectMapper objectMapper;
-
     /**
      * This method creates a decorator for the GatewayRequest object.
      * It checks the HTTP method of the request and creates a different decorator
@@ -27,6 +21,7 @@ public class RequestDecoratorFactory {
      * If the method is GET, it creates a GetRequestDecorator.
      * If the method is POST, it creates a PostRequestDecorator.
      * If the method is neither GET nor POST, it throws an IllegalArgumentException.
+     * Methods without a body release the body buffer, since it will never be forwarded.
      *
      * @param request the GatewayRequest object to be decorated
      * @return a ServerHttpRequestDecorator that decorates the GatewayRequest object
@@ -35,12 +30,29 @@ public class RequestDecoratorFactory {
      */
     public ServerHttpRequestDecorator getDecorator(GatewayRequest request) {
         return switch (request.getTargetMethod().name().toUpperCase()) {
-            case "GET" -> new GetRequestDecorator(request);
-            case "POST" -> new PostRequestDecorator(request, objectMapper);
-            case "PUT" -> new PutRequestDecorator(request, objectMapper);
-            case "PATCH" -> new PatchRequestDecorator(request, objectMapper);
-            case "DELETE" -> new DeleteRequestDecorator(request);
-            default -> throw new IllegalArgumentException("Invalid http method");
+            case "GET" -> new GetRequestDecorator(releaseBody(request));
+            case "POST" -> new PostRequestDecorator(request);
+            case "PUT" -> new PutRequestDecorator(request);
+            case "PATCH" -> new PatchRequestDecorator(request);
+            case "DELETE" -> new DeleteRequestDecorator(releaseBody(request));
+            default -> {
+                releaseBody(request);
+                throw new IllegalArgumentException("Invalid http method");
+            }
         };
     }
+
+    /**
+     * This method releases the body buffer of a request whose method does not forward a body.
+     *
+     * @param request the GatewayRequest object
+     * @return the same GatewayRequest object, without body
+     */
+    private GatewayRequest releaseBody(GatewayRequest request) {
+        if (request.getBody() != null) {
+            DataBufferUtils.release(request.getBody());
+            request.setBody(null);
+        }
+        return request;
+    }
 }
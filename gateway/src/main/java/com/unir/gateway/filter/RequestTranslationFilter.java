@@ -1,14 +1,12 @@
 package com.unir.gateway.filter;
 
 import com.unir.gateway.decorator.RequestDecoratorFactory;
-import com.unir.gateway.model.GatewayRequest;
 import com.unir.gateway.utils.RequestBodyExtractor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
-import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -38,7 +36,7 @@ public class RequestTranslationFilter implements GlobalFilter {
      * This method is the main filter method for the Spring Cloud Gateway.
      * It checks if the incoming request has a content type and is a POST request.
      * If the request does have a content type and is a POST request, the body of
-     * the request is joined into a single DataBuffer.
+     * the request is parsed into a GatewayRequest as it arrives, without blocking.
      * Then, the request is mutated using the decorator before being forwarded.
      * By default, the response status is set to 400 (Bad Request). This will be
      * overridden if the request is valid.
@@ -62,9 +60,8 @@ public class RequestTranslationFilter implements GlobalFilter {
             log.info("Request does not have a content type or is not a POST request");
             return exchange.getResponse().setComplete();
         } else {
-            return DataBufferUtils.join(exchange.getRequest().getBody())
-                    .flatMap(dataBuffer -> {
-                        GatewayRequest request = requestBodyExtractor.getRequest(exchange, dataBuffer);
+            return requestBodyExtractor.getRequest(exchange)
+                    .flatMap(request -> {
                         ServerHttpRequest mutatedRequest = requestDecoratorFactory.getDecorator(request);
                         // RouteToRequestUrlFilter writes the URI to the exchange attributes *before*
                         // any global filters run.
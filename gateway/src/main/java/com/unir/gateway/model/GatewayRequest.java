@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.util.LinkedMultiValueMap;
@@ -31,9 +32,10 @@ public class GatewayRequest {
     private LinkedMultiValueMap<String, String> queryParams;
 
     /**
-     * The body of the request.
+     * The body of the request, as a slice of the incoming request buffer. This is ignored when the object is serialized to JSON.
      */
-    private Object body;
+    @JsonIgnore
+    private DataBuffer body;
 
     /**
      * The current server web exchange. This is ignored when the object is serialized to JSON.
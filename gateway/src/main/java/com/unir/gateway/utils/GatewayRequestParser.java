@@ -0,0 +1,216 @@
+package com.unir.gateway.utils;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.unir.gateway.model.GatewayRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.io.IOException;
+
+/**
+ * This class parses a GatewayRequest envelope incrementally, one DataBuffer chunk at a time, with the Jackson
+ * non-blocking parser. Each chunk is parsed as soon as it arrives, so no thread ever waits for the rest of the body.
+ * It reads targetMethod and queryParams, and records the byte range of the "body" value so it can be split from
+ * the joined request buffer once all chunks have been received. A request with more than one "body" field is rejected.
+ * An instance holds the state of a single request and is not thread-safe.
+ */
+@Slf4j
+class GatewayRequestParser {
+
+    private static final TypeReference<LinkedMultiValueMap<String, String>> QUERY_PARAMS_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final GatewayRequest request = new GatewayRequest();
+
+    /**
+     * Nesting depth of the last token: 1 inside the envelope object, 2 or more inside one of its values.
+     */
+    private int depth;
+    private boolean envelopeRead;
+    private String field;
+    private TokenBuffer queryParams;
+    private long bodyStart = -1;
+    private long bodyEnd = -1;
+    private Exception error;
+
+    GatewayRequestParser(ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * This method feeds a chunk of the request body to the parser and handles every token it completes.
+     * The chunk is read in place, without copying it. Errors are kept until getRequest is called, so the
+     * chunks already received are still released by the caller.
+     *
+     * @param chunk a chunk of the request body, which must stay readable until getRequest is called
+     */
+    void feed(DataBuffer chunk) {
+        if (error != null) {
+            return;
+        }
+        try (DataBuffer.ByteBufferIterator buffers = chunk.readableByteBuffers()) {
+            while (buffers.hasNext()) {
+                feeder.feedInput(buffers.next());
+                readTokens();
+            }
+        } catch (IOException | RuntimeException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * This method ends the parsing and builds the GatewayRequest object.
+     * The body is split from the joined request buffer, sharing its memory, so it stays readable after the buffer is released.
+     *
+     * @param buffer the joined request body, made of the same chunks passed to feed
+     * @return a GatewayRequest object without exchange nor headers
+     * @throws ServerWebInputException if the request body is not a valid GatewayRequest
+     */
+    GatewayRequest getRequest(DataBuffer buffer) {
+        if (error == null) {
+            try {
+                feeder.endOfInput();
+                readTokens();
+                if (!envelopeRead) {
+                    throw new JsonParseException(parser, "Unexpected end of GatewayRequest");
+                }
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw new ServerWebInputException("Invalid GatewayRequest body", null, error);
+        }
+        if (bodyEnd >= 0) {
+            int offset = buffer.readPosition();
+            int start = offset + (int) bodyStart;
+            // Skip the separator between the "body" name and its value
+            while (isSeparator(buffer.getByte(start))) {
+                start++;
+            }
+            buffer.readPosition(start);
+            request.setBody(buffer.split(offset + (int) bodyEnd));
+        }
+        return request;
+    }
+
+    /**
+     * This method closes the underlying parser.
+     */
+    void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            log.debug("Error closing GatewayRequest parser", e);
+        }
+    }
+
+    /**
+     * This method checks if a byte is whitespace or the colon between a field name and its value.
+     */
+    private static boolean isSeparator(byte b) {
+        return b == ':' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * This method handles every token available with the input fed so far.
+     */
+    private void readTokens() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            handle(token);
+        }
+    }
+
+    /**
+     * This method handles a single token, tracking the nesting depth to know where each envelope value starts and ends.
+     */
+    private void handle(JsonToken token) throws IOException {
+        if (depth == 0) {
+            if (envelopeRead || token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "GatewayRequest must be a single JSON object");
+            }
+            depth++;
+            return;
+        }
+        if (depth == 1 && token == JsonToken.FIELD_NAME) {
+            field = parser.currentName();
+            if ("body".equals(field)) {
+                if (bodyStart >= 0) {
+                    // Only one byte range can be forwarded, so an ambiguous body is rejected instead of keeping the last one
+                    throw new JsonParseException(parser, "Duplicate body field in GatewayRequest");
+                }
+                // The non-blocking parser does not report exact value start offsets, so keep the end of the name
+                bodyStart = parser.currentLocation().getByteOffset();
+            }
+            return;
+        }
+        if (depth == 1 && token == JsonToken.END_OBJECT) {
+            depth--;
+            envelopeRead = true;
+            return;
+        }
+        if (depth == 1) {
+            startValue(token);
+        } else if (queryParams != null) {
+            queryParams.copyCurrentEvent(parser);
+        }
+        if (token.isStructStart()) {
+            depth++;
+        } else if (token.isStructEnd()) {
+            depth--;
+        }
+        if (depth == 1) {
+            endValue();
+        }
+    }
+
+    /**
+     * This method handles the first token of an envelope value.
+     */
+    private void startValue(JsonToken token) throws IOException {
+        switch (field) {
+            case "targetMethod" -> request.setTargetMethod(
+                    token == JsonToken.VALUE_NULL ? null : HttpMethod.valueOf(parser.getText()));
+            case "queryParams" -> {
+                queryParams = new TokenBuffer(parser);
+                queryParams.copyCurrentEvent(parser);
+            }
+            default -> {
+                // The body range is recorded from its name and its last token; unknown fields are ignored
+            }
+        }
+    }
+
+    /**
+     * This method handles the end of an envelope value, once its last token has been read.
+     */
+    private void endValue() throws IOException {
+        switch (field) {
+            case "queryParams" -> {
+                try (JsonParser tokens = queryParams.asParser(objectMapper)) {
+                    request.setQueryParams(objectMapper.readValue(tokens, QUERY_PARAMS_TYPE));
+                }
+                queryParams = null;
+            }
+            case "body" -> bodyEnd = parser.currentLocation().getByteOffset();
+            default -> {
+                // Nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.unir.gateway.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.unir.gateway.model.GatewayRequest;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import reactor.core.publisher.Flux;
+
+/**
+ * Tests for GatewayRequestParser. Every envelope is fed split at each byte position, and the forwarded body must be
+ * exactly the bytes of the "body" value in the original request.
+ */
+class GatewayRequestParserTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    static Stream<Arguments> bodies() {
+        return Stream.of(
+                // Object body with whitespace and a newline between the name and the value
+                Arguments.of("{\"targetMethod\":\"POST\",\"body\" : \n\t{\"a\":[1,2,{\"b\":\"x}\"}],\"c\":\"ü\"},"
+                        + "\"queryParams\":{\"q\":[\"1\",\"2\"]}}", "{\"a\":[1,2,{\"b\":\"x}\"}],\"c\":\"ü\"}"),
+                // Body as the last field, followed by whitespace
+                Arguments.of("{\"targetMethod\":\"PUT\",\"body\":[{\"id\":1},{\"id\":2}]}  \n",
+                        "[{\"id\":1},{\"id\":2}]"),
+                // Scalar bodies: the parser only knows a number has ended when it reads the next byte
+                Arguments.of("{\"targetMethod\":\"PATCH\",\"body\":42}", "42"),
+                Arguments.of("{\"targetMethod\":\"PATCH\",\"body\":-1.5e3 ,\"queryParams\":{}}", "-1.5e3"),
+                Arguments.of("{\"body\":\"hola \\\"mundo\\\"\",\"targetMethod\":\"POST\"}", "\"hola \\\"mundo\\\"\""),
+                Arguments.of("{\"targetMethod\":\"POST\",\"body\":true}", "true"),
+                Arguments.of("{\"targetMethod\":\"POST\",\"body\":null}", "null"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("bodies")
+    void forwardsTheExactBodyBytesWhateverTheChunks(String envelope, String body) throws IOException {
+        byte[] bytes = envelope.getBytes(StandardCharsets.UTF_8);
+        for (DataBufferFactory factory : factories()) {
+            assertEquals(body, forwardedBody(factory, List.of(bytes)));
+            for (int split = 1; split < bytes.length; split++) {
+                assertEquals(body, forwardedBody(factory, chunks(bytes, split)), "split at " + split);
+                // a third chunk in the middle of the second one
+                int second = split + (bytes.length - split) / 2;
+                if (second > split) {
+                    assertEquals(body, forwardedBody(factory, chunks(bytes, split, second)),
+                            "split at " + split + " and " + second);
+                }
+            }
+        }
+    }
+
+    @Test
+    void readsTheTargetMethodAndQueryParams() throws IOException {
+        GatewayRequest request = parse(new DefaultDataBufferFactory(), List.of(
+                "{\"targetMethod\":\"GET\",\"queryPa".getBytes(StandardCharsets.UTF_8),
+                "rams\":{\"title\":[\"Don Quijote\"],\"rating\":[\"4\",\"5\"]}}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpMethod.GET, request.getTargetMethod());
+        assertEquals(List.of("Don Quijote"), request.getQueryParams().get("title"));
+        assertEquals(List.of("4", "5"), request.getQueryParams().get("rating"));
+        assertNull(request.getBody());
+    }
+
+    @Test
+    void leavesTheBodyEmptyWhenTheFieldIsMissing() throws IOException {
+        GatewayRequest request = parse(new DefaultDataBufferFactory(),
+                List.of("{\"targetMethod\":\"DELETE\",\"queryParams\":null}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpMethod.DELETE, request.getTargetMethod());
+        assertNull(request.getQueryParams());
+        assertNull(request.getBody());
+    }
+
+    @Test
+    void sharesTheMemoryOfTheRequestBuffer() throws IOException {
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (byte[] chunk : chunks("{\"targetMethod\":\"POST\",\"body\":{\"title\":\"Dune\"}}"
+                .getBytes(StandardCharsets.UTF_8), 10, 30)) {
+            chunks.add(factory.wrap(chunk));
+        }
+        GatewayRequestParser parser = new GatewayRequestParser(objectMapper);
+        chunks.forEach(parser::feed);
+        NettyDataBuffer joined = (NettyDataBuffer) DataBufferUtils.join(Flux.fromIterable(chunks)).block();
+
+        DataBuffer body = parser.getRequest(joined).getBody();
+        DataBufferUtils.release(joined);
+        parser.close();
+
+        // The body keeps the joined buffer alive until it is released
+        assertEquals(1, joined.getNativeBuffer().refCnt());
+        assertEquals("{\"title\":\"Dune\"}", body.toString(StandardCharsets.UTF_8));
+        DataBufferUtils.release(body);
+        assertEquals(0, joined.getNativeBuffer().refCnt());
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidEnvelopes")
+    void rejectsInvalidEnvelopes(String envelope) {
+        byte[] bytes = envelope.getBytes(StandardCharsets.UTF_8);
+        for (int split = 1; split < bytes.length; split++) {
+            List<byte[]> chunks = chunks(bytes, split);
+            assertThrows(ServerWebInputException.class, () -> parse(new DefaultDataBufferFactory(), chunks),
+                    "split at " + split);
+        }
+    }
+
+    static Stream<String> invalidEnvelopes() {
+        return Stream.of(
+                // Two "body" fields: the forwarded bytes would be ambiguous
+                "{\"targetMethod\":\"POST\",\"body\":{\"a\":1},\"body\":{\"a\":2}}",
+                // Truncated envelope
+                "{\"targetMethod\":\"POST\",\"body\":{\"a\":1}",
+                // Not a single JSON object
+                "[{\"targetMethod\":\"POST\"}]",
+                "{\"targetMethod\":\"POST\"} {}",
+                // Query params that are not a map of lists
+                "{\"targetMethod\":\"GET\",\"queryParams\":[1,2]}");
+    }
+
+    /**
+     * Feeds the chunks to a parser, as RequestBodyExtractor does, and returns the forwarded body as a string.
+     */
+    private String forwardedBody(DataBufferFactory factory, List<byte[]> chunks) throws IOException {
+        DataBuffer body = parse(factory, chunks).getBody();
+        try {
+            return body.toString(StandardCharsets.UTF_8);
+        } finally {
+            DataBufferUtils.release(body);
+        }
+    }
+
+    /**
+     * Feeds each chunk to a new parser, joins the chunks and returns the parsed request. The joined buffer is released,
+     * so the body must be released by the caller.
+     */
+    private GatewayRequest parse(DataBufferFactory factory, List<byte[]> chunks) throws IOException {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (byte[] chunk : chunks) {
+            buffers.add(factory.wrap(chunk));
+        }
+        GatewayRequestParser parser = new GatewayRequestParser(objectMapper);
+        try {
+            buffers.forEach(parser::feed);
+            DataBuffer joined = DataBufferUtils.join(Flux.fromIterable(buffers)).block();
+            try {
+                return parser.getRequest(joined);
+            } finally {
+                DataBufferUtils.release(joined);
+            }
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Splits the bytes at the given positions.
+     */
+    private static List<byte[]> chunks(byte[] bytes, int... splits) {
+        List<byte[]> chunks = new ArrayList<>();
+        int start = 0;
+        for (int split : splits) {
+            chunks.add(Arrays.copyOfRange(bytes, start, split));
+            start = split;
+        }
+        chunks.add(Arrays.copyOfRange(bytes, start, bytes.length));
+        return chunks;
+    }
+
+    /**
+     * Heap buffers joined by copying, and pooled Netty buffers joined as a composite buffer, as in the gateway.
+     */
+    private static List<DataBufferFactory> factories() {
+        return List.of(new DefaultDataBufferFactory(), new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT));
+    }
+}
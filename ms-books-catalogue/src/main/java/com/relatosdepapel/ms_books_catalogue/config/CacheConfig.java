@@ -0,0 +1,17 @@
+package com.relatosdepapel.ms_books_catalogue.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de la cache en memoria del catálogo.
+ * El proveedor (Caffeine), el tamaño máximo y el TTL se definen en
+ * spring.cache del application.yaml; Actuator publica las métricas
+ * cache.gets (hit/miss) y cache.evictions de cada cache.
+ */
+@Configuration
+@EnableCaching // Habilita @Cacheable y @CacheEvict
+public class CacheConfig {
+    /** Cache de AvailabilityResponseDTO por ID de libro */
+    public static final String BOOK_AVAILABILITY = "bookAvailability";
+}
@@ -0,0 +1,89 @@
+package com.relatosdepapel.ms_books_catalogue.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.retry.RetryException;
+import org.springframework.core.retry.RetryListener;
+import org.springframework.core.retry.RetryPolicy;
+import org.springframework.core.retry.RetryState;
+import org.springframework.core.retry.RetryTemplate;
+import org.springframework.core.retry.Retryable;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuración de reintentos para las escrituras de libros.
+ * Cuando dos instancias del catálogo modifican el mismo libro a la vez, la
+ * escritura con versión desactualizada falla con
+ * OptimisticLockingFailureException y se reintenta con espera exponencial y
+ * jitter, hasta un número máximo de intentos.
+ * Publica métricas de conflictos y reintentos a través de Actuator.
+ */
+@Configuration
+public class RetryConfig {
+
+    /**
+     * RetryTemplate usado por BookServiceImpl en update y patch (updateStock no
+     * lo necesita: aplica el cambio con un UPDATE atómico).
+     *
+     * @param maxRetries Número máximo de reintentos tras el primer intento
+     * @param delay      Espera inicial entre intentos
+     * @param jitter     Variación aleatoria aplicada a cada espera
+     * @param maxDelay   Espera máxima entre intentos
+     * @param registry   Registro de métricas de Micrometer
+     * @return RetryTemplate configurado para conflictos de bloqueo optimista
+     */
+    @Bean
+    public RetryTemplate bookWriteRetryTemplate(
+            @Value("${catalogue.retry.max-retries:3}") long maxRetries,
+            @Value("${catalogue.retry.delay:20ms}") Duration delay,
+            @Value("${catalogue.retry.jitter:10ms}") Duration jitter,
+            @Value("${catalogue.retry.max-delay:200ms}") Duration maxDelay,
+            MeterRegistry registry) {
+        RetryPolicy policy = RetryPolicy.builder()
+                .includes(OptimisticLockingFailureException.class) // solo conflictos de versión
+                .maxRetries(maxRetries)
+                .delay(delay)
+                .jitter(jitter)
+                .multiplier(2)
+                .maxDelay(maxDelay)
+                .build();
+
+        Counter conflicts = Counter.builder("catalogue.books.optimistic.conflicts")
+                .description("Escrituras de libros rechazadas por versión desactualizada")
+                .register(registry);
+        Counter retries = Counter.builder("catalogue.books.optimistic.retries")
+                .description("Reintentos de escrituras de libros tras un conflicto")
+                .register(registry);
+        Counter exhausted = Counter.builder("catalogue.books.optimistic.exhausted")
+                .description("Escrituras de libros que agotaron los reintentos")
+                .register(registry);
+
+        RetryTemplate retryTemplate = new RetryTemplate(policy);
+        retryTemplate.setRetryListener(new RetryListener() {
+            @Override
+            public void onRetryableExecution(RetryPolicy retryPolicy, Retryable<?> retryable, RetryState state) {
+                if (!state.isSuccessful() && state.getLastException() instanceof OptimisticLockingFailureException) {
+                    conflicts.increment();
+                }
+            }
+
+            @Override
+            public void beforeRetry(RetryPolicy retryPolicy, Retryable<?> retryable) {
+                retries.increment();
+            }
+
+            @Override
+            public void onRetryPolicyExhaustion(RetryPolicy retryPolicy, Retryable<?> retryable,
+                    RetryException exception) {
+                exhausted.increment();
+            }
+        });
+        return retryTemplate;
+    }
+}
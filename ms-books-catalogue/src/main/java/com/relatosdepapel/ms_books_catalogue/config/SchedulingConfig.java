@@ -0,0 +1,13 @@
+package com.relatosdepapel.ms_books_catalogue.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (@Scheduled) de ms-books-catalogue, como la
+ * purga de comandos de stock ya aplicados.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,10 +1,17 @@
 package com.relatosdepapel.ms_books_catalogue.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.time.LocalDate;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,35 +23,66 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.relatosdepapel.ms_books_catalogue.dto.BookPageDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookPatchDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.ErrorResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.StockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookStockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookSuggestionDTO;
+import com.relatosdepapel.ms_books_catalogue.exception.BookNotFoundException;
 import com.relatosdepapel.ms_books_catalogue.dto.AvailabilityResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.service.BookService;
 
 import lombok.RequiredArgsConstructor;
+import tools.jackson.databind.ObjectMapper;
 
 @RestController // Indica que esta clase es un controlador REST
 @RequestMapping("/api/books") // Mapea las peticiones a esta URL
 @RequiredArgsConstructor // Constructor con dependencias inyectadas
 public class BookController {
+    /** Cabecera con el cursor de la página siguiente (ausente en la última página) */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /** Número máximo de IDs aceptados en la consulta de disponibilidad por lotes */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    /** Número máximo de líneas aceptadas en la actualización de stock por lotes */
+    private static final int MAX_STOCK_BATCH_SIZE = 10000;
+
+    /** Cada cuántos libros se vacía el buffer de la exportación NDJSON */
+    private static final int EXPORT_FLUSH_EVERY = 100;
+
     private final BookService bookService; // Inyección de dependencia del BookService
+    private final ObjectMapper objectMapper; // Serializador JSON para la exportación NDJSON
 
     // GET ENDPOINTS
 
     /**
      * GET /api/books
-     * Obtiene todos los libros del catálogo
+     * Obtiene una página de libros visibles del catálogo (paginación keyset)
      *
-     * @return 200 OK con lista de libros
+     * @param cursor Cursor de la cabecera X-Next-Cursor de la página anterior
+     * @param limit  Tamaño de página (por defecto 50, máximo 200)
+     * @param sort   Orden: id, title, author o price (por defecto id)
+     * @return 200 OK con lista de libros y cabecera X-Next-Cursor si hay más
+     *         400 Bad Request si el cursor o el orden no son válidos
      */
     @GetMapping
-    public ResponseEntity<List<BookResponseDTO>> getAllBooks() {
-        List<BookResponseDTO> books = bookService.getAll(); // obtiene todos los libros
-        return ResponseEntity.ok(books); // 200 OK
+    public ResponseEntity<?> getAllBooks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
+        try {
+            BookPageDTO page = bookService.getAll(cursor, limit, sort); // obtiene una página de libros
+            return toPageResponse(page); // 200 OK
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, e.getMessage()));
+        }
     }
 
     /**
@@ -126,6 +164,7 @@ public class BookController {
      * @return 200 OK con el libro actualizado
      *         400 Bad Request si hay errores de validación
      *         404 Not Found si no existe
+     *         409 Conflict si el libro se modificó concurrentemente
      */
     @PutMapping("/{id}")
     public ResponseEntity<?> updateBook(@PathVariable Long id, @RequestBody BookRequestDTO dto) {
@@ -159,11 +198,17 @@ public class BookController {
                     .body(new ErrorResponseDTO(400, "El stock no puede ser negativo"));
         }
 
-        BookResponseDTO updatedBook = bookService.update(id, dto); // actualiza el libro
-        if (updatedBook == null) {
-            return ResponseEntity.notFound().build(); // 404 Not Found
+        try {
+            BookResponseDTO updatedBook = bookService.update(id, dto); // actualiza el libro
+            if (updatedBook == null) {
+                return ResponseEntity.notFound().build(); // 404 Not Found
+            }
+            return ResponseEntity.ok(updatedBook); // 200 OK
+        } catch (OptimisticLockingFailureException e) {
+            // se agotaron los reintentos por modificaciones concurrentes
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponseDTO(409, "El libro fue modificado por otra operación, intente de nuevo"));
         }
-        return ResponseEntity.ok(updatedBook); // 200 OK
     }
 
     // PATCH ENDPOINT
@@ -176,14 +221,21 @@ public class BookController {
      * @param dto Datos parciales del libro
      * @return 200 OK con el libro actualizado
      *         404 Not Found si no existe
+     *         409 Conflict si el libro se modificó concurrentemente
      */
     @PatchMapping("/{id}")
-    public ResponseEntity<BookResponseDTO> patchBook(@PathVariable Long id, @RequestBody BookPatchDTO dto) {
-        BookResponseDTO updatedBook = bookService.patch(id, dto); // actualiza el libro
-        if (updatedBook == null) {
-            return ResponseEntity.notFound().build(); // 404 Not Found
+    public ResponseEntity<?> patchBook(@PathVariable Long id, @RequestBody BookPatchDTO dto) {
+        try {
+            BookResponseDTO updatedBook = bookService.patch(id, dto); // actualiza el libro
+            if (updatedBook == null) {
+                return ResponseEntity.notFound().build(); // 404 Not Found
+            }
+            return ResponseEntity.ok(updatedBook); // 200 OK
+        } catch (OptimisticLockingFailureException e) {
+            // se agotaron los reintentos por modificaciones concurrentes
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponseDTO(409, "El libro fue modificado por otra operación, intente de nuevo"));
         }
-        return ResponseEntity.ok(updatedBook); // 200 OK
     }
 
     // DELETE ENDPOINT
@@ -223,10 +275,20 @@ public class BookController {
      * @param minStock            Stock mínimo
      * @param publicationDateFrom Fecha de publicación desde
      * @param publicationDateTo   Fecha de publicación hasta
-     * @return 200 OK con lista de libros que cumplen los criterios
+     * @param cursor              Cursor de la página anterior
+     * @param limit               Tamaño de página (por defecto 50, máximo 200)
+     * @param sort                Orden: id, title, author, price o relevance (con q)
+     * @param fuzzy               true para admitir errores de escritura en
+     *                            título y autor ("Quijte" encuentra "Quijote")
+     * @param q                   Texto libre en título, autor o categoría:
+     *                            devuelve los limit libros más relevantes
+     * @return 200 OK con lista de libros que cumplen los criterios y cabecera
+     *         X-Next-Cursor si hay más
+     *         400 Bad Request si el cursor o el orden no son válidos, o se
+     *         pide orden por relevancia sin q
      */
     @GetMapping("/search")
-    public ResponseEntity<List<BookResponseDTO>> searchBooks(
+    public ResponseEntity<?> searchBooks(
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String author,
             @RequestParam(required = false) String category,
@@ -238,10 +300,72 @@ public class BookController {
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) LocalDate publicationDateFrom,
             @RequestParam(required = false) LocalDate publicationDateTo,
-            @RequestParam(required = false) Integer minStock) {
-        List<BookResponseDTO> results = bookService.search(title, author, category, isbn, ratingMin, ratingMax, visible,
-                minPrice, maxPrice, publicationDateFrom, publicationDateTo, minStock); // busca libros con los filtros
-        return ResponseEntity.ok(results); // 200 OK
+            @RequestParam(required = false) Integer minStock,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Boolean fuzzy,
+            @RequestParam(required = false) String q) {
+        try {
+            BookPageDTO results = bookService.search(title, author, category, isbn, ratingMin, ratingMax, visible,
+                    minPrice, maxPrice, publicationDateFrom, publicationDateTo, minStock, cursor, limit,
+                    sort, fuzzy, q); // busca libros con los filtros
+            return toPageResponse(results); // 200 OK
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, e.getMessage()));
+        }
+    }
+
+    // SUGGEST ENDPOINT
+
+    /**
+     * GET /api/books/suggest
+     * Sugerencias de autocompletado (títulos, autores y categorías) para el
+     * texto escrito en el buscador, ordenadas por valoración
+     * Se resuelven en memoria, sin consultar la base de datos
+     *
+     * @param q     Texto escrito hasta ahora
+     * @param limit Número de sugerencias (por defecto y como máximo 10)
+     * @return 200 OK con la lista de sugerencias (vacía si no hay coincidencias)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestionDTO>> suggestBooks(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(bookService.suggest(q, limit)); // 200 OK
+    }
+
+    // EXPORT ENDPOINT
+
+    /**
+     * GET /api/books/export
+     * Exporta todos los libros visibles en formato NDJSON (un libro JSON por línea)
+     * La respuesta se escribe en streaming a medida que se leen las filas, con
+     * memoria constante y sin esperar a tener el catálogo completo
+     *
+     * @return 200 OK con el catálogo en application/x-ndjson
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        StreamingResponseBody body = outputStream -> {
+            AtomicInteger written = new AtomicInteger();
+            bookService.exportVisible(book -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(book)); // libro en JSON
+                    outputStream.write('\n'); // separador de línea NDJSON
+                    if (written.incrementAndGet() % EXPORT_FLUSH_EVERY == 0) {
+                        outputStream.flush(); // enviar el bloque al cliente
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // cliente desconectado
+                }
+            });
+            outputStream.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body); // 200 OK
     }
 
     // AVAILABILITY ENDPOINT
@@ -264,6 +388,33 @@ public class BookController {
         return ResponseEntity.ok(availability); // 200 OK
     }
 
+    /**
+     * GET /api/books/availability?ids=1,2,3
+     * Verifica la disponibilidad de varios libros en una sola petición
+     * Usado por ms-books-payments para validar un carrito completo
+     *
+     * @param ids IDs de los libros (máximo 500)
+     * @return 200 OK con un mapa ID → disponibilidad (los IDs inexistentes se
+     *         omiten)
+     *         400 Bad Request si no hay IDs o se supera el máximo
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<?> checkAvailabilityBatch(@RequestParam List<Long> ids) {
+        List<Long> bookIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        // Validación 1: al menos un ID
+        if (bookIds.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, "Debe indicar al menos un ID"));
+        }
+        // Validación 2: tamaño máximo del lote
+        if (bookIds.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, "No se pueden consultar más de " + MAX_BATCH_SIZE + " libros"));
+        }
+        Map<Long, AvailabilityResponseDTO> availability = bookService.checkAvailability(bookIds);
+        return ResponseEntity.ok(availability); // 200 OK
+    }
+
     // STOCK ENDPOINT
 
     /**
@@ -284,20 +435,76 @@ public class BookController {
             return ResponseEntity.badRequest()
                     .body(new ErrorResponseDTO(400, "La cantidad no puede ser nula"));
         }
-        // Verificar que el libro existe
-        BookResponseDTO book = bookService.getById(id);
-        if (book == null) {
-            return ResponseEntity.notFound().build();
-        }
-        // Validación 2: stock suficiente si es decremento
-        if (dto.getQuantity() < 0 && book.getStock() + dto.getQuantity() < 0) {
+        try {
+            // el servicio valida el stock suficiente de forma atómica
+            BookResponseDTO updatedBook = bookService.updateStock(id, dto); // actualiza el stock
+            if (updatedBook == null) {
+                return ResponseEntity.notFound().build(); // 404 Not Found
+            }
+            return ResponseEntity.ok(updatedBook); // 200 OK
+        } catch (IllegalArgumentException e) {
+            // Validación 2: stock suficiente si es decremento
             return ResponseEntity.badRequest()
                     .body(new ErrorResponseDTO(400, "Stock insuficiente"));
         }
-        BookResponseDTO updatedBook = bookService.updateStock(id, dto); // actualiza el stock
-        if (updatedBook == null) {
-            return ResponseEntity.notFound().build(); // 404 Not Found
+    }
+
+    /**
+     * PATCH /api/books/stock
+     * Actualiza el stock de varios libros en una sola transacción
+     * Usado por los procesos de sincronización de almacén (hasta
+     * MAX_STOCK_BATCH_SIZE líneas por petición); las compras usan las reservas
+     * de /api/books/reservations
+     *
+     * @param updates Lista de {bookId, quantity} (positivo = incremento, negativo
+     *                = decremento)
+     * @return 204 No Content si se aplicaron todos los cambios
+     *         400 Bad Request si hay errores o algún stock quedaría negativo
+     *         404 Not Found si algún libro no existe
+     */
+    @PatchMapping("/stock")
+    public ResponseEntity<?> updateStockBatch(@RequestBody List<BookStockUpdateDTO> updates) {
+        // Validación 1: al menos una línea
+        if (updates == null || updates.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, "Debe indicar al menos un libro"));
+        }
+        // Validación 2: tamaño máximo del lote
+        if (updates.size() > MAX_STOCK_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400,
+                            "No se pueden actualizar más de " + MAX_STOCK_BATCH_SIZE + " líneas"));
+        }
+        // Validación 3: bookId y quantity no nulos
+        for (BookStockUpdateDTO update : updates) {
+            if (update.getBookId() == null || update.getQuantity() == null) {
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponseDTO(400, "El ID del libro y la cantidad no pueden ser nulos"));
+            }
+        }
+        try {
+            bookService.updateStock(updates); // todo o nada
+            return ResponseEntity.noContent().build(); // 204 No Content
+        } catch (BookNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ErrorResponseDTO(404, e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, e.getMessage()));
+        }
+    }
+
+    // METODOS HELPERS
+
+    /**
+     * Construye la respuesta de una página: la lista de libros en el cuerpo y el
+     * cursor siguiente en la cabecera X-Next-Cursor.
+     */
+    private ResponseEntity<List<BookResponseDTO>> toPageResponse(BookPageDTO page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
         }
-        return ResponseEntity.ok(updatedBook); // 200 OK
+        return response.body(page.getBooks());
     }
 }
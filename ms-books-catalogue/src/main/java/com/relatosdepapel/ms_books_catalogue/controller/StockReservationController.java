@@ -0,0 +1,174 @@
+package com.relatosdepapel.ms_books_catalogue.controller;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.relatosdepapel.ms_books_catalogue.dto.ErrorResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.StockReservationRequestDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.StockReservationResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.exception.BookNotFoundException;
+import com.relatosdepapel.ms_books_catalogue.exception.ReservationNotFoundException;
+import com.relatosdepapel.ms_books_catalogue.service.StockReservationService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController // Indica que esta clase es un controlador REST
+@RequestMapping("/api/books/reservations") // Mapea las peticiones a esta URL
+@RequiredArgsConstructor // Constructor con dependencias inyectadas
+public class StockReservationController {
+    /** Número máximo de reservas por petición */
+    private static final int MAX_RESERVATION_BATCH_SIZE = 1000;
+
+    /** Longitud máxima del ID de una reserva */
+    private static final int MAX_RESERVATION_ID_LENGTH = 64;
+
+    private final StockReservationService stockReservationService; // Inyección de dependencia del servicio
+
+    /**
+     * POST /api/books/reservations
+     * Reserva stock de varios libros en una sola transacción (todo o nada)
+     * El stock queda retenido hasta que se confirme, se libere o caduque
+     *
+     * @param requests Lista de {reservationId, bookId, quantity}
+     * @return 201 Created con las reservas (las ya existentes se devuelven tal
+     *         cual)
+     *         400 Bad Request si hay errores o algún libro no tiene stock
+     *         suficiente
+     *         404 Not Found si algún libro no existe
+     */
+    @PostMapping
+    public ResponseEntity<?> reserve(@RequestBody List<StockReservationRequestDTO> requests) {
+        // Validación 1: al menos una reserva y tamaño máximo del lote
+        ResponseEntity<?> invalid = validateBatch(requests);
+        if (invalid != null) {
+            return invalid;
+        }
+        // Validación 2: campos obligatorios
+        for (StockReservationRequestDTO request : requests) {
+            if (request.getBookId() == null || request.getQuantity() == null || request.getQuantity() <= 0) {
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponseDTO(400,
+                                "El ID del libro es obligatorio y la cantidad debe ser mayor que 0"));
+            }
+            if (!isValidId(request.getReservationId())) {
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponseDTO(400, "El ID de la reserva no es válido"));
+            }
+        }
+        try {
+            List<StockReservationResponseDTO> reservations = stockReservationService.reserve(requests);
+            return ResponseEntity.status(HttpStatus.CREATED).body(reservations); // 201 Created
+        } catch (BookNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ErrorResponseDTO(404, e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /api/books/reservations/confirm
+     * Confirma varias reservas: el stock queda descontado definitivamente
+     *
+     * @param reservationIds IDs de las reservas
+     * @return 204 No Content si se confirmaron todas
+     *         400 Bad Request si la lista no es válida
+     *         404 Not Found si alguna reserva no existe
+     *         409 Conflict si alguna reserva caducó o fue liberada
+     */
+    @PostMapping("/confirm")
+    public ResponseEntity<?> confirm(@RequestBody List<String> reservationIds) {
+        ResponseEntity<?> invalid = validateIds(reservationIds);
+        if (invalid != null) {
+            return invalid;
+        }
+        try {
+            stockReservationService.confirm(reservationIds);
+            return ResponseEntity.noContent().build(); // 204 No Content
+        } catch (ReservationNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ErrorResponseDTO(404, e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponseDTO(409, e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /api/books/reservations/release
+     * Libera varias reservas y devuelve su stock
+     *
+     * @param reservationIds IDs de las reservas
+     * @return 204 No Content si se liberaron todas (las ya liberadas o caducadas
+     *         se ignoran)
+     *         400 Bad Request si la lista no es válida
+     *         404 Not Found si alguna reserva no existe
+     */
+    @PostMapping("/release")
+    public ResponseEntity<?> release(@RequestBody List<String> reservationIds) {
+        ResponseEntity<?> invalid = validateIds(reservationIds);
+        if (invalid != null) {
+            return invalid;
+        }
+        try {
+            stockReservationService.release(reservationIds);
+            return ResponseEntity.noContent().build(); // 204 No Content
+        } catch (ReservationNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ErrorResponseDTO(404, e.getMessage()));
+        }
+    }
+
+    // METODOS HELPERS
+
+    /**
+     * Valida una lista de IDs de reserva.
+     *
+     * @return respuesta 400 si no es válida, null si es válida
+     */
+    private ResponseEntity<?> validateIds(List<String> reservationIds) {
+        ResponseEntity<?> invalid = validateBatch(reservationIds);
+        if (invalid != null) {
+            return invalid;
+        }
+        if (!reservationIds.stream().allMatch(this::isValidId)) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, "El ID de la reserva no es válido"));
+        }
+        return null;
+    }
+
+    /**
+     * Valida que el lote no esté vacío ni supere MAX_RESERVATION_BATCH_SIZE.
+     *
+     * @return respuesta 400 si no es válido, null si es válido
+     */
+    private ResponseEntity<?> validateBatch(List<?> batch) {
+        if (batch == null || batch.isEmpty() || batch.stream().anyMatch(Objects::isNull)) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, "Debe indicar al menos una reserva"));
+        }
+        if (batch.size() > MAX_RESERVATION_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400,
+                            "No se pueden procesar más de " + MAX_RESERVATION_BATCH_SIZE + " reservas"));
+        }
+        return null;
+    }
+
+    /**
+     * Indica si el ID de una reserva no está vacío y cabe en la columna.
+     */
+    private boolean isValidId(String reservationId) {
+        return reservationId != null && !reservationId.isBlank()
+                && reservationId.length() <= MAX_RESERVATION_ID_LENGTH;
+    }
+}
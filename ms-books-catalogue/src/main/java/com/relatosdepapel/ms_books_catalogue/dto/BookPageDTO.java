@@ -0,0 +1,21 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+/**
+ * DTO con una página de libros obtenida por paginación keyset
+ * nextCursor se envía al cliente en la cabecera X-Next-Cursor
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageDTO {
+    /** Libros de la página actual */
+    private List<BookResponseDTO> books;
+
+    /** Cursor para pedir la página siguiente (null si es la última) */
+    private String nextCursor;
+}
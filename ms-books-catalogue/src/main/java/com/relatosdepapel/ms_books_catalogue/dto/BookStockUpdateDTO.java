@@ -0,0 +1,30 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO para actualizar el stock de varios libros en una sola petición
+ * Cada elemento indica el libro y la cantidad a sumar/restar
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStockUpdateDTO {
+    /** ID del libro */
+    private Long bookId;
+
+    /**
+     * Cantidad a sumar/restar del stock
+     * Positivo: incrementar, Negativo: decrementar
+     */
+    private Integer quantity;
+
+    /**
+     * Identificador del comando (opcional). Si se reenvía un comando ya
+     * aplicado, la línea se ignora, para que los reintentos no cambien el stock
+     * dos veces
+     */
+    private String commandId;
+}
@@ -0,0 +1,26 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO con una sugerencia de autocompletado del buscador
+ * Puede ser un título, un autor o una categoría del catálogo
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestionDTO {
+    /** Texto sugerido (título, autor o categoría tal cual están en el catálogo) */
+    private String text;
+
+    /** Tipo de sugerencia: title, author o category */
+    private String type;
+
+    /** ID del libro (solo en sugerencias de tipo title) */
+    private Long bookId;
+
+    /** Valoración del libro, o la mejor de sus libros para autores y categorías */
+    private Integer rating;
+}
@@ -0,0 +1,26 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO para reservar stock de un libro
+ * Usado en POST /api/books/reservations
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationRequestDTO {
+    /**
+     * ID de la reserva, elegido por el cliente. Reenviar una reserva ya creada
+     * devuelve la existente sin volver a retener stock
+     */
+    private String reservationId;
+
+    /** ID del libro */
+    private Long bookId;
+
+    /** Unidades a reservar (mayor que 0) */
+    private Integer quantity;
+}
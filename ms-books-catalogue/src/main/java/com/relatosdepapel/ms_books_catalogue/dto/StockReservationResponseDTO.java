@@ -0,0 +1,30 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO de respuesta de una reserva de stock
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResponseDTO {
+    /** ID de la reserva */
+    private String reservationId;
+
+    /** ID del libro */
+    private Long bookId;
+
+    /** Unidades reservadas */
+    private Integer quantity;
+
+    /** Estado: HELD, CONFIRMED, RELEASED o EXPIRED */
+    private String status;
+
+    /** Fecha límite para confirmar la reserva */
+    private LocalDateTime expiresAt;
+}
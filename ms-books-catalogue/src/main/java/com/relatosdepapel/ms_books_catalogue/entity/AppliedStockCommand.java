@@ -0,0 +1,53 @@
+package com.relatosdepapel.ms_books_catalogue.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+import com.relatosdepapel.ms_books_catalogue.utils.Consts;
+
+/**
+ * Entidad que registra los comandos de stock ya aplicados (por commandId).
+ * Se inserta en la misma transacción que el cambio de stock, de modo que un
+ * comando reenviado por el cliente se aplica una sola vez.
+ */
+@Entity // Indica que es una entidad
+@Table(name = "applied_stock_commands", indexes = @Index(name = "idx_applied_stock_commands_applied_at", columnList = Consts.APPLIED_AT)) // Índice para purgar por fecha
+@Data // Genera los getters y setters
+@NoArgsConstructor // Genera el constructor vacio
+@AllArgsConstructor // Genera el constructor con todos los atributos
+public class AppliedStockCommand implements Persistable<String> {
+    /**
+     * Identificador del comando enviado por el cliente
+     */
+    @Id // Marca clave primaria
+    @Column(name = Consts.COMMAND_ID, length = 64)
+    private String commandId;
+
+    /**
+     * Fecha en la que se aplicó el comando
+     */
+    @Column(name = Consts.APPLIED_AT, nullable = false)
+    private LocalDateTime appliedAt;
+
+    /**
+     * Devuelve el identificador (requerido por Persistable).
+     */
+    @Override
+    public String getId() {
+        return commandId;
+    }
+
+    /**
+     * Los comandos solo se insertan: se indica a Spring Data que siempre son
+     * nuevos para que saveAll haga INSERT directamente sin SELECT previo.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
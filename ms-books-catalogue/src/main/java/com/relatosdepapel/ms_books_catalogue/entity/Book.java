@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -16,7 +17,10 @@ import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
  * Entidad que representa un libro
  */
 @Entity // Indica que es una entidad
-@Table(name = "books") // Indica el nombre de la tabla
+@Table(name = "books", indexes = { // Índices (columna de orden, id) para la paginación por cursor
+        @Index(name = "idx_books_title_id", columnList = Consts.TITLE + ", " + Consts.ID),
+        @Index(name = "idx_books_author_id", columnList = Consts.AUTHOR + ", " + Consts.ID),
+        @Index(name = "idx_books_price_id", columnList = Consts.PRICE + ", " + Consts.ID) })
 @Data // Genera los getters y setters
 @NoArgsConstructor // Genera el constructor vacio
 @AllArgsConstructor // Genera el constructor con todos los atributos
@@ -83,6 +87,15 @@ public class Book {
     @Column(name = Consts.PRICE, nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
 
+    /**
+     * Versión para bloqueo optimista. Se incrementa en cada escritura y hace
+     * fallar las actualizaciones hechas sobre una copia desactualizada del libro.
+     */
+    @Version // Control de concurrencia optimista
+    @ColumnDefault("0") // Valor inicial para las filas insertadas por SQL (data.sql)
+    @Column(name = Consts.VERSION, nullable = false)
+    private Long version;
+
     // Metodo para actualizar Book desde un BookRequestDTO - no se actualiza el ID e
     // ISBN
     public void updateFromDTO(BookRequestDTO dto) {
@@ -0,0 +1,94 @@
+package com.relatosdepapel.ms_books_catalogue.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+import com.relatosdepapel.ms_books_catalogue.utils.Consts;
+
+/**
+ * Entidad que representa una reserva de stock.
+ * Mientras está HELD las unidades ya están descontadas del stock del libro;
+ * si no se confirma antes de expiresAt, el barrido de reservas caducadas las
+ * devuelve.
+ */
+@Entity // Indica que es una entidad
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_status_expires_at", columnList = Consts.STATUS + ", "
+                + Consts.EXPIRES_AT), // Índice para leer las reservas caducadas por fecha límite
+        @Index(name = "idx_stock_reservations_status_created_at", columnList = Consts.STATUS + ", "
+                + Consts.CREATED_AT) }) // Índice para purgar las reservas cerradas antiguas
+@Data // Genera los getters y setters
+@NoArgsConstructor // Genera el constructor vacio
+@AllArgsConstructor // Genera el constructor con todos los atributos
+@Builder // Genera el builder
+public class StockReservation implements Persistable<String> {
+    /** Reserva activa: stock retenido hasta expiresAt */
+    public static final String HELD = "HELD";
+    /** Reserva confirmada: el stock queda descontado definitivamente */
+    public static final String CONFIRMED = "CONFIRMED";
+    /** Reserva liberada por el cliente: stock devuelto */
+    public static final String RELEASED = "RELEASED";
+    /** Reserva caducada sin confirmar: stock devuelto */
+    public static final String EXPIRED = "EXPIRED";
+
+    /**
+     * Identificador de la reserva, elegido por el cliente (reservar dos veces
+     * el mismo ID no retiene el stock dos veces)
+     */
+    @Id // Marca clave primaria
+    @Column(name = Consts.RESERVATION_ID, length = 64)
+    private String reservationId;
+
+    /**
+     * ID del libro reservado
+     */
+    @Column(name = Consts.BOOK_ID, nullable = false)
+    private Long bookId;
+
+    /**
+     * Unidades reservadas
+     */
+    @Column(name = Consts.QUANTITY, nullable = false)
+    private Integer quantity;
+
+    /**
+     * Estado: HELD, CONFIRMED, RELEASED o EXPIRED
+     */
+    @Column(name = Consts.STATUS, nullable = false, length = 20)
+    private String status;
+
+    /**
+     * Fecha límite para confirmar la reserva
+     */
+    @Column(name = Consts.EXPIRES_AT, nullable = false)
+    private LocalDateTime expiresAt;
+
+    /**
+     * Fecha de creación de la reserva
+     */
+    @Column(name = Consts.CREATED_AT, nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Devuelve el identificador (requerido por Persistable).
+     */
+    @Override
+    public String getId() {
+        return reservationId;
+    }
+
+    /**
+     * Las reservas se insertan después de comprobar que no existen y solo se
+     * modifican con UPDATE en bloque: saveAll hace INSERT sin SELECT previo.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
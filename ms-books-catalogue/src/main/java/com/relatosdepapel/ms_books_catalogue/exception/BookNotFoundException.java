@@ -0,0 +1,10 @@
+package com.relatosdepapel.ms_books_catalogue.exception;
+
+/**
+ * Excepción lanzada cuando un libro no existe en el catálogo.
+ */
+public class BookNotFoundException extends RuntimeException {
+    public BookNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.relatosdepapel.ms_books_catalogue.exception;
+
+/**
+ * Excepción lanzada cuando una reserva de stock no existe.
+ */
+public class ReservationNotFoundException extends RuntimeException {
+    public ReservationNotFoundException(String message) {
+        super(message);
+    }
+}
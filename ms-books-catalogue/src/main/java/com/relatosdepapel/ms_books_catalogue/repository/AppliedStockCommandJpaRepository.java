@@ -0,0 +1,37 @@
+package com.relatosdepapel.ms_books_catalogue.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.relatosdepapel.ms_books_catalogue.entity.AppliedStockCommand;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio JPA para la entidad AppliedStockCommand (Capa 1).
+ */
+public interface AppliedStockCommandJpaRepository extends JpaRepository<AppliedStockCommand, String> {
+
+    /**
+     * Obtiene cuáles de los comandos indicados ya fueron aplicados.
+     * SQL generado: SELECT command_id FROM applied_stock_commands WHERE command_id IN (:ids)
+     */
+    @Query("SELECT c.commandId FROM AppliedStockCommand c WHERE c.commandId IN :ids")
+    List<String> findAppliedIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Elimina en una sola sentencia los comandos aplicados antes de la fecha dada.
+     * SQL generado: DELETE FROM applied_stock_commands WHERE applied_at < :before
+     *
+     * @return número de comandos eliminados
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AppliedStockCommand c WHERE c.appliedAt < :before")
+    int deleteAppliedBefore(@Param("before") LocalDateTime before);
+}
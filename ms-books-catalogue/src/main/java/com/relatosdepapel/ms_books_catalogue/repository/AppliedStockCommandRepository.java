@@ -0,0 +1,45 @@
+package com.relatosdepapel.ms_books_catalogue.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.stereotype.Repository;
+import com.relatosdepapel.ms_books_catalogue.entity.AppliedStockCommand;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Repositorio Wrapper para AppliedStockCommand (Capa 2).
+ * Registra los comandos de stock ya aplicados para descartar reenvíos.
+ */
+@Repository // Indica que esta clase es un repositorio
+@RequiredArgsConstructor // Genera constructor con parámetros para inyección de dependencias
+public class AppliedStockCommandRepository {
+    private final AppliedStockCommandJpaRepository jpaRepository; // Inyección de dependencia del repositorio JPA
+
+    /**
+     * Obtiene cuáles de los comandos indicados ya fueron aplicados.
+     */
+    public Set<String> getAppliedIds(Collection<String> commandIds) {
+        return new HashSet<>(jpaRepository.findAppliedIds(commandIds));
+    }
+
+    /**
+     * Registra varios comandos como aplicados.
+     */
+    public void saveAll(List<AppliedStockCommand> commands) {
+        jpaRepository.saveAll(commands);
+    }
+
+    /**
+     * Elimina los comandos aplicados antes de la fecha dada.
+     *
+     * @return número de comandos eliminados
+     */
+    public int deleteAppliedBefore(LocalDateTime before) {
+        return jpaRepository.deleteAppliedBefore(before);
+    }
+}
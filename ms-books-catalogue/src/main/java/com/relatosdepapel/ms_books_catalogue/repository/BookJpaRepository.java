@@ -2,10 +2,22 @@ package com.relatosdepapel.ms_books_catalogue.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.entity.Book;
+
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio JPA para la entidad Book (Capa 1).
@@ -50,10 +62,66 @@ public interface BookJpaRepository extends JpaRepository<Book, Long>, JpaSpecifi
      */
     List<Book> findByVisibleTrue();
 
+    /**
+     * Recorre todos los libros visibles como un Stream proyectado a DTO.
+     * Las filas se leen del cursor JDBC por bloques (fetch size) y no se cargan
+     * entidades en el contexto de persistencia, por lo que la memoria usada no
+     * depende del tamaño del catálogo. Debe consumirse dentro de una
+     * transacción y cerrarse al terminar.
+     * SQL generado: SELECT ... FROM books WHERE visible = true ORDER BY id
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO(b.id, b.title, b.author, "
+            + "b.publicationDate, b.category, b.isbn, b.rating, b.visible, b.stock, b.price) "
+            + "FROM Book b WHERE b.visible = true ORDER BY b.id")
+    Stream<BookResponseDTO> streamVisible();
+
     /**
      * Verifica si existe un libro con el ISBN dado.
      * Ejemplo: existsByIsbn("9788467033601")
      * SQL generado: SELECT COUNT(*) > 0 FROM books WHERE isbn = '9788467033601'
      */
     boolean existsByIsbn(String isbn);
+
+    /**
+     * Obtiene el stock actual de varios libros en una sola consulta, sin cargar
+     * entidades.
+     * SQL generado: SELECT id, stock FROM books WHERE id IN (:ids)
+     *
+     * @return filas [id, stock] de los libros que existen
+     */
+    @Query("SELECT b.id, b.stock FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Metodos de escritura - Queries personalizadas
+
+    /**
+     * Suma (o resta) una cantidad al stock en una única sentencia condicional.
+     * Solo modifica la fila si el stock resultante no es negativo, por lo que
+     * no hay lectura previa de la entidad ni riesgo de perder actualizaciones
+     * concurrentes. Incrementa la versión para que las escrituras optimistas
+     * hechas sobre una copia anterior del libro detecten el cambio.
+     * SQL generado: UPDATE books SET stock = stock + :delta, version = version + 1
+     * WHERE id = :id AND stock + :delta >= 0
+     *
+     * @return número de filas afectadas (1 si se aplicó, 0 si no existe o el
+     *         stock quedaría negativo)
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Book b SET b.stock = b.stock + :delta, b.version = b.version + 1 WHERE b.id = :id AND b.stock + :delta >= 0")
+    int adjustStock(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * Suma (o resta) la misma cantidad al stock de varios libros en una única
+     * sentencia condicional. Solo modifica las filas cuyo stock resultante no es
+     * negativo; si el número de filas afectadas es menor que el de IDs, alguno
+     * no existe o se quedaría sin stock.
+     * SQL generado: UPDATE books SET stock = stock + :delta, version = version + 1
+     * WHERE id IN (:ids) AND stock + :delta >= 0
+     *
+     * @return número de filas afectadas
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Book b SET b.stock = b.stock + :delta, b.version = b.version + 1 WHERE b.id IN :ids AND b.stock + :delta >= 0")
+    int adjustStock(@Param("ids") Collection<Long> ids, @Param("delta") int delta);
 }
@@ -1,10 +1,16 @@
 package com.relatosdepapel.ms_books_catalogue.repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.entity.Book;
 
 import lombok.RequiredArgsConstructor;
@@ -37,6 +43,16 @@ public class BookRepository {
         return jpaRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Busca varios libros por ID en una sola consulta.
+     * SQL generado: WHERE id IN (...)
+     *
+     * @return Libros encontrados (los IDs inexistentes se omiten)
+     */
+    public List<Book> getAllById(Collection<Long> ids) {
+        return jpaRepository.findAllById(ids);
+    }
+
     /**
      * Guarda o actualiza un libro.
      */
@@ -51,6 +67,46 @@ public class BookRepository {
         jpaRepository.delete(book);
     }
 
+    /**
+     * Verifica si existe un libro con el ID dado.
+     */
+    public boolean existsById(Long id) {
+        return jpaRepository.existsById(id);
+    }
+
+    /**
+     * Ajusta el stock de forma atómica (UPDATE condicional).
+     *
+     * @return true si se aplicó el cambio, false si el libro no existe o el
+     *         stock resultante sería negativo
+     */
+    public boolean adjustStock(Long id, int delta) {
+        return jpaRepository.adjustStock(id, delta) > 0;
+    }
+
+    /**
+     * Ajusta con la misma cantidad el stock de varios libros (UPDATE condicional
+     * sobre todo el conjunto).
+     *
+     * @return número de libros actualizados
+     */
+    public int adjustStock(Collection<Long> ids, int delta) {
+        return jpaRepository.adjustStock(ids, delta);
+    }
+
+    /**
+     * Obtiene el stock actual de varios libros en una sola consulta.
+     *
+     * @return Mapa ID → stock (los libros inexistentes se omiten)
+     */
+    public Map<Long, Integer> getStockById(Collection<Long> ids) {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Object[] row : jpaRepository.findStockByIdIn(ids)) {
+            stock.put((Long) row[0], (Integer) row[1]);
+        }
+        return stock;
+    }
+
     // METODOS DE BUSQUEDA
 
     /**
@@ -95,6 +151,14 @@ public class BookRepository {
         return jpaRepository.findByVisibleTrue();
     }
 
+    /**
+     * Recorre los libros visibles en streaming (para exportaciones completas).
+     * Debe usarse dentro de una transacción y con try-with-resources.
+     */
+    public Stream<BookResponseDTO> streamVisibleBooks() {
+        return jpaRepository.streamVisible();
+    }
+
     // METODO DE BUSQUEDA DINAMICA
 
     /**
@@ -107,4 +171,18 @@ public class BookRepository {
     public List<Book> search(Specification<Book> spec) {
         return jpaRepository.findAll(spec);
     }
+
+    /**
+     * Realiza una búsqueda dinámica limitada a una página.
+     * Combinada con BookSpecification.keysetAfter permite paginar por keyset:
+     * la base de datos solo lee las filas de la página pedida.
+     *
+     * @param spec  Especificación de búsqueda (incluye la condición del cursor)
+     * @param sort  Orden de la página (debe terminar en id para ser estable)
+     * @param limit Número máximo de libros a devolver
+     * @return Lista de libros de la página
+     */
+    public List<Book> searchPage(Specification<Book> spec, Sort sort, int limit) {
+        return jpaRepository.findBy(spec, query -> query.sortBy(sort).limit(limit).all());
+    }
 }
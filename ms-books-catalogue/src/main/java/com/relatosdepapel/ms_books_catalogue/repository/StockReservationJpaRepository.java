@@ -0,0 +1,64 @@
+package com.relatosdepapel.ms_books_catalogue.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.relatosdepapel.ms_books_catalogue.entity.StockReservation;
+
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio JPA para la entidad StockReservation (Capa 1).
+ */
+public interface StockReservationJpaRepository extends JpaRepository<StockReservation, String> {
+
+    /**
+     * Obtiene y bloquea las reservas indicadas, para que confirmar, liberar y
+     * caducar una misma reserva no se ejecuten a la vez.
+     * SQL generado: SELECT * FROM stock_reservations WHERE reservation_id IN (:ids) FOR UPDATE
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.reservationId IN :ids")
+    List<StockReservation> findForUpdate(@Param("ids") Collection<String> ids);
+
+    /**
+     * Obtiene y bloquea las reservas en el estado indicado cuya fecha límite ya
+     * pasó, de la más antigua a la más reciente. Usa el índice
+     * (status, expires_at): solo lee las reservas caducadas.
+     * SQL generado: SELECT * FROM stock_reservations WHERE status = ? AND expires_at <= ?
+     * ORDER BY expires_at LIMIT ? FOR UPDATE
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<StockReservation> findByStatusAndExpiresAtLessThanEqualOrderByExpiresAtAsc(String status,
+            LocalDateTime now, Limit limit);
+
+    /**
+     * Cambia en una sola sentencia el estado de varias reservas.
+     * SQL generado: UPDATE stock_reservations SET status = :status WHERE reservation_id IN (:ids)
+     *
+     * @return número de reservas actualizadas
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE StockReservation r SET r.status = :status WHERE r.reservationId IN :ids")
+    int updateStatus(@Param("ids") Collection<String> ids, @Param("status") String status);
+
+    /**
+     * Elimina en una sola sentencia las reservas en los estados indicados
+     * creadas antes de la fecha dada.
+     * SQL generado: DELETE FROM stock_reservations WHERE status IN (:statuses) AND created_at < :before
+     *
+     * @return número de reservas eliminadas
+     */
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.status IN :statuses AND r.createdAt < :before")
+    int deleteByStatusCreatedBefore(@Param("statuses") Collection<String> statuses,
+            @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,82 @@
+package com.relatosdepapel.ms_books_catalogue.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.relatosdepapel.ms_books_catalogue.entity.StockReservation;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Repositorio Wrapper para StockReservation (Capa 2).
+ */
+@Repository // Indica que esta clase es un repositorio
+@RequiredArgsConstructor // Genera constructor con parámetros para inyección de dependencias
+public class StockReservationRepository {
+    private final StockReservationJpaRepository jpaRepository; // Inyección de dependencia del repositorio JPA
+
+    /**
+     * Obtiene y bloquea las reservas indicadas (las que no existen no se
+     * devuelven).
+     */
+    public List<StockReservation> getForUpdate(Collection<String> reservationIds) {
+        return jpaRepository.findForUpdate(reservationIds);
+    }
+
+    /**
+     * Obtiene y bloquea hasta limit reservas activas caducadas, por fecha
+     * límite.
+     */
+    public List<StockReservation> getExpired(LocalDateTime now, int limit) {
+        return jpaRepository.findByStatusAndExpiresAtLessThanEqualOrderByExpiresAtAsc(StockReservation.HELD, now,
+                Limit.of(limit));
+    }
+
+    /**
+     * Guarda varias reservas nuevas.
+     */
+    public void saveAll(List<StockReservation> reservations) {
+        jpaRepository.saveAll(reservations);
+    }
+
+    /**
+     * Cambia el estado de varias reservas.
+     *
+     * @return número de reservas actualizadas
+     */
+    public int updateStatus(Collection<String> reservationIds, String status) {
+        if (reservationIds.isEmpty()) {
+            return 0;
+        }
+        return jpaRepository.updateStatus(reservationIds, status);
+    }
+
+    /**
+     * Elimina las reservas liberadas o caducadas creadas antes de la fecha dada.
+     * Las confirmadas tienen su propia retención (deleteConfirmedBefore): la
+     * cancelación de la compra puede liberarlas más adelante.
+     *
+     * @return número de reservas eliminadas
+     */
+    @Transactional
+    public int deleteClosedBefore(LocalDateTime before) {
+        return jpaRepository.deleteByStatusCreatedBefore(
+                List.of(StockReservation.RELEASED, StockReservation.EXPIRED), before);
+    }
+
+    /**
+     * Elimina las reservas confirmadas creadas antes de la fecha dada. Una
+     * reserva eliminada ya no se puede liberar.
+     *
+     * @return número de reservas eliminadas
+     */
+    @Transactional
+    public int deleteConfirmedBefore(LocalDateTime before) {
+        return jpaRepository.deleteByStatusCreatedBefore(List.of(StockReservation.CONFIRMED), before);
+    }
+}
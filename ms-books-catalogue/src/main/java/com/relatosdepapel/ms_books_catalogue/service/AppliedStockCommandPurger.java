@@ -0,0 +1,37 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.relatosdepapel.ms_books_catalogue.repository.AppliedStockCommandRepository;
+
+/**
+ * Tarea programada que elimina los comandos de stock aplicados hace más de
+ * catalogue.stock-commands.retention. Pasado ese tiempo ya no se esperan
+ * reenvíos del mismo comando.
+ */
+@Component
+public class AppliedStockCommandPurger {
+    private final AppliedStockCommandRepository appliedStockCommandRepository; // Comandos de stock ya aplicados
+    private final Duration retention; // Tiempo que se conserva cada comando
+
+    public AppliedStockCommandPurger(AppliedStockCommandRepository appliedStockCommandRepository,
+            @Value("${catalogue.stock-commands.retention:7d}") Duration retention) {
+        this.appliedStockCommandRepository = appliedStockCommandRepository;
+        this.retention = retention;
+    }
+
+    /**
+     * Elimina en bloque los comandos caducados.
+     *
+     * @return número de comandos eliminados
+     */
+    @Scheduled(fixedDelayString = "${catalogue.stock-commands.purge-interval:1h}")
+    public int purge() {
+        return appliedStockCommandRepository.deleteAppliedBefore(LocalDateTime.now().minus(retention));
+    }
+}
@@ -0,0 +1,520 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.relatosdepapel.ms_books_catalogue.entity.Book;
+import com.relatosdepapel.ms_books_catalogue.repository.BookRepository;
+import com.relatosdepapel.ms_books_catalogue.utils.BkTree;
+import com.relatosdepapel.ms_books_catalogue.utils.TextNormalizer;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Índice invertido de trigramas en memoria de los títulos y autores del
+ * catálogo. Para cada secuencia de 3 caracteres del texto normalizado
+ * (TextNormalizer: minúsculas y sin tildes) guarda los IDs de los libros que
+ * la contienen. Un libro contiene el texto buscado solo si contiene todos sus
+ * trigramas, así que intersectando sus listas se obtienen los candidatos sin
+ * recorrer la tabla con LIKE; después se comprueba cada candidato con
+ * contains sobre su texto normalizado (el resultado es exacto).
+ *
+ * Para la búsqueda tolerante a errores (fuzzy) guarda además las palabras de
+ * títulos y autores con los IDs que las contienen, y un BkTree por campo para
+ * encontrar las palabras parecidas a las buscadas.
+ *
+ * Para ordenar por relevancia guarda cuántas veces aparece cada palabra en el
+ * título, el autor y la categoría de cada libro, con lo que calcula la
+ * puntuación BM25 de los libros que contienen las palabras buscadas.
+ *
+ * Se construye al arrancar (después de cargar data.sql) y BookServiceImpl lo
+ * mantiene al crear, actualizar y eliminar libros. Cada instancia del
+ * catálogo tiene su propio índice, igual que su propia base de datos.
+ */
+@Component
+public class BookSearchIndex implements SmartInitializingSingleton {
+    private static final double K1 = 1.2; // Saturación BM25: cuánto aporta cada repetición de una palabra
+    private static final double B = 0.75; // Normalización BM25 por longitud del campo
+    // orden de relevancia: puntuación, valoración (sin valorar al final) e ID
+    private static final Comparator<ScoredBook> RANKING = Comparator
+            .comparingDouble((ScoredBook scored) -> scored.score).reversed()
+            .thenComparing(scored -> scored.rating, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(scored -> scored.id);
+
+    private final BookRepository bookRepository; // Carga inicial de los libros
+    private final int fuzzyMaxDistance; // Errores máximos por palabra en búsqueda fuzzy
+    private final int fuzzyMaxCandidates; // Palabras parecidas máximas por palabra buscada
+    private final double titleBoost; // Peso del título en la relevancia
+    private final double authorBoost; // Peso del autor en la relevancia
+    private final double categoryBoost; // Peso de la categoría en la relevancia
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(); // Búsquedas concurrentes, escrituras exclusivas
+    private final Map<Long, IndexedBook> books = new HashMap<>(); // Textos normalizados de cada libro
+    private final Map<String, Set<Long>> titleTrigrams = new HashMap<>(); // Trigrama del título → IDs
+    private final Map<String, Set<Long>> authorTrigrams = new HashMap<>(); // Trigrama del autor → IDs
+    private final Map<String, Set<Long>> titleWords = new HashMap<>(); // Palabra del título → IDs
+    private final Map<String, Set<Long>> authorWords = new HashMap<>(); // Palabra del autor → IDs
+    private final Map<String, Set<Long>> categoryWords = new HashMap<>(); // Palabra de la categoría → IDs
+    private long titleLength; // Palabras de todos los títulos (longitud media para BM25)
+    private long authorLength; // Palabras de todos los autores
+    private long categoryLength; // Palabras de todas las categorías
+    private BkTree titleTree = new BkTree(); // Palabras de títulos por distancia de edición
+    private BkTree authorTree = new BkTree(); // Palabras de autores por distancia de edición
+
+    public BookSearchIndex(BookRepository bookRepository,
+            @Value("${catalogue.search.fuzzy.max-distance:2}") int fuzzyMaxDistance,
+            @Value("${catalogue.search.fuzzy.max-candidates:50}") int fuzzyMaxCandidates,
+            @Value("${catalogue.search.relevance.title-boost:3.0}") double titleBoost,
+            @Value("${catalogue.search.relevance.author-boost:2.0}") double authorBoost,
+            @Value("${catalogue.search.relevance.category-boost:1.0}") double categoryBoost) {
+        this.bookRepository = bookRepository;
+        this.fuzzyMaxDistance = fuzzyMaxDistance;
+        this.fuzzyMaxCandidates = fuzzyMaxCandidates;
+        this.titleBoost = titleBoost;
+        this.authorBoost = authorBoost;
+        this.categoryBoost = categoryBoost;
+    }
+
+    /**
+     * Construye el índice cuando ya están creados todos los beans (y cargados
+     * los datos iniciales), antes de que el servidor acepte peticiones.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Vuelve a construir el índice completo a partir de la base de datos.
+     */
+    public void rebuild() {
+        List<Book> all = bookRepository.getAll();
+        lock.writeLock().lock();
+        try {
+            books.clear();
+            titleTrigrams.clear();
+            authorTrigrams.clear();
+            titleWords.clear();
+            authorWords.clear();
+            categoryWords.clear();
+            titleLength = 0;
+            authorLength = 0;
+            categoryLength = 0;
+            titleTree = new BkTree();
+            authorTree = new BkTree();
+            all.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexa un libro nuevo o reemplaza los textos de uno existente.
+     * Si el índice ya tiene una versión más reciente del libro (escrituras
+     * concurrentes que terminan en otro orden) no se modifica.
+     *
+     * @param book Libro guardado (con ID y versión)
+     */
+    public void index(Book book) {
+        lock.writeLock().lock();
+        try {
+            IndexedBook current = books.get(book.getId());
+            if (current != null && book.getVersion() != null && current.version != null
+                    && current.version > book.getVersion()) {
+                return; // versión antigua
+            }
+            remove(book.getId(), current);
+            add(book);
+            compactTrees();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina un libro del índice.
+     *
+     * @param id ID del libro eliminado
+     */
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(id, books.get(id));
+            compactTrees();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los libros cuyo título contiene el texto, sin distinguir mayúsculas
+     * ni tildes ("quij" y "jote de la" encuentran "Don Quijote de la Mancha").
+     *
+     * @param text Texto buscado
+     * @return IDs de los libros que coinciden, o null si el texto es null o
+     *         vacío (no se filtra por título)
+     */
+    public Set<Long> findByTitle(String text) {
+        return find(titleTrigrams, IndexedBook::getTitle, text);
+    }
+
+    /**
+     * Busca los libros cuyo título contiene todas las palabras del texto,
+     * admitiendo errores de escritura en cada una ("quijte" encuentra "Don
+     * Quijote de la Mancha"). Las palabras de hasta 2 letras deben coincidir,
+     * las de 3 a 5 admiten un error y las más largas dos (como mucho
+     * catalogue.search.fuzzy.max-distance).
+     *
+     * @param text Texto buscado
+     * @return IDs de los libros que coinciden, o null si el texto no tiene
+     *         palabras (no se filtra por título)
+     */
+    public Set<Long> findByTitleFuzzy(String text) {
+        return findFuzzy(titleWords, () -> titleTree, text);
+    }
+
+    /**
+     * Busca los libros cuyo autor contiene el texto, con las mismas reglas que
+     * findByTitle.
+     *
+     * @param text Texto buscado
+     * @return IDs de los libros que coinciden, o null si el texto es null o
+     *         vacío (no se filtra por autor)
+     */
+    public Set<Long> findByAuthor(String text) {
+        return find(authorTrigrams, IndexedBook::getAuthor, text);
+    }
+
+    /**
+     * Busca los libros cuyo autor contiene todas las palabras del texto,
+     * admitiendo errores de escritura con las mismas reglas que
+     * findByTitleFuzzy.
+     *
+     * @param text Texto buscado
+     * @return IDs de los libros que coinciden, o null si el texto no tiene
+     *         palabras (no se filtra por autor)
+     */
+    public Set<Long> findByAuthorFuzzy(String text) {
+        return findFuzzy(authorWords, () -> authorTree, text);
+    }
+
+    /**
+     * Ordena por relevancia los libros con alguna palabra del texto en el
+     * título, el autor o la categoría y devuelve los mejores. La puntuación es
+     * BM25 por campo multiplicada por el peso del campo
+     * (catalogue.search.relevance.*): suma más una palabra rara en el catálogo
+     * que una común ("quijote" frente a "de"), repetida en el libro y en un
+     * campo corto. A igual puntuación va antes el libro mejor valorado.
+     *
+     * Solo se guardan los limit mejores en un montículo acotado, sin ordenar
+     * todas las coincidencias.
+     *
+     * @param text       Texto buscado
+     * @param candidates IDs entre los que se busca (null = todos los libros)
+     * @param limit      Número máximo de IDs devueltos
+     * @return IDs de los mejores libros, del más relevante al menos (vacía si el
+     *         texto no tiene palabras)
+     */
+    public List<Long> rank(String text, Set<Long> candidates, int limit) {
+        Set<String> terms = new HashSet<>(TextNormalizer.tokenize(text));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = new HashMap<>();
+            score(scores, terms, candidates, titleWords, IndexedBook::getTitleTerms, titleLength, titleBoost);
+            score(scores, terms, candidates, authorWords, IndexedBook::getAuthorTerms, authorLength, authorBoost);
+            score(scores, terms, candidates, categoryWords, IndexedBook::getCategoryTerms, categoryLength,
+                    categoryBoost);
+            // montículo con el peor de los mejores en la cabeza: cada libro solo compite con limit libros
+            PriorityQueue<ScoredBook> best = new PriorityQueue<>(Math.min(limit, scores.size()) + 1,
+                    RANKING.reversed());
+            scores.forEach((id, score) -> {
+                best.offer(new ScoredBook(id, score, books.get(id).rating));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            });
+            return best.stream().sorted(RANKING).map(scored -> scored.id).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // METODOS HELPERS
+
+    /**
+     * Suma a cada libro la puntuación BM25 de un campo para las palabras
+     * buscadas (con el bloqueo de lectura).
+     */
+    private void score(Map<Long, Double> scores, Set<String> terms, Set<Long> candidates,
+            Map<String, Set<Long>> words, Function<IndexedBook, Terms> field, long totalLength, double boost) {
+        if (boost <= 0 || books.isEmpty()) {
+            return;
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / books.size());
+        for (String term : terms) {
+            Set<Long> ids = words.get(term);
+            if (ids == null) {
+                continue;
+            }
+            // IDF: las palabras presentes en muchos libros apenas distinguen unos de otros
+            double idf = Math.log(1 + (books.size() - ids.size() + 0.5) / (ids.size() + 0.5));
+            // recorrer el conjunto más pequeño: los candidatos o los libros con la palabra
+            Set<Long> scored = candidates != null && candidates.size() < ids.size() ? candidates : ids;
+            for (Long id : scored) {
+                boolean matches = scored == ids ? candidates == null || candidates.contains(id) : ids.contains(id);
+                if (!matches) {
+                    continue;
+                }
+                Terms bookTerms = field.apply(books.get(id));
+                int frequency = bookTerms.counts.get(term);
+                double norm = K1 * (1 - B + B * bookTerms.length / averageLength);
+                scores.merge(id, boost * idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+            }
+        }
+    }
+
+    /**
+     * Obtiene los libros cuyo campo contiene el texto: intersecta las listas de
+     * sus trigramas, empezando por la más corta, y comprueba cada candidato.
+     * Los textos de menos de 3 caracteres no tienen trigramas y se comprueban
+     * contra todos los libros (en memoria).
+     */
+    private Set<Long> find(Map<String, Set<Long>> trigrams, Function<IndexedBook, String> field, String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        String query = TextNormalizer.normalize(text);
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates;
+            Set<String> queryTrigrams = trigrams(query);
+            if (queryTrigrams.isEmpty()) {
+                candidates = books.keySet();
+            } else {
+                List<Set<Long>> postings = new ArrayList<>();
+                for (String trigram : queryTrigrams) {
+                    Set<Long> ids = trigrams.get(trigram);
+                    if (ids == null) {
+                        return new HashSet<>(); // algún trigrama no aparece en ningún libro
+                    }
+                    postings.add(ids);
+                }
+                postings.sort(Comparator.comparingInt(Set::size));
+                candidates = new HashSet<>(postings.get(0));
+                for (int i = 1; i < postings.size() && !candidates.isEmpty(); i++) {
+                    candidates.retainAll(postings.get(i));
+                }
+            }
+            // los trigramas pueden estar en otro orden: confirmar que el texto aparece seguido
+            Set<Long> result = new HashSet<>();
+            for (Long id : candidates) {
+                if (field.apply(books.get(id)).contains(query)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene los libros con palabras parecidas a todas las del texto: para
+     * cada palabra buscada se toman del árbol las fuzzyMaxCandidates palabras
+     * indexadas más cercanas y se unen sus listas; después se intersectan las
+     * de todas las palabras. El árbol deja de recorrer las ramas que no pueden
+     * mejorar las fuzzyMaxCandidates ya encontradas, así que una palabra
+     * parecida a muchas (o idéntica a una) no compara con todas ellas.
+     */
+    private Set<Long> findFuzzy(Map<String, Set<Long>> words, Supplier<BkTree> tree, String text) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Set<Long> result = null;
+            for (String token : new HashSet<>(tokens)) {
+                Set<Long> matches = new HashSet<>();
+                // el arbol conserva palabras de libros ya eliminados: solo valen las que siguen indexadas
+                for (String word : tree.get().search(token, maxDistance(token), fuzzyMaxCandidates,
+                        words::containsKey)) {
+                    matches.addAll(words.get(word));
+                }
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.retainAll(matches);
+                }
+                if (result.isEmpty()) {
+                    break; // alguna palabra no se parece a ninguna del campo
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Errores admitidos en una palabra según su longitud: en las palabras
+     * cortas un error ya las convierte en otra ("sol" y "son").
+     */
+    private int maxDistance(String token) {
+        int distance = token.length() <= 2 ? 0 : token.length() <= 5 ? 1 : 2;
+        return Math.min(distance, fuzzyMaxDistance);
+    }
+
+    /**
+     * Reconstruye los árboles de palabras cuando más de la mitad de sus
+     * palabras ya no está en ningún libro (el árbol no admite borrados).
+     */
+    private void compactTrees() {
+        if (titleTree.size() > 2 * titleWords.size()) {
+            titleTree = tree(titleWords);
+        }
+        if (authorTree.size() > 2 * authorWords.size()) {
+            authorTree = tree(authorWords);
+        }
+    }
+
+    /**
+     * Construye un árbol con las palabras indexadas de un campo.
+     */
+    private static BkTree tree(Map<String, Set<Long>> words) {
+        BkTree tree = new BkTree();
+        words.keySet().forEach(tree::add);
+        return tree;
+    }
+
+    /**
+     * Añade los textos de un libro al índice (con el bloqueo de escritura).
+     */
+    private void add(Book book) {
+        IndexedBook indexed = new IndexedBook(book.getVersion(), TextNormalizer.normalize(book.getTitle()),
+                TextNormalizer.normalize(book.getAuthor()), book.getRating(), Terms.of(book.getTitle()),
+                Terms.of(book.getAuthor()), Terms.of(book.getCategory()));
+        books.put(book.getId(), indexed);
+        trigrams(indexed.title).forEach(trigram -> titleTrigrams.computeIfAbsent(trigram, t -> new HashSet<>())
+                .add(book.getId()));
+        trigrams(indexed.author).forEach(trigram -> authorTrigrams.computeIfAbsent(trigram, t -> new HashSet<>())
+                .add(book.getId()));
+        indexed.titleTerms.counts.keySet().forEach(word -> addWord(titleWords, titleTree, word, book.getId()));
+        indexed.authorTerms.counts.keySet().forEach(word -> addWord(authorWords, authorTree, word, book.getId()));
+        indexed.categoryTerms.counts.keySet().forEach(word -> categoryWords.computeIfAbsent(word, w -> new HashSet<>())
+                .add(book.getId()));
+        titleLength += indexed.titleTerms.length;
+        authorLength += indexed.authorTerms.length;
+        categoryLength += indexed.categoryTerms.length;
+    }
+
+    /**
+     * Añade un ID a la lista de una palabra y la palabra a su árbol si es nueva.
+     */
+    private void addWord(Map<String, Set<Long>> words, BkTree tree, String word, Long id) {
+        words.computeIfAbsent(word, w -> {
+            tree.add(w);
+            return new HashSet<>();
+        }).add(id);
+    }
+
+    /**
+     * Quita los textos de un libro del índice (con el bloqueo de escritura).
+     */
+    private void remove(Long id, IndexedBook indexed) {
+        if (indexed == null) {
+            return;
+        }
+        books.remove(id);
+        trigrams(indexed.title).forEach(trigram -> removePosting(titleTrigrams, trigram, id));
+        trigrams(indexed.author).forEach(trigram -> removePosting(authorTrigrams, trigram, id));
+        indexed.titleTerms.counts.keySet().forEach(word -> removePosting(titleWords, word, id));
+        indexed.authorTerms.counts.keySet().forEach(word -> removePosting(authorWords, word, id));
+        indexed.categoryTerms.counts.keySet().forEach(word -> removePosting(categoryWords, word, id));
+        titleLength -= indexed.titleTerms.length;
+        authorLength -= indexed.authorTerms.length;
+        categoryLength -= indexed.categoryTerms.length;
+    }
+
+    /**
+     * Quita un ID de la lista de un trigrama o palabra y la elimina si queda
+     * vacía.
+     */
+    private void removePosting(Map<String, Set<Long>> postings, String key, Long id) {
+        Set<Long> ids = postings.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    /**
+     * Obtiene los trigramas distintos de un texto normalizado
+     * ("quijote" → qui, uij, ijo, jot, ote).
+     */
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Textos normalizados de un libro y versión de la que se obtuvieron.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class IndexedBook {
+        private final Long version; // Versión del libro indexada
+        private final String title; // Título normalizado
+        private final String author; // Autor normalizado
+        private final Integer rating; // Valoración (desempate por relevancia)
+        private final Terms titleTerms; // Palabras del título
+        private final Terms authorTerms; // Palabras del autor
+        private final Terms categoryTerms; // Palabras de la categoría
+    }
+
+    /**
+     * Palabras de un campo con sus repeticiones y número total de palabras.
+     */
+    @AllArgsConstructor
+    private static final class Terms {
+        private final Map<String, Integer> counts; // Palabra → veces que aparece
+        private final int length; // Palabras del campo (con repetidas)
+
+        private static Terms of(String text) {
+            List<String> tokens = TextNormalizer.tokenize(text);
+            Map<String, Integer> counts = new HashMap<>();
+            tokens.forEach(token -> counts.merge(token, 1, Integer::sum));
+            return new Terms(counts, tokens.size());
+        }
+    }
+
+    /**
+     * Libro puntuado en el ranking por relevancia.
+     */
+    @AllArgsConstructor
+    private static final class ScoredBook {
+        private final Long id; // ID del libro
+        private final double score; // Puntuación BM25
+        private final Integer rating; // Valoración (desempate)
+    }
+}
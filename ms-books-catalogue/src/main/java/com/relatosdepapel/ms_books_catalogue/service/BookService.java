@@ -2,13 +2,20 @@ package com.relatosdepapel.ms_books_catalogue.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.relatosdepapel.ms_books_catalogue.dto.AvailabilityResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookPageDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookPatchDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookStockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookSuggestionDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.StockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.exception.BookNotFoundException;
 
 /**
  * Interface del servicio de libros.
@@ -18,9 +25,15 @@ public interface BookService {
     // METODOS CRUD
 
     /**
-     * Obtiene todos los libros (sin filtros).
+     * Obtiene una página de libros visibles (paginación keyset).
+     * 
+     * @param cursor Cursor devuelto por la página anterior (null para la primera)
+     * @param limit  Tamaño de página (null para el valor por defecto)
+     * @param sort   Columna de ordenación: id, title, author o price (null = id)
+     * @return BookPageDTO con los libros y el cursor de la página siguiente
+     * @throws IllegalArgumentException si el cursor o el orden no son válidos
      */
-    List<BookResponseDTO> getAll();
+    BookPageDTO getAll(String cursor, Integer limit, String sort);
 
     /**
      * Busca un libro por ID.
@@ -76,14 +89,46 @@ public interface BookService {
      * @param publicationDateFrom Fecha de publicación desde (>=)
      * @param publicationDateTo   Fecha de publicación hasta (<=)
      * @param minStock            Stock mínimo (>=)
-     * @return Lista de libros que cumplen los filtros (vacía si no hay resultados)
+     * @param cursor              Cursor de la página anterior (null para la primera)
+     * @param limit               Tamaño de página (null para el valor por defecto)
+     * @param sort                Columna de ordenación: id, title, author, price o
+     *                            relevance (con q)
+     * @param fuzzy               true para admitir errores de escritura en las
+     *                            palabras de título y autor (null o false = texto
+     *                            contenido exacto)
+     * @param q                   Texto libre: devuelve los libros con alguna de
+     *                            sus palabras en título, autor o categoría,
+     *                            ordenados por relevancia (solo los limit
+     *                            mejores, sin cursor)
+     * @return Página de libros que cumplen los filtros (vacía si no hay resultados)
+     * @throws IllegalArgumentException si el cursor o el orden no son válidos, o
+     *                                  se pide orden por relevancia sin q
      */
-    List<BookResponseDTO> search(String title, String author, String category, String isbn, Integer ratingMin,
+    BookPageDTO search(String title, String author, String category, String isbn, Integer ratingMin,
             Integer ratingMax, Boolean visible, BigDecimal minPrice, BigDecimal maxPrice, LocalDate publicationDateFrom,
-            LocalDate publicationDateTo, Integer minStock);
+            LocalDate publicationDateTo, Integer minStock, String cursor, Integer limit, String sort,
+            Boolean fuzzy, String q);
+
+    /**
+     * Sugerencias de autocompletado para el buscador: títulos, autores y
+     * categorías de libros visibles con alguna palabra que empieza por el texto.
+     * 
+     * @param query Texto escrito hasta ahora (sin distinguir mayúsculas ni tildes)
+     * @param limit Número máximo de sugerencias (null para el máximo)
+     * @return Sugerencias ordenadas por valoración (vacía si no hay texto)
+     */
+    List<BookSuggestionDTO> suggest(String query, Integer limit);
 
     // METODOS ESPECIALES
 
+    /**
+     * Recorre todos los libros visibles en streaming, entregándolos uno a uno.
+     * Usado para exportar el catálogo completo sin cargarlo en memoria.
+     * 
+     * @param consumer Recibe cada libro en orden de ID
+     */
+    void exportVisible(Consumer<BookResponseDTO> consumer);
+
     /**
      * Verifica la disponibilidad de un libro.
      * Retorna información sobre si el libro existe, está visible y tiene stock.
@@ -92,6 +137,14 @@ public interface BookService {
      */
     AvailabilityResponseDTO checkAvailability(Long id);
 
+    /**
+     * Verifica la disponibilidad de varios libros a la vez.
+     * 
+     * @param ids IDs de los libros
+     * @return Mapa ID → AvailabilityResponseDTO (los IDs inexistentes se omiten)
+     */
+    Map<Long, AvailabilityResponseDTO> checkAvailability(Collection<Long> ids);
+
     /**
      * Actualiza el stock de un libro.
      * Puede incrementar (quantity > 0) o decrementar (quantity < 0).
@@ -101,4 +154,14 @@ public interface BookService {
      * @throws IllegalArgumentException si el stock resultante sería negativo
      */
     BookResponseDTO updateStock(Long id, StockUpdateDTO dto);
+
+    /**
+     * Actualiza el stock de varios libros en una sola transacción.
+     * Si alguna línea falla no se aplica ningún cambio.
+     * 
+     * @param updates Libros y cantidades a sumar/restar
+     * @throws BookNotFoundException    si algún libro no existe
+     * @throws IllegalArgumentException si algún stock resultante sería negativo
+     */
+    void updateStock(List<BookStockUpdateDTO> updates);
 }
@@ -2,19 +2,50 @@ package com.relatosdepapel.ms_books_catalogue.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.retry.RetryTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.relatosdepapel.ms_books_catalogue.config.CacheConfig;
 import com.relatosdepapel.ms_books_catalogue.dto.AvailabilityResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookPageDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookPatchDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookStockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookSuggestionDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.StockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.entity.AppliedStockCommand;
 import com.relatosdepapel.ms_books_catalogue.entity.Book;
+import com.relatosdepapel.ms_books_catalogue.exception.BookNotFoundException;
+import com.relatosdepapel.ms_books_catalogue.repository.AppliedStockCommandRepository;
 import com.relatosdepapel.ms_books_catalogue.repository.BookRepository;
 import org.springframework.data.jpa.domain.Specification;
 import com.relatosdepapel.ms_books_catalogue.specification.BookSpecification;
+import com.relatosdepapel.ms_books_catalogue.utils.BookCursor;
+import com.relatosdepapel.ms_books_catalogue.utils.Consts;
 
 import lombok.RequiredArgsConstructor;
 
@@ -25,21 +56,31 @@ import lombok.RequiredArgsConstructor;
 @Service // Indica que es un servicio
 @RequiredArgsConstructor // Inyección de dependencias sin constructor
 public class BookServiceImpl implements BookService {
+    private static final int DEFAULT_PAGE_SIZE = 50; // Tamaño de página por defecto
+    private static final int MAX_PAGE_SIZE = 200; // Tamaño de página máximo permitido
+    private static final int IN_CLAUSE_SIZE = 1000; // Máximo de IDs por cláusula IN
+
     private final BookRepository bookRepository; // Dependencia del repositorio
+    private final RetryTemplate bookWriteRetryTemplate; // Reintentos ante conflictos de versión
+    private final CacheManager cacheManager; // Acceso programático a la cache de disponibilidad
+    private final AppliedStockCommandRepository appliedStockCommandRepository; // Comandos de stock ya aplicados
+    private final BookSearchIndex bookSearchIndex; // Índice de títulos y autores para las búsquedas por texto
+    private final BookSuggester bookSuggester; // Sugerencias de autocompletado
 
     // METODOS CRUD
 
     /**
-     * Obtiene todos los libros del catálogo.
+     * Obtiene una página de libros visibles del catálogo.
      * 
-     * @return Lista de todos los libros como BookResponseDTO
+     * @param cursor Cursor de la página anterior (null para la primera)
+     * @param limit  Tamaño de página
+     * @param sort   Columna de ordenación
+     * @return BookPageDTO con los libros y el cursor siguiente
      */
     @Override
-    public List<BookResponseDTO> getAll() {
+    public BookPageDTO getAll(String cursor, Integer limit, String sort) {
         // devolver solo libros visibles
-        return bookRepository.findVisibleBooks().stream()
-                .map(this::toResponseDTO)
-                .toList();
+        return findPage(BookSpecification.isVisible(true), null, cursor, limit, sort);
     }
 
     /**
@@ -74,6 +115,8 @@ public class BookServiceImpl implements BookService {
         Book book = toEntity(dto);
         // guardar el libro
         Book savedBook = bookRepository.save(book);
+        // indexar el libro para las busquedas y sugerencias
+        indexBook(savedBook);
         // convertir la entidad a DTO y devolverlo
         return toResponseDTO(savedBook);
     }
@@ -81,67 +124,44 @@ public class BookServiceImpl implements BookService {
     /**
      * Actualiza un libro existente (PUT - actualización completa).
      * Actualiza todos los campos excepto ID e ISBN.
+     * Si otra instancia modificó el libro entre la lectura y la escritura, se
+     * vuelve a leer y se reintenta según bookWriteRetryTemplate.
      * 
      * @param id  ID del libro a actualizar
      * @param dto Nuevos datos del libro
      * @return BookResponseDTO actualizado o null si no existe
+     * @throws OptimisticLockingFailureException si se agotan los reintentos
      */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.BOOK_AVAILABILITY, key = "#id") // invalida la disponibilidad cacheada
     public BookResponseDTO update(Long id, BookRequestDTO dto) {
-        Book book = bookRepository.getById(id); // buscar el libro por ID
-        if (book == null) {
-            return null; // si no existe, devolver null
-        }
-        book.updateFromDTO(dto); // actualizar el libro con los datos del DTO
-        Book updatedBook = bookRepository.save(book); // guardar el libro actualizado
-        return toResponseDTO(updatedBook); // convertir la entidad a DTO y devolverlo
+        return bookWriteRetryTemplate.invoke(() -> {
+            Book book = bookRepository.getById(id); // buscar el libro por ID
+            if (book == null) {
+                return null; // si no existe, devolver null
+            }
+            book.updateFromDTO(dto); // actualizar el libro con los datos del DTO
+            Book updatedBook = bookRepository.save(book); // guardar (falla si la versión cambió)
+            indexBook(updatedBook); // reindexar para las busquedas y sugerencias
+            return toResponseDTO(updatedBook); // convertir la entidad a DTO y devolverlo
+        });
     }
 
     /**
      * Actualiza parcialmente un libro existente (PATCH - actualización selectiva).
      * Solo actualiza los campos proporcionados en el DTO.
+     * Ante un conflicto de versión se relee el libro y se vuelve a aplicar el
+     * parche según bookWriteRetryTemplate.
      * 
      * @param id  ID del libro a actualizar
      * @param dto Campos a actualizar (solo los proporcionados)
      * @return BookResponseDTO actualizado o null si no existe
+     * @throws OptimisticLockingFailureException si se agotan los reintentos
      */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.BOOK_AVAILABILITY, key = "#id") // invalida la disponibilidad cacheada
     public BookResponseDTO patch(Long id, BookPatchDTO dto) {
-        // busca libro por ID
-        Book book = bookRepository.getById(id);
-        // si no existe retornar null
-        if (book == null) {
-            return null;
-        }
-        // actualizar campos opcionales
-        if (dto.getTitle() != null) {
-            book.setTitle(dto.getTitle());
-        }
-        if (dto.getAuthor() != null) {
-            book.setAuthor(dto.getAuthor());
-        }
-        if (dto.getPublicationDate() != null) {
-            book.setPublicationDate(dto.getPublicationDate());
-        }
-        if (dto.getCategory() != null) {
-            book.setCategory(dto.getCategory());
-        }
-        if (dto.getRating() != null) {
-            book.setRating(dto.getRating());
-        }
-        if (dto.getVisible() != null) {
-            book.setVisible(dto.getVisible());
-        }
-        if (dto.getStock() != null) {
-            book.setStock(dto.getStock());
-        }
-        if (dto.getPrice() != null) {
-            book.setPrice(dto.getPrice());
-        }
-        // guardar el libro actualizado
-        Book patchedBook = bookRepository.save(book);
-        // convertir la entidad a DTO y devolverlo
-        return toResponseDTO(patchedBook);
+        return bookWriteRetryTemplate.invoke(() -> applyPatch(id, dto));
     }
 
     /**
@@ -151,6 +171,7 @@ public class BookServiceImpl implements BookService {
      * @return true si se eliminó, false si no existía
      */
     @Override
+    @CacheEvict(cacheNames = CacheConfig.BOOK_AVAILABILITY, key = "#id") // invalida la disponibilidad cacheada
     public boolean delete(Long id) {
         // busca libro por ID
         Book book = bookRepository.getById(id);
@@ -160,6 +181,9 @@ public class BookServiceImpl implements BookService {
         }
         // eliminar el libro
         bookRepository.delete(book);
+        // quitar el libro de las busquedas y sugerencias
+        bookSearchIndex.remove(id);
+        bookSuggester.remove(id, book.getVersion());
         // retornar true
         return true;
     }
@@ -169,9 +193,13 @@ public class BookServiceImpl implements BookService {
     /**
      * Búsqueda dinámica de libros con múltiples filtros opcionales.
      * Los filtros se combinan con AND (todos deben cumplirse).
+     * Los filtros de título y autor se resuelven con BookSearchIndex a un
+     * conjunto de IDs candidatos antes de consultar la base de datos.
      * 
-     * @param title               Filtro por título (parcial, case-insensitive)
-     * @param author              Filtro por autor (parcial, case-insensitive)
+     * @param title               Filtro por título (parcial, sin distinguir
+     *                            mayúsculas ni tildes)
+     * @param author              Filtro por autor (parcial, sin distinguir
+     *                            mayúsculas ni tildes)
      * @param category            Filtro por categoría (exacto)
      * @param isbn                Filtro por ISBN (exacto)
      * @param ratingMin           Rating mínimo
@@ -182,23 +210,28 @@ public class BookServiceImpl implements BookService {
      * @param publicationDateFrom Fecha de publicación desde
      * @param publicationDateTo   Fecha de publicación hasta
      * @param minStock            Stock mínimo
-     * @return Lista de libros que cumplen todos los filtros aplicados
+     * @param cursor              Cursor de la página anterior
+     * @param limit               Tamaño de página
+     * @param sort                Columna de ordenación
+     * @param fuzzy               Búsqueda de título y autor tolerante a errores
+     * @param q                   Texto libre ordenado por relevancia
+     * @return Página de libros que cumplen todos los filtros aplicados
      */
     @Override
-    public List<BookResponseDTO> search(String title, String author, String category, String isbn, Integer ratingMin,
+    public BookPageDTO search(String title, String author, String category, String isbn, Integer ratingMin,
             Integer ratingMax, Boolean visible, BigDecimal minPrice, BigDecimal maxPrice, LocalDate publicationDateFrom,
-            LocalDate publicationDateTo, Integer minStock) {
+            LocalDate publicationDateTo, Integer minStock, String cursor, Integer limit, String sort,
+            Boolean fuzzy, String q) {
         // crear specification base vacio
         Specification<Book> spec = (root, query, criteriaBuilder) -> null;
         // agregar filtros segun parametros proporcionados
 
-        // filtro por titulo - busqueda parcial
-        if (title != null) {
-            spec = spec.and(BookSpecification.titleContains(title));
-        }
-        // filtro por autor - busqueda parcial
-        if (author != null) {
-            spec = spec.and(BookSpecification.authorContains(author));
+        // filtros por titulo y autor - IDs candidatos del indice de busqueda (palabras parecidas si es fuzzy)
+        Set<Long> candidates = Boolean.TRUE.equals(fuzzy)
+                ? intersect(bookSearchIndex.findByTitleFuzzy(title), bookSearchIndex.findByAuthorFuzzy(author))
+                : intersect(bookSearchIndex.findByTitle(title), bookSearchIndex.findByAuthor(author));
+        if (candidates != null && candidates.isEmpty()) {
+            return new BookPageDTO(List.of(), null); // ningun libro coincide, no se consulta la base de datos
         }
         // filtro por categoria - busqueda exacta
         if (category != null) {
@@ -240,25 +273,58 @@ public class BookServiceImpl implements BookService {
         if (minStock != null) {
             spec = spec.and(BookSpecification.stockGreaterThanOrEqual(minStock));
         }
-        // ejecutar busqueda
-        List<Book> books = bookRepository.search(spec);
-        // convertir a DTO y retornar
-        return books.stream()
-                .map(this::toResponseDTO)
-                .toList();
+        // texto libre - mejores resultados por relevancia
+        if (q != null && !q.isBlank() || Consts.RELEVANCE.equals(sort)) {
+            return findRelevant(spec, candidates, q, cursor, limit, sort);
+        }
+        // ejecutar busqueda paginada (restringida a los candidatos del indice)
+        return findPage(spec, candidates, cursor, limit, sort);
+    }
+
+    /**
+     * Obtiene sugerencias de autocompletado (títulos, autores y categorías).
+     * Se resuelven en memoria con BookSuggester, sin consultar la base de datos.
+     * 
+     * @param query Texto escrito hasta ahora (la última palabra puede estar
+     *              incompleta)
+     * @param limit Número máximo de sugerencias
+     * @return Sugerencias ordenadas por valoración
+     */
+    @Override
+    public List<BookSuggestionDTO> suggest(String query, Integer limit) {
+        return bookSuggester.suggest(query, limit);
     }
 
     // METODOS ESPECIALES
 
+    /**
+     * Exporta los libros visibles en streaming.
+     * La transacción de solo lectura mantiene abierto el cursor JDBC mientras
+     * el consumidor escribe cada libro.
+     * 
+     * @param consumer Recibe cada libro en orden de ID
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportVisible(Consumer<BookResponseDTO> consumer) {
+        try (Stream<BookResponseDTO> books = bookRepository.streamVisibleBooks()) {
+            books.forEach(consumer);
+        }
+    }
+
     /**
      * Verifica la disponibilidad de un libro para compra.
      * Un libro está disponible si es visible Y tiene stock.
+     * El resultado se guarda en la cache bookAvailability (tamaño y TTL
+     * acotados) y se invalida en update, patch, updateStock y delete; los
+     * libros inexistentes no se cachean.
      * 
      * @param id ID del libro a verificar
      * @return AvailabilityResponseDTO con info de disponibilidad, o null si no
      *         existe
      */
     @Override
+    @Cacheable(cacheNames = CacheConfig.BOOK_AVAILABILITY, key = "#id", unless = "#result == null") // read-through
     public AvailabilityResponseDTO checkAvailability(Long id) {
         // busca libro por ID
         Book book = bookRepository.getById(id);
@@ -266,21 +332,55 @@ public class BookServiceImpl implements BookService {
         if (book == null) {
             return null;
         }
-        // verificar disponibilidad
-        boolean available = book.getVisible() && book.getStock() > 0;
-        // retornar AvailabilityResponseDTO
-        return new AvailabilityResponseDTO(
-                book.getId(),
-                book.getTitle(),
-                book.getIsbn(),
-                available, // available calculado en base a visible y stock
-                book.getVisible(),
-                book.getStock(),
-                book.getPrice());
+        // convertir a AvailabilityResponseDTO
+        return toAvailabilityDTO(book);
+    }
+
+    /**
+     * Verifica la disponibilidad de varios libros.
+     * Reutiliza las entradas de la cache bookAvailability y resuelve el resto
+     * con una sola consulta WHERE id IN (...), guardando el resultado en la
+     * cache.
+     * 
+     * @param ids IDs de los libros a verificar
+     * @return Mapa ID → disponibilidad, en el orden de los IDs recibidos
+     */
+    @Override
+    public Map<Long, AvailabilityResponseDTO> checkAvailability(Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(CacheConfig.BOOK_AVAILABILITY);
+        Map<Long, AvailabilityResponseDTO> result = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        // buscar primero en la cache
+        for (Long id : ids) {
+            AvailabilityResponseDTO cached = cache.get(id, AvailabilityResponseDTO.class);
+            if (cached != null) {
+                result.put(id, cached);
+            } else {
+                result.put(id, null); // reservar la posición para mantener el orden
+                misses.add(id);
+            }
+        }
+        // cargar los que faltan en una sola consulta
+        if (!misses.isEmpty()) {
+            for (Book book : bookRepository.getAllById(misses)) {
+                AvailabilityResponseDTO availability = toAvailabilityDTO(book);
+                cache.put(book.getId(), availability);
+                result.put(book.getId(), availability);
+            }
+        }
+        // omitir los libros que no existen
+        result.values().removeIf(availability -> availability == null);
+        return result;
     }
 
     /**
      * Actualiza el stock de un libro.
+     * El cambio se aplica con un UPDATE condicional en base de datos, sin cargar
+     * la entidad, para que compras concurrentes no sobrevendan ni pisen
+     * actualizaciones entre réplicas del catálogo. Al no leer antes de escribir
+     * no puede haber conflictos de versión, por lo que no necesita reintentos;
+     * la sentencia incrementa la versión para que un PUT/PATCH concurrente sí
+     * detecte el cambio. La disponibilidad cacheada se invalida tras el commit.
      * 
      * @param id  ID del libro
      * @param dto Cantidad a sumar (positivo) o restar (negativo)
@@ -288,30 +388,344 @@ public class BookServiceImpl implements BookService {
      * @throws IllegalArgumentException si el stock resultante sería negativo
      */
     @Override
+    @Transactional
     public BookResponseDTO updateStock(Long id, StockUpdateDTO dto) {
+        // aplicar el cambio de stock de forma atómica
+        boolean updated = bookRepository.adjustStock(id, dto.getQuantity());
+        if (!updated) {
+            // si no se actualizó ninguna fila, distinguir libro inexistente de stock
+            // insuficiente
+            if (!bookRepository.existsById(id)) {
+                return null;
+            }
+            throw new IllegalArgumentException("El stock resultante no puede ser negativo. Cantidad a restar: "
+                    + dto.getQuantity());
+        }
+        evictAvailabilityAfterCommit(List.of(id));
+        // leer el libro actualizado y convertirlo a DTO
+        return toResponseDTO(bookRepository.getById(id));
+    }
+
+    /**
+     * Actualiza el stock de varios libros en una sola transacción con
+     * sentencias sobre conjuntos:
+     * 0. Se descartan las líneas cuyo commandId ya se aplicó (reenvíos).
+     * 1. Se agrupan las líneas por libro (sumando cantidades repetidas).
+     * 2. Una consulta lee el stock de todos los libros y valida que existan y
+     * que ninguno quede negativo.
+     * 3. Un UPDATE condicional por cada cantidad distinta aplica el cambio a
+     * todos los libros con esa cantidad. Si alguno no se actualiza (otra
+     * operación cambió su stock entre medias) se revierte todo.
+     * 4. La disponibilidad cacheada de los libros se invalida tras el commit.
+     * 
+     * @param updates Libros y cantidades a sumar/restar
+     * @throws BookNotFoundException    si algún libro no existe
+     * @throws IllegalArgumentException si algún stock resultante sería negativo
+     */
+    @Override
+    @Transactional
+    public void updateStock(List<BookStockUpdateDTO> updates) {
+        // 0. Descartar comandos ya aplicados (y repetidos en la misma petición)
+        List<String> commandIds = updates.stream()
+                .map(BookStockUpdateDTO::getCommandId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Set<String> skipped = new HashSet<>();
+        for (List<String> chunk : chunks(commandIds)) {
+            skipped.addAll(appliedStockCommandRepository.getAppliedIds(chunk));
+        }
+        List<AppliedStockCommand> applied = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        // 1. Cantidad neta por libro
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (BookStockUpdateDTO update : updates) {
+            if (update.getCommandId() != null) {
+                if (!skipped.add(update.getCommandId())) {
+                    continue;
+                }
+                applied.add(new AppliedStockCommand(update.getCommandId(), now));
+            }
+            deltas.merge(update.getBookId(), update.getQuantity(), Integer::sum);
+        }
+        // registrar los comandos en la misma transacción que el cambio de stock
+        appliedStockCommandRepository.saveAll(applied);
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // 2. Validar existencia y stock suficiente con una sola lectura
+        Map<Long, Integer> stock = new HashMap<>();
+        for (List<Long> chunk : chunks(deltas.keySet())) {
+            stock.putAll(bookRepository.getStockById(chunk));
+        }
+        List<Long> missing = deltas.keySet().stream()
+                .filter(id -> !stock.containsKey(id))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new BookNotFoundException("Los libros con ID " + missing + " no existen");
+        }
+        List<Long> insufficient = deltas.entrySet().stream()
+                .filter(e -> stock.get(e.getKey()) + e.getValue() < 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!insufficient.isEmpty()) {
+            throw new IllegalArgumentException("Stock insuficiente para los libros con ID " + insufficient);
+        }
+
+        // 3. Un UPDATE condicional por cada cantidad distinta
+        Map<Integer, List<Long>> idsByDelta = new LinkedHashMap<>();
+        deltas.forEach((id, delta) -> idsByDelta.computeIfAbsent(delta, d -> new ArrayList<>()).add(id));
+        idsByDelta.forEach((delta, ids) -> {
+            for (List<Long> chunk : chunks(ids)) {
+                if (bookRepository.adjustStock(chunk, delta) != chunk.size()) {
+                    // el stock cambió después de validarlo: revertir toda la transacción
+                    throw new IllegalArgumentException("Stock insuficiente para alguno de los libros con ID " + chunk);
+                }
+            }
+        });
+
+        // 4. Invalidar la disponibilidad cacheada
+        evictAvailabilityAfterCommit(deltas.keySet());
+    }
+
+    // METODOS HELPERS
+
+    /**
+     * Invalida la disponibilidad cacheada de los libros cuando la transacción
+     * en curso confirma. Si se invalidara antes, una consulta concurrente
+     * podría volver a cachear el stock anterior al commit hasta que caduque la
+     * entrada. Sin transacción activa se invalida al momento.
+     */
+    private void evictAvailabilityAfterCommit(Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(CacheConfig.BOOK_AVAILABILITY);
+        List<Long> evicted = List.copyOf(ids);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evicted.forEach(cache::evict);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evicted.forEach(cache::evict);
+            }
+        });
+    }
+
+    /**
+     * Divide una colección de IDs en bloques de como máximo IN_CLAUSE_SIZE
+     * elementos para no superar el tamaño de la cláusula IN.
+     */
+    private <T> List<List<T>> chunks(Collection<T> ids) {
+        List<T> list = new ArrayList<>(ids);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += IN_CLAUSE_SIZE) {
+            chunks.add(list.subList(i, Math.min(i + IN_CLAUSE_SIZE, list.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Actualiza un libro guardado en el índice de búsqueda y en las sugerencias.
+     */
+    private void indexBook(Book book) {
+        bookSearchIndex.index(book);
+        bookSuggester.index(book);
+    }
+
+    /**
+     * Intersecta dos conjuntos de IDs candidatos (null = sin filtro).
+     */
+    private Set<Long> intersect(Set<Long> first, Set<Long> second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        first.retainAll(second);
+        return first;
+    }
+
+    /**
+     * Obtiene una página de libros por keyset sobre (sortKey, id).
+     * Pide un libro más que el tamaño de página para saber si hay página
+     * siguiente sin ejecutar un COUNT.
+     * 
+     * @param spec       Filtros de la búsqueda
+     * @param candidates IDs candidatos del índice de búsqueda (null = sin
+     *                   filtro por ID)
+     * @param cursor     Cursor de la página anterior (null para la primera)
+     * @param limit      Tamaño de página (se acota a MAX_PAGE_SIZE)
+     * @param sort       Columna de ordenación (null usa la del cursor o id)
+     * @return BookPageDTO con los libros y el cursor siguiente
+     * @throws IllegalArgumentException si el cursor o el orden no son válidos
+     */
+    private BookPageDTO findPage(Specification<Book> spec, Set<Long> candidates, String cursor, Integer limit,
+            String sort) {
+        // decodificar el cursor de la página anterior
+        BookCursor after = cursor == null || cursor.isEmpty() ? null : BookCursor.decode(cursor);
+        // resolver la columna de ordenación
+        String sortKey = sort != null && !sort.isEmpty() ? sort : after != null ? after.getSortKey() : Consts.ID;
+        if (!BookCursor.SORT_KEYS.contains(sortKey)) {
+            throw new IllegalArgumentException("Orden no soportado: " + sortKey);
+        }
+        if (after != null && !after.getSortKey().equals(sortKey)) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado");
+        }
+        // acotar el tamaño de página
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        // orden estable: columna de ordenación y luego id
+        Sort order = Consts.ID.equals(sortKey) ? Sort.by(Consts.ID) : Sort.by(sortKey, Consts.ID);
+        // pedir un elemento extra para detectar si hay más páginas
+        Specification<Book> pageSpec = spec.and(BookSpecification.keysetAfter(after));
+        List<Book> books = candidates == null || candidates.size() <= IN_CLAUSE_SIZE
+                ? bookRepository.searchPage(pageSpec.and(BookSpecification.idIn(candidates)), order, pageSize + 1)
+                : searchPageInChunks(pageSpec, candidates, order, sortKey, pageSize + 1);
+        boolean hasMore = books.size() > pageSize;
+        List<Book> page = hasMore ? books.subList(0, pageSize) : books;
+        String nextCursor = hasMore ? BookCursor.after(page.get(page.size() - 1), sortKey).encode() : null;
+        // convertir a DTO y retornar
+        return new BookPageDTO(page.stream().map(this::toResponseDTO).toList(), nextCursor);
+    }
+
+    /**
+     * Obtiene una página cuando los candidatos del índice no caben en una sola
+     * cláusula IN (un texto corto o común puede coincidir con casi todo el
+     * catálogo): consulta cada bloque de IN_CLAUSE_SIZE IDs con el mismo orden
+     * y límite, y se queda con los primeros de la unión (los textos se comparan
+     * carácter a carácter, como en H2). Cada consulta devuelve como mucho limit
+     * filas. Ordenando por ID los bloques van en orden y se deja de consultar
+     * al completar la página.
+     */
+    private List<Book> searchPageInChunks(Specification<Book> spec, Set<Long> candidates, Sort order,
+            String sortKey, int limit) {
+        Comparator<Book> bySortKey = switch (sortKey) {
+            case Consts.TITLE -> Comparator.comparing(Book::getTitle);
+            case Consts.AUTHOR -> Comparator.comparing(Book::getAuthor);
+            case Consts.PRICE -> Comparator.comparing(Book::getPrice);
+            default -> Comparator.comparing(Book::getId);
+        };
+        List<Long> sortedIds = new ArrayList<>(candidates);
+        sortedIds.sort(null);
+        List<Book> books = new ArrayList<>();
+        for (List<Long> chunk : chunks(sortedIds)) {
+            books.addAll(bookRepository.searchPage(spec.and(BookSpecification.idIn(chunk)), order, limit));
+            if (Consts.ID.equals(sortKey) && books.size() >= limit) {
+                break; // los bloques siguientes solo tienen IDs mayores
+            }
+        }
+        books.sort(bySortKey.thenComparing(Book::getId));
+        return books.size() > limit ? books.subList(0, limit) : books;
+    }
+
+    /**
+     * Obtiene los libros más relevantes para el texto libre sin leer ni ordenar
+     * todas las coincidencias: pide a BookSearchIndex los IDs de los mejores
+     * (BM25) y comprueba en la base de datos el resto de filtros solo para
+     * ellos. Si alguno no los cumple pide el doble de IDs y comprueba solo los
+     * nuevos, hasta completar la página o agotar las coincidencias.
+     * No tiene página siguiente: devuelve únicamente los limit mejores.
+     *
+     * @param spec       Filtros de la búsqueda
+     * @param candidates IDs que cumplen los filtros de título y autor (null =
+     *                   sin filtro)
+     * @param q          Texto libre
+     * @param cursor     Cursor (no se admite)
+     * @param limit      Número de libros (se acota a MAX_PAGE_SIZE)
+     * @param sort       Orden (null o relevance)
+     * @return BookPageDTO con los libros del más al menos relevante, sin cursor
+     * @throws IllegalArgumentException si falta q, o se pide otro orden o un
+     *                                  cursor
+     */
+    private BookPageDTO findRelevant(Specification<Book> spec, Set<Long> candidates, String q, String cursor,
+            Integer limit, String sort) {
+        // validar parametros
+        if (q == null || q.isBlank()) {
+            throw new IllegalArgumentException("El orden por relevancia requiere el parámetro q");
+        }
+        if (sort != null && !sort.isEmpty() && !Consts.RELEVANCE.equals(sort)) {
+            throw new IllegalArgumentException("La búsqueda por texto libre solo se ordena por relevancia");
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            throw new IllegalArgumentException("El orden por relevancia no admite cursor");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        Map<Long, Book> page = new LinkedHashMap<>(); // libros en orden de relevancia
+        int checked = 0; // IDs del ranking ya comprobados
+        int requested = pageSize;
+        while (true) {
+            List<Long> ranked = bookSearchIndex.rank(q, candidates, requested);
+            List<Long> batch = ranked.subList(Math.min(checked, ranked.size()), ranked.size());
+            if (!batch.isEmpty()) {
+                // comprobar el resto de filtros solo para los nuevos IDs del ranking
+                Map<Long, Book> found = new HashMap<>();
+                for (List<Long> chunk : chunks(batch)) {
+                    bookRepository.search(spec.and(BookSpecification.idIn(chunk)))
+                            .forEach(book -> found.put(book.getId(), book));
+                }
+                for (Long id : batch) {
+                    if (found.containsKey(id) && page.size() < pageSize) {
+                        page.putIfAbsent(id, found.get(id));
+                    }
+                }
+            }
+            checked = ranked.size();
+            // pagina completa o no hay mas coincidencias
+            if (page.size() >= pageSize || ranked.size() < requested) {
+                break;
+            }
+            requested *= 2;
+        }
+        return new BookPageDTO(page.values().stream().map(this::toResponseDTO).toList(), null);
+    }
+
+    /**
+     * Aplica un PATCH sobre la versión actual del libro (un intento).
+     * 
+     * @param id  ID del libro a actualizar
+     * @param dto Campos a actualizar
+     * @return BookResponseDTO actualizado o null si no existe
+     */
+    private BookResponseDTO applyPatch(Long id, BookPatchDTO dto) {
         // busca libro por ID
         Book book = bookRepository.getById(id);
         // si no existe retornar null
         if (book == null) {
             return null;
         }
-        // calcular nuevo stock
-        int newStock = book.getStock() + dto.getQuantity();
-        // verificar que el stock resultante no sea negativo
-        if (newStock < 0) {
-            throw new IllegalArgumentException("El stock resultante no puede ser negativo. Stock actual: "
-                    + book.getStock() + ", Cantidad a restar: " + dto.getQuantity());
+        // actualizar campos opcionales
+        if (dto.getTitle() != null) {
+            book.setTitle(dto.getTitle());
+        }
+        if (dto.getAuthor() != null) {
+            book.setAuthor(dto.getAuthor());
+        }
+        if (dto.getPublicationDate() != null) {
+            book.setPublicationDate(dto.getPublicationDate());
+        }
+        if (dto.getCategory() != null) {
+            book.setCategory(dto.getCategory());
+        }
+        if (dto.getRating() != null) {
+            book.setRating(dto.getRating());
+        }
+        if (dto.getVisible() != null) {
+            book.setVisible(dto.getVisible());
+        }
+        if (dto.getStock() != null) {
+            book.setStock(dto.getStock());
+        }
+        if (dto.getPrice() != null) {
+            book.setPrice(dto.getPrice());
         }
-        // actualizar el stock
-        book.setStock(newStock);
         // guardar el libro actualizado
-        Book updatedBook = bookRepository.save(book);
+        Book patchedBook = bookRepository.save(book);
+        // reindexar para las busquedas y sugerencias
+        indexBook(patchedBook);
         // convertir la entidad a DTO y devolverlo
-        return toResponseDTO(updatedBook);
+        return toResponseDTO(patchedBook);
     }
 
-    // METODOS HELPERS
-
     /**
      * Convierte una entidad Book a BookResponseDTO.
      * 
@@ -332,6 +746,26 @@ public class BookServiceImpl implements BookService {
                 book.getPrice());
     }
 
+    /**
+     * Convierte una entidad Book a AvailabilityResponseDTO.
+     * Un libro está disponible si es visible Y tiene stock.
+     * 
+     * @param book Entidad Book de la base de datos
+     * @return AvailabilityResponseDTO con la disponibilidad calculada
+     */
+    private AvailabilityResponseDTO toAvailabilityDTO(Book book) {
+        // verificar disponibilidad
+        boolean available = book.getVisible() && book.getStock() > 0;
+        return new AvailabilityResponseDTO(
+                book.getId(),
+                book.getTitle(),
+                book.getIsbn(),
+                available, // available calculado en base a visible y stock
+                book.getVisible(),
+                book.getStock(),
+                book.getPrice());
+    }
+
     /**
      * Convierte un BookRequestDTO a entidad Book.
      * Nota: El ID se genera automáticamente por JPA, no se incluye.
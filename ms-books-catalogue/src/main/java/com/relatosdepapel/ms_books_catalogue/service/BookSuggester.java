@@ -0,0 +1,212 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.relatosdepapel.ms_books_catalogue.dto.BookSuggestionDTO;
+import com.relatosdepapel.ms_books_catalogue.entity.Book;
+import com.relatosdepapel.ms_books_catalogue.repository.BookRepository;
+import com.relatosdepapel.ms_books_catalogue.utils.Consts;
+import com.relatosdepapel.ms_books_catalogue.utils.PrefixTrie;
+import com.relatosdepapel.ms_books_catalogue.utils.TextNormalizer;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Sugerencias de autocompletado del buscador: títulos, autores y categorías
+ * de los libros visibles que tienen una palabra que empieza por el texto
+ * escrito, ordenados por valoración.
+ *
+ * Las sugerencias se sirven desde un PrefixTrie inmutable con los mejores
+ * resultados ya calculados en cada prefijo, sin consultar la base de datos.
+ * BookServiceImpl notifica las altas, cambios y bajas de libros, y el árbol se
+ * reconstruye cada catalogue.suggest.refresh-interval si hubo cambios (las
+ * sugerencias pueden ir ese tiempo por detrás del catálogo).
+ *
+ * Los libros eliminados dejan una marca con su versión durante
+ * catalogue.suggest.tombstone-retention, para que el aviso tardío de una
+ * actualización concurrente no vuelva a añadirlos.
+ */
+@Component
+public class BookSuggester implements SmartInitializingSingleton {
+    private final BookRepository bookRepository; // Carga inicial de los libros
+    private final int maxResults; // Sugerencias máximas por petición
+    private final Duration tombstoneRetention; // Tiempo que se recuerdan los libros eliminados
+
+    private final Map<Long, SuggestedBook> books = new ConcurrentHashMap<>(); // Datos sugeribles de cada libro
+    private final AtomicBoolean dirty = new AtomicBoolean(); // Hay cambios sin incluir en el árbol
+    private volatile PrefixTrie<BookSuggestionDTO> trie; // Árbol de prefijos vigente
+
+    public BookSuggester(BookRepository bookRepository,
+            @Value("${catalogue.suggest.max-results:10}") int maxResults,
+            @Value("${catalogue.suggest.tombstone-retention:1m}") Duration tombstoneRetention) {
+        this.bookRepository = bookRepository;
+        this.maxResults = maxResults;
+        this.tombstoneRetention = tombstoneRetention;
+        this.trie = build();
+    }
+
+    /**
+     * Carga los libros y construye el árbol antes de que el servidor acepte
+     * peticiones.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        bookRepository.getAll().forEach(this::index);
+        refresh();
+    }
+
+    /**
+     * Registra un libro nuevo o modificado. Si ya se registró una versión más
+     * reciente del libro, o el libro se eliminó, no se modifica.
+     *
+     * @param book Libro guardado (con ID y versión)
+     */
+    public void index(Book book) {
+        SuggestedBook suggested = new SuggestedBook(book.getVersion(), book.getTitle(), book.getAuthor(),
+                book.getCategory(), book.getRating(), Boolean.TRUE.equals(book.getVisible()), null);
+        books.merge(book.getId(), suggested, (current, updated) -> replaces(current, updated) ? updated : current);
+        dirty.set(true);
+    }
+
+    /**
+     * Elimina un libro de las sugerencias. Queda una marca con su versión para
+     * ignorar los avisos de versiones iguales o anteriores que lleguen después.
+     *
+     * @param id      ID del libro eliminado
+     * @param version Versión del libro eliminada
+     */
+    public void remove(Long id, Long version) {
+        books.put(id, new SuggestedBook(version, null, null, null, null, false, LocalDateTime.now()));
+        dirty.set(true);
+    }
+
+    /**
+     * Reconstruye el árbol si hubo cambios desde la última vez.
+     *
+     * @return true si se reconstruyó
+     */
+    @Scheduled(fixedDelayString = "${catalogue.suggest.refresh-interval:1s}")
+    public boolean refresh() {
+        // olvidar las marcas de libros eliminados antiguas (no cambian el arbol)
+        LocalDateTime oldest = LocalDateTime.now().minus(tombstoneRetention);
+        books.values().removeIf(book -> book.removedAt != null && book.removedAt.isBefore(oldest));
+        if (!dirty.getAndSet(false)) {
+            return false;
+        }
+        trie = build();
+        return true;
+    }
+
+    /**
+     * Obtiene las sugerencias para el texto escrito hasta ahora.
+     * La última palabra puede estar incompleta ("don qui" sugiere "Don Quijote
+     * de la Mancha") y no se distinguen mayúsculas ni tildes.
+     *
+     * @param query Texto escrito
+     * @param limit Número de sugerencias (null o mayor que
+     *              catalogue.suggest.max-results = el máximo)
+     * @return Sugerencias ordenadas por valoración (vacía si no hay texto)
+     */
+    public List<BookSuggestionDTO> suggest(String query, Integer limit) {
+        String prefix = String.join(" ", TextNormalizer.tokenize(query));
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        int size = limit == null ? maxResults : Math.clamp(limit, 1, maxResults);
+        return trie.find(prefix, size);
+    }
+
+    // METODOS HELPERS
+
+    /**
+     * Indica si los datos recibidos de un libro reemplazan a los registrados:
+     * una versión igual o más reciente, o solo una más reciente si el libro se
+     * eliminó. Sin versiones gana el último aviso, salvo si el libro se eliminó.
+     */
+    private static boolean replaces(SuggestedBook current, SuggestedBook updated) {
+        if (current.version == null || updated.version == null) {
+            return current.removedAt == null;
+        }
+        return current.removedAt == null ? updated.version >= current.version : updated.version > current.version;
+    }
+
+    /**
+     * Construye el árbol con los títulos, autores y categorías de los libros
+     * visibles. Un autor o una categoría se sugiere una sola vez, con la mejor
+     * valoración de sus libros.
+     */
+    private PrefixTrie<BookSuggestionDTO> build() {
+        List<BookSuggestionDTO> suggestions = new ArrayList<>();
+        Map<String, BookSuggestionDTO> authors = new LinkedHashMap<>();
+        Map<String, BookSuggestionDTO> categories = new LinkedHashMap<>();
+        books.forEach((id, book) -> {
+            if (!book.visible) {
+                return; // libros ocultos y marcas de eliminados
+            }
+            suggestions.add(new BookSuggestionDTO(book.title, Consts.TITLE, id, book.rating));
+            group(authors, book.author, Consts.AUTHOR, book.rating);
+            group(categories, book.category, Consts.CATEGORY, book.rating);
+        });
+        suggestions.addAll(authors.values());
+        suggestions.addAll(categories.values());
+        // mejor valoración primero; a igual valoración, orden alfabético
+        Comparator<BookSuggestionDTO> ranking = Comparator
+                .comparing(BookSuggestionDTO::getRating, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(suggestion -> TextNormalizer.normalize(suggestion.getText()));
+        return PrefixTrie.build(suggestions, suggestion -> keys(suggestion.getText()), ranking, maxResults);
+    }
+
+    /**
+     * Añade un autor o categoría a su grupo, o mejora la valoración del grupo.
+     */
+    private void group(Map<String, BookSuggestionDTO> groups, String text, String type, Integer rating) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        BookSuggestionDTO suggestion = groups.computeIfAbsent(TextNormalizer.normalize(text),
+                key -> new BookSuggestionDTO(text, type, null, rating));
+        if (rating != null && (suggestion.getRating() == null || rating > suggestion.getRating())) {
+            suggestion.setRating(rating);
+        }
+    }
+
+    /**
+     * Obtiene las claves de un texto: el texto normalizado desde cada una de sus
+     * palabras ("don quijote", "quijote"), para sugerirlo al escribir cualquiera.
+     */
+    private List<String> keys(String text) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return keys;
+    }
+
+    /**
+     * Datos de un libro necesarios para las sugerencias.
+     */
+    @AllArgsConstructor
+    private static final class SuggestedBook {
+        private final Long version; // Versión del libro registrada
+        private final String title; // Título
+        private final String author; // Autor
+        private final String category; // Categoría
+        private final Integer rating; // Valoración
+        private final boolean visible; // Solo se sugieren los libros visibles
+        private final LocalDateTime removedAt; // Fecha de eliminación (null si el libro existe)
+    }
+}
@@ -0,0 +1,57 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.util.List;
+
+import com.relatosdepapel.ms_books_catalogue.dto.StockReservationRequestDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.StockReservationResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.exception.BookNotFoundException;
+import com.relatosdepapel.ms_books_catalogue.exception.ReservationNotFoundException;
+
+/**
+ * Interface del servicio de reservas de stock.
+ * Una reserva retiene unidades de un libro durante catalogue.reservations.ttl;
+ * el cliente la confirma (el stock queda descontado) o la libera (el stock se
+ * devuelve). Las reservas no confirmadas a tiempo caducan y devuelven el stock.
+ */
+public interface StockReservationService {
+
+    /**
+     * Reserva stock de varios libros en una sola transacción (todo o nada).
+     * Las reservas que ya existen se devuelven sin retener stock otra vez.
+     * 
+     * @param requests Reservas a crear
+     * @return Reservas en el orden de la petición
+     * @throws BookNotFoundException    si algún libro no existe
+     * @throws IllegalArgumentException si algún libro no tiene stock suficiente
+     */
+    List<StockReservationResponseDTO> reserve(List<StockReservationRequestDTO> requests);
+
+    /**
+     * Confirma varias reservas (todo o nada). Confirmar una reserva ya
+     * confirmada no tiene efecto.
+     * 
+     * @param reservationIds IDs de las reservas
+     * @throws ReservationNotFoundException si alguna reserva no existe
+     * @throws IllegalStateException        si alguna reserva caducó o fue
+     *                                      liberada
+     */
+    void confirm(List<String> reservationIds);
+
+    /**
+     * Libera varias reservas activas o confirmadas y devuelve su stock (todo o
+     * nada). Liberar una reserva ya liberada o caducada no tiene efecto.
+     * 
+     * @param reservationIds IDs de las reservas
+     * @throws ReservationNotFoundException si alguna reserva no existe
+     */
+    void release(List<String> reservationIds);
+
+    /**
+     * Caduca en bloque hasta limit reservas activas cuya fecha límite ya pasó y
+     * devuelve su stock.
+     * 
+     * @param limit Máximo de reservas a caducar
+     * @return Número de reservas caducadas
+     */
+    int expireDue(int limit);
+}
@@ -0,0 +1,222 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.relatosdepapel.ms_books_catalogue.dto.BookStockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.StockReservationRequestDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.StockReservationResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.entity.StockReservation;
+import com.relatosdepapel.ms_books_catalogue.exception.ReservationNotFoundException;
+import com.relatosdepapel.ms_books_catalogue.repository.StockReservationRepository;
+
+/**
+ * Implementación del servicio de reservas de stock.
+ * Los cambios de stock se delegan en BookService.updateStock (UPDATE
+ * condicionales por lotes en la misma transacción), y los cambios de estado
+ * son UPDATE en bloque sobre las reservas previamente bloqueadas.
+ */
+@Service // Indica que es un servicio
+public class StockReservationServiceImpl implements StockReservationService {
+    private final StockReservationRepository stockReservationRepository; // Reservas de stock
+    private final BookService bookService; // Cambios de stock por lotes
+    private final Duration ttl; // Tiempo que se retiene el stock sin confirmar
+
+    public StockReservationServiceImpl(StockReservationRepository stockReservationRepository,
+            BookService bookService, @Value("${catalogue.reservations.ttl:15m}") Duration ttl) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.bookService = bookService;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Reserva stock de varios libros:
+     * 1. Se descartan las reservas que ya existen (reenvíos del cliente).
+     * 2. Se descuenta el stock de las nuevas con BookService.updateStock.
+     * 3. Se insertan las reservas en estado HELD.
+     * 
+     * @param requests Reservas a crear
+     * @return Reservas en el orden de la petición
+     */
+    @Override
+    @Transactional
+    public List<StockReservationResponseDTO> reserve(List<StockReservationRequestDTO> requests) {
+        // Validación: cantidades positivas e IDs no repetidos
+        Set<String> requestedIds = new HashSet<>();
+        for (StockReservationRequestDTO request : requests) {
+            if (request.getQuantity() == null || request.getQuantity() <= 0) {
+                throw new IllegalArgumentException("La cantidad a reservar debe ser mayor que 0");
+            }
+            if (!requestedIds.add(request.getReservationId())) {
+                throw new IllegalArgumentException("Reserva repetida: " + request.getReservationId());
+            }
+        }
+
+        // 1. Reservas ya creadas
+        Map<String, StockReservation> reservations = byId(stockReservationRepository.getForUpdate(requestedIds));
+
+        // 2. y 3. Retener el stock de las nuevas y guardarlas
+        LocalDateTime now = LocalDateTime.now();
+        List<StockReservation> created = requests.stream()
+                .filter(request -> !reservations.containsKey(request.getReservationId()))
+                .map(request -> StockReservation.builder()
+                        .reservationId(request.getReservationId())
+                        .bookId(request.getBookId())
+                        .quantity(request.getQuantity())
+                        .status(StockReservation.HELD)
+                        .expiresAt(now.plus(ttl))
+                        .createdAt(now)
+                        .build())
+                .toList();
+        if (!created.isEmpty()) {
+            bookService.updateStock(toStockUpdates(created, -1));
+            stockReservationRepository.saveAll(created);
+            created.forEach(reservation -> reservations.put(reservation.getReservationId(), reservation));
+        }
+        return requests.stream()
+                .map(request -> toResponseDTO(reservations.get(request.getReservationId())))
+                .toList();
+    }
+
+    /**
+     * Confirma varias reservas: pasan de HELD a CONFIRMED con un UPDATE en
+     * bloque. Una reserva HELD cuya fecha límite ya pasó se considera caducada
+     * aunque el barrido aún no la haya procesado.
+     * 
+     * @param reservationIds IDs de las reservas
+     */
+    @Override
+    @Transactional
+    public void confirm(List<String> reservationIds) {
+        List<StockReservation> reservations = getExisting(reservationIds);
+        LocalDateTime now = LocalDateTime.now();
+        List<String> closed = reservations.stream()
+                .filter(r -> StockReservation.RELEASED.equals(r.getStatus())
+                        || StockReservation.EXPIRED.equals(r.getStatus())
+                        || (StockReservation.HELD.equals(r.getStatus()) && !r.getExpiresAt().isAfter(now)))
+                .map(StockReservation::getReservationId)
+                .toList();
+        if (!closed.isEmpty()) {
+            throw new IllegalStateException("Las reservas " + closed + " caducaron o fueron liberadas");
+        }
+        stockReservationRepository.updateStatus(idsWithStatus(reservations, Set.of(StockReservation.HELD)),
+                StockReservation.CONFIRMED);
+    }
+
+    /**
+     * Libera varias reservas: las HELD y CONFIRMED pasan a RELEASED y su stock
+     * se devuelve en la misma transacción.
+     * 
+     * @param reservationIds IDs de las reservas
+     */
+    @Override
+    @Transactional
+    public void release(List<String> reservationIds) {
+        List<StockReservation> open = getExisting(reservationIds).stream()
+                .filter(r -> StockReservation.HELD.equals(r.getStatus())
+                        || StockReservation.CONFIRMED.equals(r.getStatus()))
+                .toList();
+        close(open, StockReservation.RELEASED);
+    }
+
+    /**
+     * Caduca las reservas HELD vencidas. La consulta recorre el índice
+     * (status, expires_at) en orden de fecha límite, por lo que solo lee las
+     * reservas vencidas, y el cambio de estado y la devolución del stock se
+     * hacen en bloque.
+     * 
+     * @param limit Máximo de reservas a caducar
+     * @return Número de reservas caducadas
+     */
+    @Override
+    @Transactional
+    public int expireDue(int limit) {
+        List<StockReservation> expired = stockReservationRepository.getExpired(LocalDateTime.now(), limit);
+        close(expired, StockReservation.EXPIRED);
+        return expired.size();
+    }
+
+    // METODOS HELPERS
+
+    /**
+     * Cierra reservas abiertas (RELEASED o EXPIRED) y devuelve su stock.
+     */
+    private void close(List<StockReservation> reservations, String status) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        stockReservationRepository.updateStatus(
+                reservations.stream().map(StockReservation::getReservationId).toList(), status);
+        bookService.updateStock(toStockUpdates(reservations, 1));
+    }
+
+    /**
+     * Obtiene y bloquea las reservas indicadas.
+     *
+     * @throws ReservationNotFoundException si alguna no existe
+     */
+    private List<StockReservation> getExisting(List<String> reservationIds) {
+        Set<String> ids = new HashSet<>(reservationIds);
+        List<StockReservation> reservations = stockReservationRepository.getForUpdate(ids);
+        if (reservations.size() != ids.size()) {
+            Set<String> found = byId(reservations).keySet();
+            List<String> missing = ids.stream().filter(id -> !found.contains(id)).toList();
+            throw new ReservationNotFoundException("Las reservas " + missing + " no existen");
+        }
+        return reservations;
+    }
+
+    /**
+     * IDs de las reservas que están en alguno de los estados indicados.
+     */
+    private List<String> idsWithStatus(List<StockReservation> reservations, Set<String> statuses) {
+        return reservations.stream()
+                .filter(r -> statuses.contains(r.getStatus()))
+                .map(StockReservation::getReservationId)
+                .toList();
+    }
+
+    /**
+     * Convierte reservas en cambios de stock (sign = -1 para retener, 1 para
+     * devolver).
+     */
+    private List<BookStockUpdateDTO> toStockUpdates(List<StockReservation> reservations, int sign) {
+        List<BookStockUpdateDTO> updates = new ArrayList<>();
+        for (StockReservation reservation : reservations) {
+            updates.add(new BookStockUpdateDTO(reservation.getBookId(), sign * reservation.getQuantity(), null));
+        }
+        return updates;
+    }
+
+    /**
+     * Indexa las reservas por ID.
+     */
+    private Map<String, StockReservation> byId(List<StockReservation> reservations) {
+        return reservations.stream().collect(Collectors.toMap(StockReservation::getReservationId,
+                Function.identity(), (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Convierte una entidad StockReservation a StockReservationResponseDTO.
+     */
+    private StockReservationResponseDTO toResponseDTO(StockReservation reservation) {
+        return new StockReservationResponseDTO(
+                reservation.getReservationId(),
+                reservation.getBookId(),
+                reservation.getQuantity(),
+                reservation.getStatus(),
+                reservation.getExpiresAt());
+    }
+}
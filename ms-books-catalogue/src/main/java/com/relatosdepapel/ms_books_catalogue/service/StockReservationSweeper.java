@@ -0,0 +1,70 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.relatosdepapel.ms_books_catalogue.repository.StockReservationRepository;
+
+/**
+ * Tareas programadas de las reservas de stock:
+ * - Caducar las reservas no confirmadas a tiempo, en lotes de
+ * catalogue.reservations.sweep-batch-size, hasta vaciar las vencidas.
+ * - Eliminar las reservas liberadas o caducadas con más antigüedad que
+ * catalogue.reservations.retention, y las confirmadas con más antigüedad que
+ * catalogue.reservations.confirmed-retention (más larga: mientras existe, la
+ * cancelación de la compra puede liberar la reserva y devolver el stock).
+ */
+@Component
+public class StockReservationSweeper {
+    private final StockReservationService stockReservationService; // Caducidad de reservas
+    private final StockReservationRepository stockReservationRepository; // Purga de reservas cerradas
+    private final int batchSize; // Reservas caducadas por transacción
+    private final Duration retention; // Tiempo que se conservan las reservas liberadas o caducadas
+    private final Duration confirmedRetention; // Tiempo que se conservan las reservas confirmadas
+
+    public StockReservationSweeper(StockReservationService stockReservationService,
+            StockReservationRepository stockReservationRepository,
+            @Value("${catalogue.reservations.sweep-batch-size:500}") int batchSize,
+            @Value("${catalogue.reservations.retention:7d}") Duration retention,
+            @Value("${catalogue.reservations.confirmed-retention:30d}") Duration confirmedRetention) {
+        this.stockReservationService = stockReservationService;
+        this.stockReservationRepository = stockReservationRepository;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.confirmedRetention = confirmedRetention;
+    }
+
+    /**
+     * Caduca las reservas vencidas y devuelve su stock.
+     *
+     * @return número de reservas caducadas
+     */
+    @Scheduled(fixedDelayString = "${catalogue.reservations.sweep-interval:5s}")
+    public int sweep() {
+        int total = 0;
+        int expired;
+        do {
+            // cada lote en su propia transacción
+            expired = stockReservationService.expireDue(batchSize);
+            total += expired;
+        } while (expired == batchSize);
+        return total;
+    }
+
+    /**
+     * Elimina en bloque las reservas cerradas antiguas (liberadas, caducadas y
+     * confirmadas, cada una con su retención).
+     *
+     * @return número de reservas eliminadas
+     */
+    @Scheduled(fixedDelayString = "${catalogue.reservations.purge-interval:1h}")
+    public int purge() {
+        LocalDateTime now = LocalDateTime.now();
+        return stockReservationRepository.deleteClosedBefore(now.minus(retention))
+                + stockReservationRepository.deleteConfirmedBefore(now.minus(confirmedRetention));
+    }
+}
@@ -2,12 +2,19 @@ package com.relatosdepapel.ms_books_catalogue.specification;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 
 import org.springframework.data.jpa.domain.Specification;
 
 import com.relatosdepapel.ms_books_catalogue.entity.Book;
+import com.relatosdepapel.ms_books_catalogue.utils.BookCursor;
 import com.relatosdepapel.ms_books_catalogue.utils.Consts;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
 /**
  * Specifications para búsquedas dinámicas de Book.
  * Permite combinar múltiples criterios de búsqueda de forma flexible.
@@ -15,32 +22,15 @@ import com.relatosdepapel.ms_books_catalogue.utils.Consts;
 public class BookSpecification {
 
     /**
-     * Busca libros cuyo título contenga el texto dado (case-insensitive).
-     * SQL generado: WHERE LOWER(title) LIKE LOWER('%title%')
-     */
-    public static Specification<Book> titleContains(String title) {
-        return (root, query, criteriaBuilder) -> {
-            if (title == null || title.isEmpty()) {
-                return null; // Sin filtro, ignora este criterio
-            }
-            return criteriaBuilder.like(
-                    criteriaBuilder.lower(root.get(Consts.TITLE)), // LOWER(title)
-                    "%" + title.toLowerCase() + "%"); // %title%
-        };
-    }
-
-    /**
-     * Busca libros cuyo autor contenga el texto dado (case-insensitive).
-     * SQL generado: WHERE LOWER(author) LIKE LOWER('%autor%')
+     * Busca libros entre los IDs dados (candidatos resueltos por BookSearchIndex).
+     * SQL generado: WHERE id IN (...)
      */
-    public static Specification<Book> authorContains(String author) {
+    public static Specification<Book> idIn(Collection<Long> ids) {
         return (root, query, criteriaBuilder) -> {
-            if (author == null || author.isEmpty()) {
+            if (ids == null) {
                 return null;
             }
-            return criteriaBuilder.like(
-                    criteriaBuilder.lower(root.get(Consts.AUTHOR)), // LOWER(author)
-                    "%" + author.toLowerCase() + "%"); // %author%
+            return root.get(Consts.ID).in(ids); // id IN (...)
         };
     }
 
@@ -175,4 +165,39 @@ public class BookSpecification {
             return criteriaBuilder.greaterThanOrEqualTo(root.get(Consts.STOCK), minStock); // stock >= minStock
         };
     }
+
+    /**
+     * Filtra los libros posteriores al cursor según el orden (sortKey, id).
+     * SQL generado: WHERE sortKey > valor OR (sortKey = valor AND id > idCursor)
+     * Con los índices (title, id), (author, id) y (price, id) de Book la
+     * consulta salta directamente a la página pedida y lee las filas ya
+     * ordenadas, sin recorrer las anteriores como haría un OFFSET.
+     */
+    public static Specification<Book> keysetAfter(BookCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            if (cursor == null) {
+                return null;
+            }
+            return switch (cursor.getSortKey()) {
+                case Consts.TITLE, Consts.AUTHOR -> seek(root, criteriaBuilder, cursor.getSortKey(),
+                        (String) cursor.getValue(), cursor.getId());
+                case Consts.PRICE -> seek(root, criteriaBuilder, Consts.PRICE,
+                        (BigDecimal) cursor.getValue(), cursor.getId());
+                default -> criteriaBuilder.greaterThan(root.get(Consts.ID), cursor.getId()); // id > idCursor
+            };
+        };
+    }
+
+    /**
+     * Construye la condición keyset (column, id) > (value, id) para una columna.
+     */
+    private static <T extends Comparable<? super T>> Predicate seek(Root<Book> root, CriteriaBuilder criteriaBuilder,
+            String column, T value, Long id) {
+        Path<T> path = root.get(column);
+        return criteriaBuilder.or(
+                criteriaBuilder.greaterThan(path, value), // column > value
+                criteriaBuilder.and(
+                        criteriaBuilder.equal(path, value), // column = value
+                        criteriaBuilder.greaterThan(root.get(Consts.ID), id))); // id > idCursor
+    }
 }
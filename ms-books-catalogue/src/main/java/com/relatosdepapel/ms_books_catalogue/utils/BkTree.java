@@ -0,0 +1,171 @@
+package com.relatosdepapel.ms_books_catalogue.utils;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Árbol BK (Burkhard-Keller) de palabras para búsquedas tolerantes a errores
+ * de escritura. Cada hijo cuelga de su padre según su distancia de
+ * Levenshtein a él; por la desigualdad triangular, al buscar las palabras a
+ * distancia máxima k de otra solo hace falta bajar por los hijos con
+ * distancia entre d - k y d + k, sin comparar con todo el vocabulario.
+ * Con un límite de resultados, las ramas se recorren de la que puede estar más
+ * cerca a la más lejana y, en cuanto hay limit palabras, se descartan las que
+ * no pueden mejorarlas.
+ *
+ * No admite borrados: quien lo usa filtra las palabras que ya no existen y lo
+ * reconstruye cuando acumula demasiadas. No es thread-safe.
+ */
+public class BkTree {
+    /** De la palabra más cercana a la más lejana (a igual distancia, alfabético) */
+    private static final Comparator<Match> CLOSEST = Comparator.comparingInt((Match match) -> match.distance)
+            .thenComparing(match -> match.term);
+
+    private Node root; // Primera palabra añadida
+    private int size; // Palabras distintas añadidas
+
+    /**
+     * Añade una palabra.
+     *
+     * @param term Palabra (ya normalizada)
+     * @return true si no estaba en el árbol
+     */
+    public boolean add(String term) {
+        if (root == null) {
+            root = new Node(term, new HashMap<>());
+            size++;
+            return true;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(term, node.term);
+            if (distance == 0) {
+                return false; // ya estaba
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(term, new HashMap<>()));
+                size++;
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Busca las palabras a distancia de edición maxDistance o menor.
+     * Recorre primero las ramas con menor distancia mínima posible a term y,
+     * cuando ya tiene limit palabras, solo busca palabras más cercanas que la
+     * peor de ellas: deja de bajar por las ramas que no pueden tenerlas y
+     * termina en cuanto no queda ninguna que pueda.
+     *
+     * @param term        Palabra buscada (ya normalizada)
+     * @param maxDistance Distancia de Levenshtein máxima
+     * @param limit       Número máximo de palabras devueltas (las más
+     *                    cercanas; entre las de la última distancia devuelta,
+     *                    las primeras que encuentra)
+     * @param filter      Palabras que pueden devolverse (las demás se ignoran)
+     * @return Palabras encontradas, de la más cercana a la más lejana
+     */
+    public List<String> search(String term, int maxDistance, int limit, Predicate<String> filter) {
+        // montículo con la peor de las mejores en la cabeza
+        PriorityQueue<Match> best = new PriorityQueue<>(CLOSEST.reversed());
+        if (root != null && limit > 0) {
+            int bound = maxDistance; // distancia máxima que aún puede entrar en el resultado
+            PriorityQueue<Branch> pending = new PriorityQueue<>(Comparator.comparingInt(branch -> branch.minDistance));
+            pending.add(new Branch(root, 0));
+            while (!pending.isEmpty() && pending.peek().minDistance <= bound) {
+                Branch branch = pending.poll();
+                Node node = branch.node;
+                int distance = distance(term, node.term);
+                if (distance <= bound && filter.test(node.term)) {
+                    best.add(new Match(node.term, distance));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                    if (best.size() == limit) {
+                        // solo interesan las palabras más cercanas que la peor encontrada
+                        bound = Math.min(bound, best.peek().distance - 1);
+                    }
+                }
+                // solo los hijos a distancia [d - k, d + k] del nodo pueden estar a k o menos de term; las
+                // palabras que cuelgan del hijo i están a i del nodo, luego a |d - i| o más de term
+                for (int i = Math.max(1, distance - bound); i <= distance + bound; i++) {
+                    Node child = node.children.get(i);
+                    if (child != null) {
+                        pending.add(new Branch(child, Math.max(branch.minDistance, Math.abs(distance - i))));
+                    }
+                }
+            }
+        }
+        return best.stream()
+                .sorted(CLOSEST)
+                .map(match -> match.term)
+                .toList();
+    }
+
+    /**
+     * Número de palabras distintas añadidas.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Distancia de Levenshtein: número mínimo de letras insertadas, borradas o
+     * cambiadas para pasar de una palabra a otra ("quijte" → "quijote" = 1).
+     * Usa solo dos filas de la matriz de programación dinámica.
+     */
+    public static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Nodo del árbol: palabra e hijos por distancia a ella.
+     */
+    @AllArgsConstructor
+    private static final class Node {
+        private final String term; // Palabra del nodo
+        private final Map<Integer, Node> children; // Distancia → hijo
+    }
+
+    /**
+     * Rama pendiente de recorrer y cota inferior de la distancia de sus
+     * palabras a la buscada.
+     */
+    @AllArgsConstructor
+    private static final class Branch {
+        private final Node node; // Raíz de la rama
+        private final int minDistance; // Ninguna palabra de la rama está más cerca
+    }
+
+    /**
+     * Palabra encontrada y su distancia a la buscada.
+     */
+    @AllArgsConstructor
+    private static final class Match {
+        private final String term; // Palabra encontrada
+        private final int distance; // Distancia a la palabra buscada
+    }
+}
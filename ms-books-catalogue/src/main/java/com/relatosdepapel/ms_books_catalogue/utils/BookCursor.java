@@ -0,0 +1,86 @@
+package com.relatosdepapel.ms_books_catalogue.utils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+import com.relatosdepapel.ms_books_catalogue.entity.Book;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Cursor opaco para paginación por keyset (seek) sobre (sortKey, id).
+ * Guarda la columna de ordenación, el valor de esa columna y el ID del último
+ * libro devuelto, de modo que la siguiente página se obtiene con
+ * WHERE (sortKey, id) > (valor, id) en lugar de un OFFSET que recorre todas
+ * las filas anteriores.
+ * Se serializa en Base64 URL-safe para que el cliente lo trate como un token.
+ */
+@Getter
+@AllArgsConstructor
+public class BookCursor {
+    /** Columnas por las que se permite ordenar (no nulas, para que el keyset sea total) */
+    public static final Set<String> SORT_KEYS = Set.of(Consts.ID, Consts.TITLE, Consts.AUTHOR, Consts.PRICE);
+
+    /** Separador interno entre campos del cursor */
+    private static final String SEPARATOR = "|";
+
+    /** Columna de ordenación */
+    private final String sortKey;
+
+    /** ID del último libro de la página */
+    private final Long id;
+
+    /** Valor de la columna de ordenación del último libro (null si se ordena por ID) */
+    private final Comparable<?> value;
+
+    /**
+     * Crea el cursor que apunta después del libro dado.
+     */
+    public static BookCursor after(Book book, String sortKey) {
+        Comparable<?> value = switch (sortKey) {
+            case Consts.TITLE -> book.getTitle();
+            case Consts.AUTHOR -> book.getAuthor();
+            case Consts.PRICE -> book.getPrice();
+            default -> null;
+        };
+        return new BookCursor(sortKey, book.getId(), value);
+    }
+
+    /**
+     * Serializa el cursor como token opaco.
+     */
+    public String encode() {
+        String valueText = value instanceof BigDecimal decimal ? decimal.toPlainString()
+                : value == null ? "" : value.toString();
+        String raw = sortKey + SEPARATOR + id + SEPARATOR + valueText;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lee un token generado por encode().
+     *
+     * @throws IllegalArgumentException si el token no es válido
+     */
+    public static BookCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, 3); // el valor puede contener el separador
+            String sortKey = parts[0];
+            if (parts.length != 3 || !SORT_KEYS.contains(sortKey)) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            Long id = Long.valueOf(parts[1]);
+            Comparable<?> value = switch (sortKey) {
+                case Consts.TITLE, Consts.AUTHOR -> parts[2];
+                case Consts.PRICE -> new BigDecimal(parts[2]);
+                default -> null;
+            };
+            return new BookCursor(sortKey, id, value);
+        } catch (IllegalArgumentException e) { // incluye NumberFormatException y Base64 inválido
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
@@ -17,6 +17,22 @@ public class Consts {
     public static final String VISIBLE = "visible";
     public static final String STOCK = "stock";
     public static final String PRICE = "price";
+    public static final String VERSION = "version";
+
+    // orden por relevancia de la busqueda por texto libre (no es una columna)
+    public static final String RELEVANCE = "relevance";
+
+    // columnas de la tabla applied_stock_commands
+    public static final String COMMAND_ID = "commandId";
+    public static final String APPLIED_AT = "appliedAt";
+
+    // columnas de la tabla stock_reservations
+    public static final String RESERVATION_ID = "reservationId";
+    public static final String BOOK_ID = "bookId";
+    public static final String QUANTITY = "quantity";
+    public static final String STATUS = "status";
+    public static final String EXPIRES_AT = "expiresAt";
+    public static final String CREATED_AT = "createdAt";
 
     // constructor privado para evitar instanciación
     private Consts() {
@@ -0,0 +1,171 @@
+package com.relatosdepapel.ms_books_catalogue.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Árbol de prefijos inmutable (radix trie) para sugerencias de autocompletado.
+ * Cada valor se inserta con una o varias claves y cada nodo guarda ya
+ * calculados los maxResults mejores valores (según ranking) de todas las
+ * claves que empiezan por su prefijo, de modo que una búsqueda solo recorre
+ * los caracteres del prefijo: O(longitud del prefijo) e independiente del
+ * número de valores.
+ *
+ * Para ocupar poca memoria las aristas con un único hijo se fusionan en una
+ * etiqueta (radix), los hijos se guardan en arrays ordenados (búsqueda
+ * binaria) y los mejores valores como índices int. Se construye de una vez
+ * y no se modifica: para cambiar su contenido se construye otro.
+ *
+ * @param <T> Tipo de los valores sugeridos
+ */
+public class PrefixTrie<T> {
+    private final List<T> values; // Valores indexados (los nodos guardan su posición)
+    private final Node root; // Nodo del prefijo vacío
+
+    private PrefixTrie(List<T> values, Node root) {
+        this.values = values;
+        this.root = root;
+    }
+
+    /**
+     * Construye el árbol.
+     *
+     * @param values     Valores a sugerir
+     * @param keys       Claves de cada valor (ya normalizadas); un valor puede
+     *                   tener varias, por ejemplo una por cada palabra
+     * @param ranking    Orden de los valores (el primero es el mejor)
+     * @param maxResults Número de valores guardados por nodo (límite máximo de
+     *                   find)
+     * @return Árbol de prefijos
+     */
+    public static <T> PrefixTrie<T> build(List<T> values, Function<T, List<String>> keys, Comparator<T> ranking,
+            int maxResults) {
+        List<T> sorted = new ArrayList<>(values);
+        sorted.sort(ranking);
+        // pares (clave, posición del valor) ordenados por clave; la posición ya indica el ranking
+        List<Key> pairs = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            for (String key : keys.apply(sorted.get(i))) {
+                if (!key.isEmpty()) {
+                    pairs.add(new Key(key, i));
+                }
+            }
+        }
+        pairs.sort(Comparator.comparing((Key pair) -> pair.key).thenComparingInt(pair -> pair.value));
+        Node root = pairs.isEmpty() ? new Node("", new char[0], new Node[0], new int[0])
+                : build(pairs, 0, pairs.size(), 0, "", maxResults);
+        return new PrefixTrie<>(sorted, root);
+    }
+
+    /**
+     * Obtiene los mejores valores con alguna clave que empieza por el prefijo.
+     *
+     * @param prefix Prefijo normalizado igual que las claves
+     * @param limit  Número máximo de valores (como mucho maxResults)
+     * @return Valores en orden de ranking (vacía si ninguno coincide)
+     */
+    public List<T> find(String prefix, int limit) {
+        Node node = root;
+        int depth = 0;
+        while (depth < prefix.length()) {
+            int child = Arrays.binarySearch(node.firstChars, prefix.charAt(depth));
+            if (child < 0) {
+                return List.of(); // ninguna clave sigue con este carácter
+            }
+            node = node.children[child];
+            // la etiqueta del hijo debe coincidir con el prefijo (o el prefijo terminar dentro de ella)
+            int length = Math.min(node.label.length(), prefix.length() - depth);
+            if (!node.label.regionMatches(0, prefix, depth, length)) {
+                return List.of();
+            }
+            depth += length;
+        }
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            result.add(values.get(node.top[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Construye el nodo de los pares [from, to), que comparten los primeros
+     * depth caracteres, y sus descendientes.
+     */
+    private static Node build(List<Key> pairs, int from, int to, int depth, String label, int maxResults) {
+        // los pares que terminan en este nodo van primero (orden de clave)
+        int start = from;
+        List<Integer> terminal = new ArrayList<>();
+        while (start < to && pairs.get(start).key.length() == depth) {
+            terminal.add(pairs.get(start).value);
+            start++;
+        }
+        // agrupar el resto por el siguiente carácter
+        List<Character> firstChars = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        int group = start;
+        while (group < to) {
+            char next = pairs.get(group).key.charAt(depth);
+            int end = group;
+            while (end < to && pairs.get(end).key.charAt(depth) == next) {
+                end++;
+            }
+            // prefijo común del grupo: el de su primera y última clave (están ordenadas)
+            String first = pairs.get(group).key;
+            String last = pairs.get(end - 1).key;
+            int common = depth + 1;
+            while (common < first.length() && common < last.length() && first.charAt(common) == last.charAt(common)) {
+                common++;
+            }
+            firstChars.add(next);
+            children.add(build(pairs, group, end, common, first.substring(depth, common), maxResults));
+            group = end;
+        }
+        // mejores valores del nodo: los terminales y los mejores de cada hijo
+        int[] top = merge(terminal, children, maxResults);
+        char[] chars = new char[firstChars.size()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = firstChars.get(i);
+        }
+        return new Node(label, chars, children.toArray(new Node[0]), top);
+    }
+
+    /**
+     * Une los valores terminales y los mejores de cada hijo, sin repetidos, y se
+     * queda con los maxResults primeros (la posición del valor es su ranking).
+     */
+    private static int[] merge(List<Integer> terminal, List<Node> children, int maxResults) {
+        int[] candidates = terminal.stream().mapToInt(Integer::intValue).toArray();
+        for (Node child : children) {
+            int[] merged = Arrays.copyOf(candidates, candidates.length + child.top.length);
+            System.arraycopy(child.top, 0, merged, candidates.length, child.top.length);
+            candidates = merged;
+        }
+        return Arrays.stream(candidates).sorted().distinct().limit(maxResults).toArray();
+    }
+
+    /**
+     * Clave y posición del valor al que pertenece.
+     */
+    @AllArgsConstructor
+    private static final class Key {
+        private final String key; // Clave normalizada
+        private final int value; // Posición del valor en el ranking
+    }
+
+    /**
+     * Nodo del árbol: etiqueta de la arista que llega a él, hijos ordenados por
+     * su primer carácter y mejores valores bajo su prefijo.
+     */
+    @AllArgsConstructor
+    private static final class Node {
+        private final String label; // Caracteres de la arista que llega al nodo
+        private final char[] firstChars; // Primer carácter de cada hijo (ordenados)
+        private final Node[] children; // Hijos en el orden de firstChars
+        private final int[] top; // Mejores valores bajo el prefijo del nodo
+    }
+}
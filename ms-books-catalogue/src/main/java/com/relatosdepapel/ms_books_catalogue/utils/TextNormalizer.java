@@ -0,0 +1,55 @@
+package com.relatosdepapel.ms_books_catalogue.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización de textos para las búsquedas del catálogo.
+ * Pasa el texto a minúsculas y elimina tildes, diéresis y la virgulilla de la
+ * ñ ("Peña", "PENA" y "peña" se buscan igual), para que se encuentren los
+ * libros aunque se escriba sin tildes o con un teclado sin ñ.
+ */
+public class TextNormalizer {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}"); // Tildes y diéresis separadas por NFD
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+"); // Todo lo que no es letra o número
+
+    // constructor privado para evitar instanciación
+    private TextNormalizer() {
+        throw new UnsupportedOperationException("Esta es una clase de utilidad y no puede ser instanciada");
+    }
+
+    /**
+     * Normaliza un texto: minúsculas y sin tildes.
+     *
+     * @param text Texto original (puede ser null)
+     * @return Texto normalizado ("" si es null)
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        // NFD separa cada letra de su tilde ("é" -> "e" + "´") y se eliminan las tildes
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * Divide un texto en palabras normalizadas, separadas por cualquier carácter
+     * que no sea letra o número.
+     *
+     * @param text Texto original (puede ser null)
+     * @return Palabras normalizadas en orden de aparición (con repetidas)
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -33,4 +33,12 @@ VALUES ('Moby Dick', 'Herman Melville', 'Clásicos', '9788490019238', 22.00, 5,
 
 -- Libro 8: Ficción (Precio bajo)
 INSERT INTO books (title, author, category, isbn, price, stock, rating, visible, publication_date) 
-VALUES ('El Principito', 'Antoine de Saint-Exupéry', 'Ficción', '9788498381498', 9.99, 25, 5, true, '1943-04-06');
\ No newline at end of file
+VALUES ('El Principito', 'Antoine de Saint-Exupéry', 'Ficción', '9788498381498', 9.99, 25, 5, true, '1943-04-06');
+-- Reservas confirmadas de los pagos de ejemplo de ms-books-payments (1, 2 y 3),
+-- para que al cancelarlos se devuelva su stock
+INSERT INTO stock_reservations (reservation_id, book_id, quantity, status, expires_at, created_at)
+VALUES ('payment-1', 1, 1, 'CONFIRMED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+INSERT INTO stock_reservations (reservation_id, book_id, quantity, status, expires_at, created_at)
+VALUES ('payment-2', 2, 2, 'CONFIRMED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
+INSERT INTO stock_reservations (reservation_id, book_id, quantity, status, expires_at, created_at)
+VALUES ('payment-3', 1, 1, 'CONFIRMED', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
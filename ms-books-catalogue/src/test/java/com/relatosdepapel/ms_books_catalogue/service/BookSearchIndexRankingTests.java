@@ -0,0 +1,141 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.relatosdepapel.ms_books_catalogue.entity.Book;
+import com.relatosdepapel.ms_books_catalogue.repository.BookRepository;
+
+/**
+ * Orden por relevancia (BM25) de BookSearchIndex sobre catálogos fijos.
+ */
+class BookSearchIndexRankingTests {
+
+    @Test
+    void weighsTitleOverAuthorOverCategory() {
+        // la palabra aparece una vez en un solo campo y todos los campos tienen 2 palabras
+        BookSearchIndex index = index(3.0, 2.0, 1.0,
+                book(1L, "Sol rojo", "Ana Paz", "Luna nueva", 3),
+                book(2L, "Luna roja", "Ana Paz", "Poesia nueva", 3),
+                book(3L, "Mar rojo", "Luna Paz", "Poesia nueva", 3));
+
+        assertEquals(List.of(2L, 3L, 1L), index.rank("luna", null, 10));
+    }
+
+    @Test
+    void followsTheConfiguredBoosts() {
+        BookSearchIndex index = index(1.0, 2.0, 3.0,
+                book(1L, "Sol rojo", "Ana Paz", "Luna nueva", 3),
+                book(2L, "Luna roja", "Ana Paz", "Poesia nueva", 3),
+                book(3L, "Mar rojo", "Luna Paz", "Poesia nueva", 3));
+
+        assertEquals(List.of(1L, 3L, 2L), index.rank("luna", null, 10));
+    }
+
+    @Test
+    void ignoresFieldsWithoutBoost() {
+        BookSearchIndex index = index(3.0, 2.0, 0.0,
+                book(1L, "Sol rojo", "Ana Paz", "Luna nueva", 5),
+                book(2L, "Luna roja", "Ana Paz", "Poesia nueva", 3));
+
+        assertEquals(List.of(2L), index.rank("luna", null, 10));
+    }
+
+    @Test
+    void scoresRareWordsAboveCommonOnes() {
+        // "comun" está en 3 libros y "raro" en 1: el libro con "raro" va primero
+        BookSearchIndex index = index(3.0, 2.0, 1.0,
+                book(1L, "Comun uno", "A", null, 3),
+                book(2L, "Raro dos", "A", null, 3),
+                book(3L, "Comun tres", "A", null, 3),
+                book(4L, "Comun cuatro", "A", null, 3));
+
+        assertEquals(2L, index.rank("comun raro", null, 10).get(0));
+    }
+
+    @Test
+    void scoresShorterFieldsHigher() {
+        BookSearchIndex index = index(3.0, 2.0, 1.0,
+                book(1L, "Mar de fondo en la costa norte", "A", null, 3),
+                book(2L, "Mar", "A", null, 3),
+                book(3L, "Mar de fondo", "A", null, 3));
+
+        assertEquals(List.of(2L, 3L, 1L), index.rank("mar", null, 10));
+    }
+
+    @Test
+    void scoresRepeatedWordsHigher() {
+        BookSearchIndex index = index(3.0, 2.0, 1.0,
+                book(1L, "Mar y sol", "A", null, 3),
+                book(2L, "Mar y mar", "A", null, 3));
+
+        assertEquals(List.of(2L, 1L), index.rank("mar", null, 10));
+    }
+
+    @Test
+    void breaksTiesByRatingThenId() {
+        BookSearchIndex index = index(3.0, 2.0, 1.0,
+                book(1L, "Mar", "A", null, null),
+                book(2L, "Mar", "A", null, 3),
+                book(3L, "Mar", "A", null, 5),
+                book(4L, "Mar", "A", null, 3));
+
+        assertEquals(List.of(3L, 2L, 4L, 1L), index.rank("mar", null, 10));
+    }
+
+    @Test
+    void keepsOnlyTheBestResults() {
+        List<Book> books = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            // títulos de 1 a 7 palabras y valoraciones variadas (con empates de puntuación)
+            books.add(book(id, "Mar" + " relleno".repeat((int) id % 7), "A", null, (int) (id % 5) + 1));
+        }
+        BookSearchIndex index = index(3.0, 2.0, 1.0, books.toArray(Book[]::new));
+        List<Long> all = index.rank("mar", null, 100);
+
+        assertEquals(50, all.size());
+        for (int limit = 1; limit <= 50; limit += 7) {
+            assertEquals(all.subList(0, limit), index.rank("mar", null, limit));
+        }
+    }
+
+    @Test
+    void ranksOnlyTheCandidates() {
+        BookSearchIndex index = index(3.0, 2.0, 1.0,
+                book(1L, "Mar", "A", null, 3),
+                book(2L, "Mar y sol", "A", null, 3),
+                book(3L, "Mar de fondo", "A", null, 3));
+
+        assertEquals(List.of(2L, 3L), index.rank("mar", Set.of(2L, 3L), 10));
+        assertEquals(List.of(), index.rank("mar", Set.of(), 10));
+    }
+
+    @Test
+    void returnsNothingWithoutMatchingWords() {
+        BookSearchIndex index = index(3.0, 2.0, 1.0, book(1L, "Mar", "A", null, 3));
+
+        assertEquals(List.of(), index.rank("montaña", null, 10));
+        assertEquals(List.of(), index.rank(" ¿? ", null, 10));
+    }
+
+    private static BookSearchIndex index(double titleBoost, double authorBoost, double categoryBoost,
+            Book... books) {
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.getAll()).thenReturn(List.of(books));
+        BookSearchIndex index = new BookSearchIndex(bookRepository, 2, 50, titleBoost, authorBoost, categoryBoost);
+        index.rebuild();
+        return index;
+    }
+
+    private static Book book(Long id, String title, String author, String category, Integer rating) {
+        return Book.builder().id(id).version(0L).title(title).author(author).category(category).rating(rating)
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.relatosdepapel.ms_books_catalogue.entity.Book;
+import com.relatosdepapel.ms_books_catalogue.repository.BookRepository;
+
+class BookSearchIndexTests {
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.getAll()).thenReturn(List.of(
+                book(1L, 0L, "Don Quijote de la Mancha", "Miguel de Cervantes"),
+                book(2L, 0L, "Cien Años de Soledad", "Gabriel García Márquez"),
+                book(3L, 0L, "El Señor de los Anillos", "J.R.R. Tolkien"),
+                book(4L, 0L, "1984", "George Orwell")));
+        index = new BookSearchIndex(bookRepository, 2, 50, 3.0, 2.0, 1.0);
+        index.rebuild();
+    }
+
+    @Test
+    void findsTextAnywhereInTheField() {
+        assertEquals(Set.of(1L), index.findByTitle("jote de la"));
+        assertEquals(Set.of(1L), index.findByTitle("MANCHA"));
+        assertEquals(Set.of(4L), index.findByTitle("98"));
+        assertEquals(Set.of(2L), index.findByAuthor("garcia marq"));
+    }
+
+    @Test
+    void requiresTheTrigramsInOrder() {
+        // "mancha quijote" tiene trigramas del título, pero no aparece seguido
+        assertEquals(Set.of(), index.findByTitle("mancha quijote"));
+        assertEquals(Set.of(), index.findByTitle("zzz"));
+    }
+
+    @Test
+    void ignoresCaseAndAccents() {
+        assertEquals(Set.of(2L), index.findByTitle("anos"));
+        assertEquals(Set.of(2L), index.findByTitle("AÑOS"));
+        assertEquals(Set.of(3L), index.findByTitle("senor"));
+        assertEquals(Set.of(2L), index.findByAuthor("márquez"));
+    }
+
+    @Test
+    void checksShortQueriesAgainstEveryBook() {
+        assertEquals(Set.of(1L, 2L, 3L), index.findByTitle("de"));
+        assertEquals(Set.of(1L, 2L), index.findByTitle("n ")); // "don quijote", "cien anos"
+        assertEquals(Set.of(4L), index.findByTitle("1"));
+        assertEquals(Set.of(3L), index.findByAuthor("r."));
+    }
+
+    @Test
+    void doesNotFilterWithoutText() {
+        assertNull(index.findByTitle(null));
+        assertNull(index.findByTitle(""));
+        assertNull(index.findByAuthor(null));
+    }
+
+    @Test
+    void replacesTheTextsOfAnUpdatedBook() {
+        index.index(book(1L, 1L, "El ingenioso hidalgo", "Miguel de Cervantes"));
+
+        assertEquals(Set.of(), index.findByTitle("quijote"));
+        assertEquals(Set.of(1L), index.findByTitle("hidalgo"));
+    }
+
+    @Test
+    void ignoresAnOlderVersionOfABook() {
+        index.index(book(1L, 2L, "El ingenioso hidalgo", "Miguel de Cervantes"));
+        index.index(book(1L, 1L, "Don Quijote de la Mancha", "Miguel de Cervantes")); // llega tarde
+
+        assertEquals(Set.of(), index.findByTitle("quijote"));
+        assertEquals(Set.of(1L), index.findByTitle("hidalgo"));
+    }
+
+    @Test
+    void removesABook() {
+        index.remove(1L);
+
+        assertEquals(Set.of(), index.findByTitle("quijote"));
+        assertEquals(Set.of(), index.findByAuthor("cervantes"));
+        assertEquals(Set.of(2L, 3L), index.findByTitle("de"));
+        index.remove(99L); // un ID desconocido no falla
+    }
+
+    @Test
+    void indexesNewBooks() {
+        index.index(book(5L, 0L, "Dune", "Frank Herbert"));
+
+        assertEquals(Set.of(5L), index.findByTitle("dun"));
+        assertEquals(Set.of(5L), index.findByAuthor("herb"));
+    }
+
+    @Test
+    void toleratesTyposInEachWord() {
+        assertEquals(Set.of(1L), index.findByTitleFuzzy("Quijte"));
+        assertEquals(Set.of(1L), index.findByTitleFuzzy("don quijotte mancah"));
+        assertEquals(Set.of(2L), index.findByTitleFuzzy("soledda"));
+        assertEquals(Set.of(2L), index.findByAuthorFuzzy("garsia marques"));
+        assertEquals(Set.of(), index.findByTitleFuzzy("quijote soledad")); // todas las palabras deben coincidir
+        assertNull(index.findByTitleFuzzy(" - "));
+    }
+
+    @Test
+    void boundsTheEditDistanceByWordLength() {
+        index.index(book(5L, 0L, "Dune", "Frank Herbert"));
+
+        assertEquals(Set.of(5L), index.findByTitleFuzzy("dume")); // 4 letras: un error
+        assertEquals(Set.of(), index.findByTitleFuzzy("dnue")); // dos errores
+        assertEquals(Set.of(), index.findByTitleFuzzy("el sneor")); // "sneor": 5 letras, dos errores
+        assertEquals(Set.of(3L), index.findByTitleFuzzy("el senior"));
+        assertEquals(Set.of(), index.findByTitleFuzzy("da")); // hasta 2 letras: exacta
+    }
+
+    @Test
+    void capsTheSimilarWordsPerQueryWord() {
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.getAll()).thenReturn(List.of(
+                book(1L, 0L, "Gato", "A"), book(2L, 0L, "Pato", "B"), book(3L, 0L, "Rato", "C")));
+        BookSearchIndex capped = new BookSearchIndex(bookRepository, 2, 1, 3.0, 2.0, 1.0);
+        capped.rebuild();
+
+        // las tres palabras están a 1 de "dato": solo se usa la primera (más cercana y alfabética)
+        assertEquals(Set.of(1L), capped.findByTitleFuzzy("dato"));
+        assertEquals(Set.of(2L), capped.findByTitleFuzzy("pato")); // la exacta es la más cercana
+    }
+
+    @Test
+    void forgetsTheWordsOfUpdatedAndRemovedBooks() {
+        // cada cambio de título deja palabras sin libros en el árbol hasta que se reconstruye
+        for (long version = 1; version <= 20; version++) {
+            index.index(book(1L, version, "Titulo provisional " + "abcdefghijklmnopqrst".charAt((int) version - 1),
+                    "Miguel de Cervantes"));
+        }
+        index.remove(2L);
+
+        assertEquals(Set.of(), index.findByTitleFuzzy("quijote"));
+        assertEquals(Set.of(), index.findByTitleFuzzy("soledad"));
+        assertEquals(Set.of(1L), index.findByTitleFuzzy("titulo provisonal"));
+        assertEquals(Set.of(3L), index.findByTitleFuzzy("anillos"));
+    }
+
+    static Book book(Long id, Long version, String title, String author) {
+        return Book.builder().id(id).version(version).title(title).author(author).build();
+    }
+}
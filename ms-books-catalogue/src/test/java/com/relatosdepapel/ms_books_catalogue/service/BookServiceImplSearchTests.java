@@ -0,0 +1,153 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.relatosdepapel.ms_books_catalogue.dto.BookPageDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.entity.Book;
+import com.relatosdepapel.ms_books_catalogue.repository.BookJpaRepository;
+
+/**
+ * Búsquedas de BookServiceImpl con más candidatos del índice de los que caben
+ * en una cláusula IN.
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@DirtiesContext // añade libros a la base de datos compartida
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookServiceImplSearchTests {
+    private static final int GENERATED = 2500; // Más de IN_CLAUSE_SIZE candidatos
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookJpaRepository bookJpaRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeAll
+    void generateBooks() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < GENERATED; i++) {
+            books.add(Book.builder()
+                    .title("Volumen " + (i * 7919 % GENERATED)) // títulos desordenados respecto al ID
+                    .author("Autor " + i % 13)
+                    .isbn("generated-" + i)
+                    .rating(i % 5 + 1)
+                    .visible(true)
+                    .stock(i % 3)
+                    .price(BigDecimal.valueOf(1000 + i * 31 % 997, 2))
+                    .build());
+        }
+        bookJpaRepository.saveAll(books);
+        bookSearchIndex.rebuild();
+    }
+
+    @Test
+    void pagesOverAllCandidatesOrderedByTitle() {
+        assertPagesMatch("title", Comparator.comparing(BookResponseDTO::getTitle), null);
+    }
+
+    @Test
+    void pagesOverAllCandidatesOrderedByPrice() {
+        assertPagesMatch("price", Comparator.comparing(BookResponseDTO::getPrice), null);
+    }
+
+    @Test
+    void pagesOverAllCandidatesOrderedById() {
+        assertPagesMatch("id", Comparator.comparing(BookResponseDTO::getId), null);
+    }
+
+    @Test
+    void appliesDatabaseFiltersToEveryChunk() {
+        assertPagesMatch("title", Comparator.comparing(BookResponseDTO::getTitle), 2);
+    }
+
+    @Test
+    void fuzzySearchToleratesTypos() {
+        // "volumne" admite dos errores; "12" (2 caracteres) debe coincidir
+        BookPageDTO exact = bookService.search("volumne 12", null, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null);
+        BookPageDTO fuzzy = bookService.search("volumne 12", null, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, true, null);
+
+        assertEquals(List.of(), exact.getBooks());
+        assertEquals(List.of("Volumen 12"), fuzzy.getBooks().stream().map(BookResponseDTO::getTitle).toList());
+    }
+
+    @Test
+    void fuzzySearchPagesOverAllCandidates() {
+        List<BookResponseDTO> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            BookPageDTO page = bookService.search("volumn", null, null, null, null, null, null, null, null, null,
+                    null, null, cursor, 200, "title", true, null);
+            all.addAll(page.getBooks());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(GENERATED, all.size());
+    }
+
+    @Test
+    void relevanceSearchKeepsAskingTheIndexWhenFiltersDropRankedBooks() {
+        // todos los "Volumen N" puntúan igual: el orden es valoración y luego ID, y los libros con
+        // valoración 1 quedan los últimos del ranking (hay que pedir al índice más IDs varias veces)
+        List<Long> expected = bookJpaRepository.findAll().stream()
+                .filter(book -> book.getIsbn().startsWith("generated-") && book.getRating() <= 1
+                        && book.getStock() >= 2)
+                .map(Book::getId).sorted().limit(5).toList();
+
+        BookPageDTO page = bookService.search(null, null, null, null, null, 1, null, null, null, null, null, 2, null,
+                5, null, null, "volumen");
+
+        assertEquals(expected, page.getBooks().stream().map(BookResponseDTO::getId).toList());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void relevanceSearchStopsWhenTheRankingIsExhausted() {
+        // ningún "Volumen" cumple el filtro: se comprueba todo el ranking y la página queda vacía
+        BookPageDTO page = bookService.search(null, null, null, null, null, null, null, null, null, null, null, 100,
+                null, 5, null, null, "volumen");
+
+        assertEquals(List.of(), page.getBooks());
+    }
+
+    /**
+     * Recorre todas las páginas de "volumen" y comprueba que juntas son todos
+     * los libros generados, en orden y sin repetidos.
+     */
+    private void assertPagesMatch(String sort, Comparator<BookResponseDTO> order, Integer minStock) {
+        List<BookResponseDTO> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            BookPageDTO page = bookService.search("volumen", null, null, null, null, null, null, null, null, null,
+                    null, minStock, cursor, 200, sort, null, null);
+            all.addAll(page.getBooks());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        long expected = minStock == null ? GENERATED : bookJpaRepository.findAll().stream()
+                .filter(book -> book.getIsbn().startsWith("generated-") && book.getStock() >= minStock).count();
+        assertEquals(expected, all.size());
+        List<BookResponseDTO> sorted = new ArrayList<>(all);
+        sorted.sort(order.thenComparing(BookResponseDTO::getId));
+        assertEquals(sorted.stream().map(BookResponseDTO::getId).toList(),
+                all.stream().map(BookResponseDTO::getId).toList());
+    }
+}
@@ -0,0 +1,74 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.relatosdepapel.ms_books_catalogue.config.CacheConfig;
+import com.relatosdepapel.ms_books_catalogue.dto.BookStockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.StockUpdateDTO;
+
+/**
+ * Invalidación de la disponibilidad cacheada en los cambios de stock: la
+ * entrada se elimina al confirmar la transacción, no antes.
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@DirtiesContext // cambia el stock de la base de datos compartida
+class BookServiceImplStockCacheTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void updateStockEvictsAfterCommit() {
+        Cache cache = cacheManager.getCache(CacheConfig.BOOK_AVAILABILITY);
+        bookService.checkAvailability(1L);
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            bookService.updateStock(1L, new StockUpdateDTO(1));
+            assertNotNull(cache.get(1L)); // aún sin confirmar
+        });
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void batchUpdateStockEvictsAfterCommit() {
+        Cache cache = cacheManager.getCache(CacheConfig.BOOK_AVAILABILITY);
+        bookService.checkAvailability(List.of(2L, 3L));
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            bookService.updateStock(List.of(new BookStockUpdateDTO(2L, 1, null), new BookStockUpdateDTO(3L, 1, null)));
+            assertNotNull(cache.get(2L));
+            assertNotNull(cache.get(3L));
+        });
+        assertNull(cache.get(2L));
+        assertNull(cache.get(3L));
+    }
+
+    @Test
+    void rolledBackUpdateKeepsTheCachedAvailability() {
+        Cache cache = cacheManager.getCache(CacheConfig.BOOK_AVAILABILITY);
+        bookService.checkAvailability(4L);
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            bookService.updateStock(4L, new StockUpdateDTO(1));
+            tx.setRollbackOnly();
+        });
+        assertNotNull(cache.get(4L)); // el stock no cambió
+    }
+}
@@ -0,0 +1,122 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.relatosdepapel.ms_books_catalogue.dto.BookSuggestionDTO;
+import com.relatosdepapel.ms_books_catalogue.entity.Book;
+import com.relatosdepapel.ms_books_catalogue.repository.BookRepository;
+import com.relatosdepapel.ms_books_catalogue.utils.Consts;
+
+class BookSuggesterTests {
+    private BookRepository bookRepository;
+    private BookSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.getAll()).thenReturn(List.of(
+                book(1L, 0L, "Don Quijote de la Mancha", "Miguel de Cervantes", "Clásicos", 5, true),
+                book(2L, 0L, "Novelas ejemplares", "Miguel de Cervantes", "Clásicos", 3, true),
+                book(3L, 0L, "Dune", "Frank Herbert", "Ciencia Ficción", 4, true),
+                book(4L, 0L, "Moby Dick", "Herman Melville", "Aventura", 5, false)));
+        suggester = new BookSuggester(bookRepository, 10, Duration.ofMinutes(1));
+        suggester.afterSingletonsInstantiated();
+    }
+
+    @Test
+    void suggestsFromAnyWordOfTheTitle() {
+        assertEquals(List.of("Don Quijote de la Mancha"), texts("quijote"));
+        assertEquals(List.of("Don Quijote de la Mancha"), texts("QUIJ"));
+        assertEquals(List.of("Don Quijote de la Mancha"), texts("don qui"));
+        assertEquals(List.of("Don Quijote de la Mancha"), texts("la mancha"));
+        assertEquals(List.of(), texts("mancha don"));
+    }
+
+    @Test
+    void suggestsEachAuthorAndCategoryOnceWithItsBestRating() {
+        List<BookSuggestionDTO> suggestions = suggester.suggest("cervantes", null);
+
+        assertEquals(1, suggestions.size());
+        assertEquals(Consts.AUTHOR, suggestions.get(0).getType());
+        assertEquals(5, suggestions.get(0).getRating());
+        assertEquals(List.of("Ciencia Ficción"), texts("ficcion"));
+    }
+
+    @Test
+    void ordersByRatingAndSkipsHiddenBooks() {
+        // a igual valoración, orden alfabético ("miguel de cervantes" coincide por "de")
+        assertEquals(List.of("Don Quijote de la Mancha", "Miguel de Cervantes", "Dune"), texts("d"));
+        assertEquals(List.of(), texts("moby"));
+        assertEquals(List.of(), texts("melville"));
+    }
+
+    @Test
+    void appliesUpdatesOnRefresh() {
+        suggester.index(book(3L, 1L, "Dune Messiah", "Frank Herbert", "Ciencia Ficción", 4, true));
+        assertEquals(List.of("Dune"), texts("dune")); // el árbol aún no se reconstruyó
+
+        assertTrue(suggester.refresh());
+        assertEquals(List.of("Dune Messiah"), texts("dune"));
+        assertFalse(suggester.refresh()); // sin cambios no se reconstruye
+    }
+
+    @Test
+    void ignoresAnOlderVersionOfABook() {
+        suggester.index(book(3L, 2L, "Dune Messiah", "Frank Herbert", "Ciencia Ficción", 4, true));
+        suggester.index(book(3L, 1L, "Dune", "Frank Herbert", "Ciencia Ficción", 4, true)); // llega tarde
+        suggester.refresh();
+
+        assertEquals(List.of("Dune Messiah"), texts("dune"));
+    }
+
+    @Test
+    void doesNotRestoreARemovedBookFromALateUpdate() {
+        suggester.remove(3L, 1L);
+        suggester.index(book(3L, 1L, "Dune", "Frank Herbert", "Ciencia Ficción", 4, true)); // llega tarde
+        suggester.refresh();
+
+        assertEquals(List.of(), texts("dune"));
+        assertEquals(List.of(), texts("herbert"));
+    }
+
+    @Test
+    void forgetsRemovedBooksAfterTheRetention() throws InterruptedException {
+        BookSuggester noRetention = new BookSuggester(bookRepository, 10, Duration.ZERO);
+        noRetention.afterSingletonsInstantiated();
+        noRetention.remove(3L, 0L);
+        Thread.sleep(5); // la marca queda fuera de la retención
+        noRetention.refresh();
+
+        // sin la marca, el aviso tardío vuelve a registrar el libro
+        noRetention.index(book(3L, 0L, "Dune", "Frank Herbert", "Ciencia Ficción", 4, true));
+        noRetention.refresh();
+        assertEquals(List.of("Dune"), noRetention.suggest("dune", null).stream()
+                .map(BookSuggestionDTO::getText).toList());
+    }
+
+    @Test
+    void limitsTheNumberOfSuggestions() {
+        assertEquals(1, suggester.suggest("d", 1).size());
+        assertEquals(List.of(), suggester.suggest("  ", null));
+    }
+
+    private List<String> texts(String query) {
+        return suggester.suggest(query, null).stream().map(BookSuggestionDTO::getText).toList();
+    }
+
+    private static Book book(Long id, Long version, String title, String author, String category, Integer rating,
+            boolean visible) {
+        return Book.builder().id(id).version(version).title(title).author(author).category(category)
+                .rating(rating).visible(visible).build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.relatosdepapel.ms_books_catalogue.entity.StockReservation;
+import com.relatosdepapel.ms_books_catalogue.repository.StockReservationJpaRepository;
+
+/**
+ * Purga de reservas cerradas de StockReservationSweeper (retención de 7 días
+ * para las liberadas o caducadas y de 30 días para las confirmadas).
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@DirtiesContext // añade reservas a la base de datos compartida
+class StockReservationSweeperTests {
+
+    @Autowired
+    private StockReservationSweeper sweeper;
+
+    @Autowired
+    private StockReservationJpaRepository stockReservationJpaRepository;
+
+    @Test
+    void purgesEachClosedStatusAfterItsRetention() {
+        LocalDateTime now = LocalDateTime.now();
+        stockReservationJpaRepository.saveAll(List.of(
+                reservation("released-old", StockReservation.RELEASED, now.minusDays(8)),
+                reservation("expired-old", StockReservation.EXPIRED, now.minusDays(8)),
+                reservation("released-new", StockReservation.RELEASED, now.minusDays(6)),
+                reservation("confirmed-old", StockReservation.CONFIRMED, now.minusDays(31)),
+                reservation("confirmed-new", StockReservation.CONFIRMED, now.minusDays(8)),
+                reservation("held-old", StockReservation.HELD, now.minusDays(31))));
+
+        assertEquals(3, sweeper.purge());
+        List<String> created = List.of("released-old", "expired-old", "released-new", "confirmed-old",
+                "confirmed-new", "held-old");
+        assertEquals(List.of("confirmed-new", "held-old", "released-new"),
+                stockReservationJpaRepository.findAllById(created).stream()
+                        .map(StockReservation::getReservationId).sorted().toList());
+        assertEquals(0, sweeper.purge());
+    }
+
+    private static StockReservation reservation(String id, String status, LocalDateTime createdAt) {
+        // HELD con fecha límite lejana para que el barrido no la caduque durante el test
+        return StockReservation.builder().reservationId(id).bookId(1L).quantity(1).status(status)
+                .expiresAt(createdAt.plusYears(1)).createdAt(createdAt).build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.relatosdepapel.ms_books_catalogue.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class BkTreeTests {
+    private static final List<String> VOCABULARY = List.of("quijote", "quijotes", "quimera", "mancha", "mancho",
+            "macha", "mecha", "soledad", "soledades", "senor", "senora", "anillos", "anillo", "dune", "duna", "luna",
+            "cuna", "cien", "bien", "de", "la", "el", "los");
+
+    @ParameterizedTest
+    @CsvSource({
+            "'', '', 0",
+            "abc, '', 3",
+            "'', abc, 3",
+            "quijote, quijote, 0",
+            "quijte, quijote, 1", // inserción
+            "quijotte, quijote, 1", // borrado
+            "quijoye, quijote, 1", // sustitución
+            "quijtoe, quijote, 2", // transposición = 2 operaciones
+            "dune, luna, 2",
+            "kitten, sitting, 3",
+            "senor, senora, 1"
+    })
+    void computesTheLevenshteinDistance(String a, String b, int expected) {
+        assertEquals(expected, BkTree.distance(a, b));
+        assertEquals(expected, BkTree.distance(b, a));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "quijte, 0", "quijte, 1", "quijte, 2",
+            "manca, 1", "manca, 2",
+            "soledda, 2",
+            "duma, 1", "duma, 2",
+            "xyz, 1", "xyz, 3",
+            "de, 0", "de, 1",
+            "anilos, 1",
+            "senora, 3"
+    })
+    void findsTheSameWordsAsALinearScan(String term, int maxDistance) {
+        BkTree tree = tree();
+        List<String> expected = VOCABULARY.stream()
+                .filter(word -> BkTree.distance(term, word) <= maxDistance)
+                .sorted(Comparator.comparingInt((String word) -> BkTree.distance(term, word))
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+
+        assertEquals(expected, tree.search(term, maxDistance, Integer.MAX_VALUE, word -> true));
+    }
+
+    @Test
+    void returnsTheClosestWordsUpToTheLimit() {
+        // "duna" está a 1; "dune", "luna" y "cuna" a 1 de "duna" pero a 2 de "dun"
+        assertEquals(List.of("duna", "dune"), tree().search("dun", 1, 5, word -> true));
+        assertEquals(List.of("duna"), tree().search("dun", 2, 1, word -> true));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "quijte, 2, 1", "manca, 2, 2", "duma, 2, 3", "xyz, 3, 4", "senora, 3, 5", "de, 1, 2" })
+    void keepsTheClosestDistancesUpToTheLimit(String term, int maxDistance, int limit) {
+        List<Integer> expected = VOCABULARY.stream()
+                .map(word -> BkTree.distance(term, word))
+                .filter(distance -> distance <= maxDistance)
+                .sorted()
+                .limit(limit)
+                .toList();
+
+        assertEquals(expected, tree().search(term, maxDistance, limit, word -> true).stream()
+                .map(word -> BkTree.distance(term, word))
+                .toList());
+    }
+
+    @Test
+    void stopsTheWalkOnceTheLimitCannotImprove() {
+        // todas las palabras de 3 letras con a, b, c y d: 64 palabras, 43 a distancia 2 o menos de "abc"
+        BkTree tree = new BkTree();
+        String letters = "abcd";
+        for (char a : letters.toCharArray()) {
+            for (char b : letters.toCharArray()) {
+                for (char c : letters.toCharArray()) {
+                    tree.add("" + a + b + c);
+                }
+            }
+        }
+        AtomicInteger unlimited = new AtomicInteger();
+        AtomicInteger limited = new AtomicInteger();
+
+        tree.search("abc", 2, Integer.MAX_VALUE, word -> unlimited.incrementAndGet() > 0);
+        assertEquals(List.of("abc"), tree.search("abc", 2, 1, word -> limited.incrementAndGet() > 0));
+        // con la coincidencia exacta ninguna otra rama puede mejorarla
+        assertTrue(limited.get() < unlimited.get() / 2, limited + " de " + unlimited);
+    }
+
+    @Test
+    void skipsFilteredWords() {
+        assertEquals(List.of("dune"), tree().search("dun", 1, 5, word -> !word.equals("duna")));
+    }
+
+    @Test
+    void addsEachWordOnce() {
+        BkTree tree = tree();
+
+        assertFalse(tree.add("mancha"));
+        assertTrue(tree.add("manchas"));
+        assertEquals(VOCABULARY.size() + 1, tree.size());
+        assertEquals(List.of(), new BkTree().search("mancha", 2, 5, word -> true));
+    }
+
+    private static BkTree tree() {
+        BkTree tree = new BkTree();
+        VOCABULARY.forEach(tree::add);
+        return tree;
+    }
+}
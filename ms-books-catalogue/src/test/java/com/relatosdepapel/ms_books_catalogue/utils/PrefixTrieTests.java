@@ -0,0 +1,76 @@
+package com.relatosdepapel.ms_books_catalogue.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class PrefixTrieTests {
+
+    @Test
+    void splitsEdgesWhereKeysDiverge() {
+        // raíz → "r" → {"om" → {"a" → {"", "n" → {"ce", "o"}}}, "ube" → {"ns", "r"}}
+        PrefixTrie<String> trie = byKey(List.of("roma", "romano", "romance", "rubens", "ruber"), 10);
+
+        assertEquals(List.of("roma", "romance", "romano", "rubens", "ruber"), trie.find("r", 10));
+        assertEquals(List.of("roma", "romance", "romano"), trie.find("rom", 10));
+        assertEquals(List.of("romance", "romano"), trie.find("roman", 10));
+        assertEquals(List.of("romano"), trie.find("romano", 10));
+        assertEquals(List.of("rubens", "ruber"), trie.find("rube", 10));
+        assertEquals(List.of(), trie.find("romanos", 10));
+        assertEquals(List.of(), trie.find("s", 10));
+    }
+
+    @Test
+    void matchesAPrefixThatEndsInsideALabel() {
+        PrefixTrie<String> trie = byKey(List.of("quijote", "quimera"), 10);
+
+        // "qui" es la etiqueta común; "jote" y "mera" son etiquetas de un solo tramo
+        assertEquals(List.of("quijote", "quimera"), trie.find("qu", 10));
+        assertEquals(List.of("quijote"), trie.find("quij", 10));
+        assertEquals(List.of("quijote"), trie.find("quijot", 10));
+        assertEquals(List.of(), trie.find("quijx", 10)); // difiere dentro de la etiqueta
+        assertEquals(List.of(), trie.find("quijotes", 10)); // sigue después de la última etiqueta
+    }
+
+    @Test
+    void keepsTheBestValuesOfEachPrefixInRankingOrder() {
+        Map<String, Integer> ratings = Map.of("dune", 4, "don quijote", 5, "dracula", 3, "drama", 1);
+        PrefixTrie<String> trie = PrefixTrie.build(List.copyOf(ratings.keySet()), List::of,
+                Comparator.comparing(ratings::get, Comparator.reverseOrder()), 2);
+
+        assertEquals(List.of("don quijote", "dune"), trie.find("d", 10)); // solo maxResults por nodo
+        assertEquals(List.of("don quijote"), trie.find("d", 1));
+        assertEquals(List.of("dracula", "drama"), trie.find("dr", 10));
+        assertEquals(List.of("don quijote", "dune"), trie.find("", 10));
+    }
+
+    @Test
+    void returnsAValueOnceAlthoughSeveralOfItsKeysMatch() {
+        List<String> values = List.of("la casa de la playa", "casa verde");
+        PrefixTrie<String> trie = PrefixTrie.build(values, value -> List.of(value.split(" ")),
+                Comparator.naturalOrder(), 10);
+
+        assertEquals(List.of("casa verde", "la casa de la playa"), trie.find("casa", 10));
+        assertEquals(List.of("la casa de la playa"), trie.find("la", 10));
+        assertEquals(List.of("la casa de la playa"), trie.find("p", 10));
+    }
+
+    @Test
+    void findsNothingInAnEmptyTrie() {
+        PrefixTrie<String> trie = byKey(List.of(), 10);
+
+        assertEquals(List.of(), trie.find("a", 10));
+        assertEquals(List.of(), trie.find("", 10));
+    }
+
+    /**
+     * Árbol donde cada valor es su propia clave, ordenado alfabéticamente.
+     */
+    private static PrefixTrie<String> byKey(List<String> values, int maxResults) {
+        return PrefixTrie.build(values, List::of, Comparator.naturalOrder(), maxResults);
+    }
+}
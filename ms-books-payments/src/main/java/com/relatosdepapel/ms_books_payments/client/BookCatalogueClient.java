@@ -1,24 +1,59 @@
 package com.relatosdepapel.ms_books_payments.client;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
+import com.relatosdepapel.ms_books_payments.config.CacheConfig;
 import com.relatosdepapel.ms_books_payments.dto.BookAvailabilityDTO;
-import com.relatosdepapel.ms_books_payments.dto.StockUpdateDTO;
+import com.relatosdepapel.ms_books_payments.dto.StockReservationDTO;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
 
 /**
  * Cliente HTTP para comunicarse con MS Books Catalogue.
  * Permite verificar disponibilidad y actualizar stock de libros.
+ * Mantiene una cache cercana (TTL corto) de la disponibilidad para no repetir
+ * la llamada remota en compras seguidas del mismo libro; el stock cacheado es
+ * solo una pista, el catálogo lo valida de forma definitiva al reservar.
+ * Todas las llamadas remotas pasan por un bulkhead y un circuit breaker
+ * (CatalogueResilienceConfig): si el catálogo está caído o saturado fallan al
+ * instante con CallNotPermittedException o BulkheadFullException. Las
+ * lecturas de disponibilidad se duplican en otra instancia si tardan más de lo
+ * habitual (CatalogueHedger, payments.catalogue.hedging.*).
+ * Las peticiones salen por CatalogueTransport: RestTemplate bloqueante o
+ * WebClient no bloqueante según payments.catalogue.client.
  */
 @Component // Registra como componente de Spring (se puede inyectar)
 @RequiredArgsConstructor // Lombok: crea constructor con dependencias
 public class BookCatalogueClient {
-    // URL base del microservicio de catálogo (nombre Eureka, NO IP:puerto)
-    private static final String CATALOGUE_SERVICE_URL = "http://MS-BOOKS-CATALOGUE";
+    // Transporte HTTP al catálogo (RestTemplate o WebClient)
+    private final CatalogueTransport transport;
+
+    // CacheManager para la cache cercana de disponibilidad
+    private final CacheManager cacheManager;
+
+    // Circuit breaker y bulkhead de las llamadas al catálogo
+    private final CircuitBreaker catalogueCircuitBreaker;
+    private final Bulkhead catalogueBulkhead;
 
-    // RestTemplate inyectado automáticamente
-    private final RestTemplate restTemplate;
+    // Cobertura (hedging) de las lecturas de disponibilidad
+    private final CatalogueHedger hedger;
 
     /**
      * Verifica la disponibilidad de un libro antes de crear un pago.
@@ -28,54 +63,192 @@ public class BookCatalogueClient {
      * @param bookId ID del libro a verificar
      * @return BookAvailabilityDTO con información de disponibilidad
      * @throws HttpClientErrorException.NotFound si el libro no existe (404)
+     * @throws CallNotPermittedException         si el circuito está abierto
+     * @throws BulkheadFullException             si hay demasiadas llamadas en
+     *                                           curso
      */
     public BookAvailabilityDTO checkAvailability(Long bookId) {
-        // Construir la URL completa
-        String url = CATALOGUE_SERVICE_URL + "/api/books/" + bookId + "/availability";
+        // Construir la ruta
+        String path = "/api/books/" + bookId + "/availability";
 
         // Hacer petición GET y convertir respuesta a BookAvailabilityDTO
         // @LoadBalanced convierte MS-BOOKS-CATALOGUE a IP:puerto real
-        return restTemplate.getForObject(url, BookAvailabilityDTO.class);
+        BookAvailabilityDTO availability = hedger.execute(
+                call(transport.get(path, new ParameterizedTypeReference<BookAvailabilityDTO>() {
+                }))).block();
+
+        // Refrescar la cache cercana con el dato recién leído
+        if (availability != null) {
+            availabilityCache().put(bookId, availability);
+        }
+        return availability;
+    }
+
+    /**
+     * Obtiene la disponibilidad de un libro desde la cache cercana, llamando al
+     * catálogo solo si no está cacheada o ha expirado.
+     * Útil para validar título, precio y visibilidad; el stock puede estar
+     * desfasado unos segundos.
+     * 
+     * @param bookId ID del libro a verificar
+     * @return BookAvailabilityDTO cacheado o recién obtenido del catálogo
+     * @throws HttpClientErrorException.NotFound si el libro no existe (404)
+     */
+    public BookAvailabilityDTO getCachedAvailability(Long bookId) {
+        BookAvailabilityDTO cached = availabilityCache().get(bookId, BookAvailabilityDTO.class);
+        if (cached != null) {
+            return cached; // acierto en la cache cercana
+        }
+        return checkAvailability(bookId);
     }
 
     /**
-     * Decrementa el stock de un libro después de crear un pago exitoso.
+     * Verifica la disponibilidad de varios libros en una sola petición.
      * 
-     * Llama a: PATCH http://MS-BOOKS-CATALOGUE/api/books/{id}/stock
-     * Body: {\"quantity\": -N} (negativo para decrementar)
+     * Llama a: GET http://MS-BOOKS-CATALOGUE/api/books/availability?ids=1,2,3
      * 
-     * @param bookId   ID del libro
-     * @param quantity Cantidad a decrementar (se envía como NEGATIVO)
-     * @throws HttpClientErrorException.NotFound   si el libro no existe (404)
-     * @throws HttpClientErrorException.BadRequest si no hay suficiente stock (400)
+     * @param bookIds IDs de los libros a verificar
+     * @return Mapa ID → BookAvailabilityDTO (los libros inexistentes se omiten)
      */
-    public void decrementStock(Long bookId, Integer quantity) {
-        String url = CATALOGUE_SERVICE_URL + "/api/books/" + bookId + "/stock";
+    public Map<Long, BookAvailabilityDTO> checkAvailability(Collection<Long> bookIds) {
+        String ids = bookIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        String path = "/api/books/availability?ids=" + ids;
 
-        // Crear DTO con cantidad NEGATIVA para decrementar
-        StockUpdateDTO stockUpdate = new StockUpdateDTO(-quantity); // Signo negativo
+        // Hacer petición GET y convertir el cuerpo en Map<Long, BookAvailabilityDTO>
+        Map<Long, BookAvailabilityDTO> availability = hedger.execute(
+                call(transport.get(path, new ParameterizedTypeReference<Map<Long, BookAvailabilityDTO>>() {
+                }))).block();
+        if (availability == null) {
+            return Map.of();
+        }
 
-        // Hacer petición PATCH (actualización parcial)
-        restTemplate.patchForObject(url, stockUpdate, Void.class);
+        // Refrescar la cache cercana con los datos recién leídos
+        Cache cache = availabilityCache();
+        availability.forEach(cache::put);
+        return availability;
     }
 
     /**
-     * Restaura el stock de un libro cuando se cancela un pago.
+     * Obtiene la disponibilidad de varios libros usando la cache cercana y
+     * pidiendo al catálogo, en una sola petición, los que no están cacheados y
+     * los que tienen una entrada que no sirve (ej: stock cacheado insuficiente,
+     * que puede estar desfasado).
      * 
-     * Llama a: PATCH http://MS-BOOKS-CATALOGUE/api/books/{id}/stock
-     * Body: {\"quantity\": +N} (positivo para incrementar)
+     * @param bookIds IDs de los libros a verificar
+     * @param usable  Indica si la entrada cacheada de un libro se puede usar
+     * @return Mapa ID → BookAvailabilityDTO (los libros inexistentes se omiten)
+     */
+    public Map<Long, BookAvailabilityDTO> getCachedAvailability(Collection<Long> bookIds,
+            BiPredicate<Long, BookAvailabilityDTO> usable) {
+        Cache cache = availabilityCache();
+        Map<Long, BookAvailabilityDTO> result = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            BookAvailabilityDTO cached = cache.get(bookId, BookAvailabilityDTO.class);
+            if (cached != null && usable.test(bookId, cached)) {
+                result.put(bookId, cached); // acierto en la cache cercana
+            } else if (!misses.contains(bookId)) {
+                misses.add(bookId);
+            }
+        }
+        if (!misses.isEmpty()) {
+            result.putAll(checkAvailability(misses));
+        }
+        return result;
+    }
+
+    /**
+     * Reserva stock para varios pagos en una sola petición (todo o nada). El
+     * stock queda retenido en el catálogo hasta que se confirme, se libere o
+     * caduque la reserva. Reenviar la misma reserva no retiene stock dos veces.
      * 
-     * @param bookId   ID del libro
-     * @param quantity Cantidad a restaurar (se envía como POSITIVO)
-     * @throws HttpClientErrorException.NotFound si el libro no existe (404)
+     * Llama a: POST http://MS-BOOKS-CATALOGUE/api/books/reservations
+     * Body: [{\"reservationId\": \"payment-1\", \"bookId\": 1, \"quantity\": N}, ...]
+     * 
+     * @param reservations Reservas a crear
+     * @throws HttpClientErrorException.NotFound   si algún libro no existe (404)
+     * @throws HttpClientErrorException.BadRequest si algún libro no tiene
+     *                                             suficiente stock (400)
      */
-    public void restoreStock(Long bookId, Integer quantity) {
-        String url = CATALOGUE_SERVICE_URL + "/api/books/" + bookId + "/stock";
+    public void reserveStock(List<StockReservationDTO> reservations) {
+        try {
+            // Hacer petición POST (el catálogo crea todas las reservas o ninguna)
+            call(transport.post("/api/books/reservations", reservations)).block();
+        } finally {
+            // El stock ha cambiado (o la pista estaba desfasada): descartar las
+            // entradas cacheadas
+            evict(reservations);
+        }
+    }
 
-        // Crear DTO con cantidad POSITIVA para incrementar
-        StockUpdateDTO stockUpdate = new StockUpdateDTO(quantity); // Signo positivo
+    /**
+     * Confirma varias reservas: el stock queda descontado definitivamente.
+     * 
+     * Llama a: POST http://MS-BOOKS-CATALOGUE/api/books/reservations/confirm
+     * Body: [\"payment-1\", ...]
+     * 
+     * @param reservations Reservas a confirmar
+     * @throws HttpClientErrorException.Conflict si alguna reserva caducó o fue
+     *                                           liberada (409)
+     */
+    public void confirmReservations(List<StockReservationDTO> reservations) {
+        call(transport.post("/api/books/reservations/confirm", reservationIds(reservations))).block();
+    }
 
-        // Hacer petición PATCH
-        restTemplate.patchForObject(url, stockUpdate, Void.class);
+    /**
+     * Libera varias reservas y devuelve su stock. Liberar una reserva ya
+     * liberada o caducada no tiene efecto.
+     * 
+     * Llama a: POST http://MS-BOOKS-CATALOGUE/api/books/reservations/release
+     * Body: [\"payment-1\", ...]
+     * 
+     * @param reservations Reservas a liberar
+     * @throws HttpClientErrorException.NotFound si alguna reserva no existe (404)
+     */
+    public void releaseReservations(List<StockReservationDTO> reservations) {
+        try {
+            call(transport.post("/api/books/reservations/release", reservationIds(reservations))).block();
+        } finally {
+            // El stock ha cambiado: descartar las entradas cacheadas
+            evict(reservations);
+        }
+    }
+
+    // MÉTODOS HELPER
+
+    /**
+     * Hace pasar una llamada al catálogo por el circuit breaker y el bulkhead.
+     * El bulkhead va por fuera para que el circuit breaker solo registre
+     * llamadas que llegaron a enviarse.
+     * 
+     * @param request Llamada HTTP al catálogo
+     * @return Llamada protegida (se ejecuta al suscribirse o con block())
+     */
+    private <T> Mono<T> call(Mono<T> request) {
+        return request
+                .transformDeferred(CircuitBreakerOperator.of(catalogueCircuitBreaker))
+                .transformDeferred(BulkheadOperator.of(catalogueBulkhead));
+    }
+
+    /**
+     * IDs de las reservas.
+     */
+    private List<String> reservationIds(List<StockReservationDTO> reservations) {
+        return reservations.stream().map(StockReservationDTO::getReservationId).toList();
+    }
+
+    /**
+     * Descarta la disponibilidad cacheada de los libros de las reservas.
+     */
+    private void evict(List<StockReservationDTO> reservations) {
+        Cache cache = availabilityCache();
+        reservations.forEach(reservation -> cache.evict(reservation.getBookId()));
+    }
+
+    /**
+     * Obtiene la cache cercana de disponibilidad.
+     */
+    private Cache availabilityCache() {
+        return cacheManager.getCache(CacheConfig.CATALOGUE_AVAILABILITY);
     }
-}
\ No newline at end of file
+}
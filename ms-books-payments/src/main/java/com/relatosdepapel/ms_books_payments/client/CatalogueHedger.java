@@ -0,0 +1,211 @@
+package com.relatosdepapel.ms_books_payments.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Envía peticiones idempotentes al catálogo con cobertura (hedging): si la
+ * primera petición no responde en el percentil configurado (p95) de las
+ * latencias recientes, se lanza una segunda, que el balanceador (round robin)
+ * envía normalmente a otra instancia, y se usa la primera respuesta correcta.
+ * Así una instancia lenta no marca la latencia de cola de los pagos.
+ * Las peticiones duplicadas se limitan a una fracción (max-rate) del total
+ * para no duplicar la carga del catálogo cuando está lento entero.
+ * Solo debe usarse con lecturas (GET de disponibilidad).
+ */
+@Component
+public class CatalogueHedger {
+    // Latencias recientes con las que se calcula la espera antes de duplicar
+    private static final int WINDOW = 256;
+    // Cada cuántas muestras se recalcula la espera
+    private static final int RECALCULATE_EVERY = 16;
+    // Peticiones duplicadas que se pueden acumular sin gastar
+    private static final double MAX_BUDGET = 10;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final double maxRate;
+    private final Scheduler scheduler;
+    private final Counter hedged;
+    private final Counter hedgeWins;
+
+    private final long[] samples = new long[WINDOW]; // ventana circular
+    private int sampleCount;
+    private volatile long delayNanos;
+    private double budget = MAX_BUDGET;
+
+    public CatalogueHedger(
+            @Value("${payments.catalogue.hedging.enabled:false}") boolean enabled,
+            @Value("${payments.catalogue.hedging.percentile:0.95}") double percentile,
+            @Value("${payments.catalogue.hedging.min-delay:20ms}") Duration minDelay,
+            @Value("${payments.catalogue.hedging.max-delay:1s}") Duration maxDelay,
+            @Value("${payments.catalogue.hedging.max-rate:0.1}") double maxRate,
+            @Qualifier("catalogueHedgeExecutor") Executor executor,
+            MeterRegistry registry) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxRate = maxRate;
+        this.scheduler = Schedulers.fromExecutor(executor);
+        // Hasta tener latencias medidas se espera el máximo
+        this.delayNanos = maxDelayNanos;
+        this.hedged = Counter.builder("payments.catalogue.hedging.requests")
+                .description("Peticiones de disponibilidad duplicadas por tardar más del percentil")
+                .register(registry);
+        this.hedgeWins = Counter.builder("payments.catalogue.hedging.wins")
+                .description("Peticiones duplicadas que respondieron antes que la original")
+                .register(registry);
+        Gauge.builder("payments.catalogue.hedging.delay", () -> delayNanos / 1_000_000.0)
+                .description("Espera actual (ms) antes de duplicar una petición")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    /**
+     * Aplica la cobertura a una petición idempotente. Cada intento se suscribe
+     * en catalogueHedgeExecutor, de modo que una petición bloqueante
+     * (RestTemplate) no impide lanzar la segunda.
+     *
+     * @param request Petición al catálogo (se puede suscribir dos veces)
+     * @return Primera respuesta correcta; si fallan las dos, el error de la
+     *         petición original
+     */
+    public <T> Mono<T> execute(Mono<T> request) {
+        if (!enabled) {
+            return request;
+        }
+        return Mono.defer(() -> {
+            Mono<T> attempt = request.subscribeOn(scheduler);
+            long start = System.nanoTime();
+            Mono<T> primary = attempt.doOnNext(value -> record(System.nanoTime() - start));
+            if (!acquireBudget()) {
+                return primary;
+            }
+            return Mono.create(sink -> race(sink, primary, attempt));
+        });
+    }
+
+    /**
+     * Lanza la petición original y, si no ha respondido pasada la espera
+     * actual, la duplicada. Entrega la primera respuesta correcta; si la
+     * original falla antes de la espera, su error se entrega sin duplicarla.
+     */
+    private <T> void race(MonoSink<T> sink, Mono<T> primary, Mono<T> attempt) {
+        Object lock = new Object();
+        AtomicBoolean done = new AtomicBoolean();
+        boolean[] hedgeStarted = new boolean[1]; // protegidos por lock
+        int[] failures = new int[1];
+        Throwable[] primaryError = new Throwable[1];
+        Disposable.Composite subscriptions = Disposables.composite();
+        // La petición que pierde se deja terminar (su respuesta se descarta):
+        // una llamada bloqueante no se puede interrumpir. Solo se cancela todo si
+        // se cancela la suscripción
+        sink.onCancel(subscriptions);
+
+        subscriptions.add(primary.subscribe(
+                value -> deliver(sink, done, value, false),
+                error -> {
+                    boolean fail;
+                    synchronized (lock) {
+                        primaryError[0] = error;
+                        fail = !hedgeStarted[0] || ++failures[0] == 2;
+                    }
+                    if (fail && done.compareAndSet(false, true)) {
+                        sink.error(error);
+                    }
+                },
+                () -> deliver(sink, done, null, false)));
+
+        subscriptions.add(Mono.delay(Duration.ofNanos(delayNanos)).subscribe(tick -> {
+            synchronized (lock) {
+                if (done.get() || primaryError[0] != null) {
+                    return;
+                }
+                hedgeStarted[0] = true;
+            }
+            // La petición original tarda más de lo habitual: duplicarla
+            spendBudget();
+            hedged.increment();
+            subscriptions.add(attempt.subscribe(
+                    value -> deliver(sink, done, value, true),
+                    error -> {
+                        Throwable original;
+                        synchronized (lock) {
+                            original = ++failures[0] == 2 ? primaryError[0] : null;
+                        }
+                        if (original != null && done.compareAndSet(false, true)) {
+                            sink.error(original);
+                        }
+                    },
+                    () -> deliver(sink, done, null, true)));
+        }));
+    }
+
+    /**
+     * Entrega la primera respuesta (o la respuesta vacía) y descarta las demás.
+     */
+    private <T> void deliver(MonoSink<T> sink, AtomicBoolean done, T value, boolean fromHedge) {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        if (fromHedge) {
+            hedgeWins.increment();
+        }
+        if (value == null) {
+            sink.success();
+        } else {
+            sink.success(value);
+        }
+    }
+
+    /**
+     * Suma la parte de presupuesto que aporta cada petición e indica si queda
+     * presupuesto para duplicarla.
+     */
+    private synchronized boolean acquireBudget() {
+        budget = Math.min(budget + maxRate, MAX_BUDGET);
+        return budget >= 1;
+    }
+
+    /**
+     * Gasta una petición duplicada del presupuesto.
+     */
+    private synchronized void spendBudget() {
+        budget = Math.max(budget - 1, 0);
+    }
+
+    /**
+     * Registra la latencia de una petición correcta y recalcula cada
+     * RECALCULATE_EVERY muestras la espera antes de duplicar.
+     */
+    private synchronized void record(long latencyNanos) {
+        samples[sampleCount % WINDOW] = latencyNanos;
+        sampleCount++;
+        if (sampleCount % RECALCULATE_EVERY != 0) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(samples, Math.min(sampleCount, WINDOW));
+        Arrays.sort(sorted);
+        long value = sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+        delayNanos = Math.clamp(value, minDelayNanos, maxDelayNanos);
+    }
+}
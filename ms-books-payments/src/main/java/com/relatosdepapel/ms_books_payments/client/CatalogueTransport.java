@@ -0,0 +1,42 @@
+package com.relatosdepapel.ms_books_payments.client;
+
+import org.springframework.core.ParameterizedTypeReference;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Transporte HTTP que usa BookCatalogueClient para llamar a MS Books Catalogue.
+ * Se elige con payments.catalogue.client:
+ * - rest (por defecto): RestTemplate bloqueante (RestTemplateCatalogueTransport)
+ * - webclient: WebClient no bloqueante sobre Reactor Netty
+ * (WebClientCatalogueTransport)
+ *
+ * Las dos implementaciones devuelven Mono para componerse igual con el circuit
+ * breaker, el bulkhead y la cobertura de BookCatalogueClient, y notifican los
+ * errores con las mismas excepciones que RestTemplate:
+ * HttpClientErrorException (4xx), HttpServerErrorException (5xx) y
+ * ResourceAccessException (conexión o timeout).
+ */
+public interface CatalogueTransport {
+    /** URL base del microservicio de catálogo (nombre Eureka, NO IP:puerto) */
+    String CATALOGUE_SERVICE_URL = "http://MS-BOOKS-CATALOGUE";
+
+    /**
+     * Petición GET.
+     *
+     * @param path Ruta en el catálogo (ej: /api/books/1/availability)
+     * @param type Tipo del cuerpo de la respuesta
+     * @return Cuerpo de la respuesta (vacío si no tiene)
+     */
+    <T> Mono<T> get(String path, ParameterizedTypeReference<T> type);
+
+    /**
+     * Petición POST que ignora el cuerpo de la respuesta.
+     *
+     * @param path Ruta en el catálogo
+     * @param body Cuerpo de la petición (JSON)
+     * @return Mono que termina cuando el catálogo responde 2xx
+     */
+    Mono<Void> post(String path, Object body);
+
+}
@@ -0,0 +1,35 @@
+package com.relatosdepapel.ms_books_payments.client;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Transporte bloqueante al catálogo con el RestTemplate balanceado
+ * (RestTemplateConfig). La petición se hace en el hilo que se suscribe al Mono;
+ * con hilos virtuales (spring.threads.virtual.enabled) esperar la respuesta no
+ * ocupa un hilo del sistema.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.catalogue.client", havingValue = "rest", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RestTemplateCatalogueTransport implements CatalogueTransport {
+    // RestTemplate con @LoadBalanced y pool de conexiones
+    private final RestTemplate restTemplate;
+
+    @Override
+    public <T> Mono<T> get(String path, ParameterizedTypeReference<T> type) {
+        return Mono.fromCallable(() -> restTemplate.exchange(CATALOGUE_SERVICE_URL + path, HttpMethod.GET, null, type)
+                .getBody());
+    }
+
+    @Override
+    public Mono<Void> post(String path, Object body) {
+        return Mono.fromRunnable(() -> restTemplate.postForObject(CATALOGUE_SERVICE_URL + path, body, Void.class));
+    }
+}
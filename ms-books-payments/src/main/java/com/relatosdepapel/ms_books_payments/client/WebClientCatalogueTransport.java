@@ -0,0 +1,80 @@
+package com.relatosdepapel.ms_books_payments.client;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Transporte no bloqueante al catálogo con WebClient sobre Reactor Netty
+ * (WebClientConfig). Las peticiones en curso no ocupan ningún hilo: unos pocos
+ * hilos de Netty atienden miles de llamadas simultáneas al catálogo.
+ * Los errores se traducen a las excepciones de RestTemplate para que el resto
+ * del servicio (saga, circuit breaker, controladores) los trate igual.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.catalogue.client", havingValue = "webclient")
+public class WebClientCatalogueTransport implements CatalogueTransport {
+    // WebClient con @LoadBalanced y pool de conexiones de Reactor Netty
+    private final WebClient webClient;
+
+    public WebClientCatalogueTransport(@Qualifier("catalogueWebClientBuilder") WebClient.Builder builder) {
+        this.webClient = builder.baseUrl(CATALOGUE_SERVICE_URL).build();
+    }
+
+    @Override
+    public <T> Mono<T> get(String path, ParameterizedTypeReference<T> type) {
+        return webClient.get()
+                .uri(path)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> response.createException().map(this::toRestException))
+                .bodyToMono(type)
+                .onErrorMap(WebClientRequestException.class, this::toRestException);
+    }
+
+    @Override
+    public Mono<Void> post(String path, Object body) {
+        return webClient.post()
+                .uri(path)
+                .bodyValue(body)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> response.createException().map(this::toRestException))
+                .toBodilessEntity()
+                .onErrorMap(WebClientRequestException.class, this::toRestException)
+                .then();
+    }
+
+    // MÉTODOS HELPER
+
+    /**
+     * Traduce una respuesta de error a HttpClientErrorException (4xx) o
+     * HttpServerErrorException (5xx y otros).
+     */
+    private RuntimeException toRestException(WebClientResponseException e) {
+        if (e.getStatusCode().is4xxClientError()) {
+            return HttpClientErrorException.create(e.getStatusCode(), e.getStatusText(), e.getHeaders(),
+                    e.getResponseBodyAsByteArray(), null);
+        }
+        return HttpServerErrorException.create(e.getStatusCode(), e.getStatusText(), e.getHeaders(),
+                e.getResponseBodyAsByteArray(), null);
+    }
+
+    /**
+     * Traduce un error de conexión o timeout a ResourceAccessException.
+     */
+    private RuntimeException toRestException(WebClientRequestException e) {
+        ResourceAccessException error = new ResourceAccessException(
+                "Error de E/S en " + e.getMethod() + " " + e.getUri() + ": " + e.getMessage());
+        error.initCause(e);
+        return error;
+    }
+}
@@ -0,0 +1,17 @@
+package com.relatosdepapel.ms_books_payments.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de la cache en memoria de ms-books-payments.
+ * El proveedor (Caffeine), el tamaño máximo y el TTL se definen en
+ * spring.cache del application.yaml; Actuator publica las métricas
+ * cache.gets (hit/miss) y cache.evictions de cada cache.
+ */
+@Configuration
+@EnableCaching // Habilita el CacheManager de Spring
+public class CacheConfig {
+    /** Cache cercana de BookAvailabilityDTO por ID de libro */
+    public static final String CATALOGUE_AVAILABILITY = "catalogueAvailability";
+}
@@ -0,0 +1,172 @@
+package com.relatosdepapel.ms_books_payments.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.HttpClientErrorException;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Configuración del circuit breaker y del bulkhead que protegen las llamadas
+ * de BookCatalogueClient al catálogo.
+ * Con el circuito abierto las llamadas fallan al instante
+ * (CallNotPermittedException) en lugar de esperar al timeout; pasado
+ * wait-duration-in-open-state se dejan pasar unas pocas llamadas de prueba
+ * (semiabierto) y, si responden bien, el circuito se cierra.
+ * El bulkhead limita las llamadas simultáneas; las que sobran fallan al
+ * instante (BulkheadFullException) sin ocupar una conexión del pool.
+ * Las lecturas de disponibilidad pueden además duplicarse (CatalogueHedger)
+ * cuando una instancia tarda más de lo habitual.
+ */
+@Configuration
+public class CatalogueResilienceConfig {
+    /** Nombre del circuit breaker y del bulkhead en las métricas */
+    public static final String CATALOGUE = "catalogue";
+
+    /**
+     * Registro de circuit breakers con la configuración de
+     * payments.catalogue.circuit-breaker.*.
+     * Los errores 4xx son respuestas del catálogo (libro inexistente, sin
+     * stock...) y no cuentan como fallos.
+     *
+     * @param failureRateThreshold       Porcentaje de fallos que abre el
+     *                                   circuito
+     * @param slowCallRateThreshold      Porcentaje de llamadas lentas que abre
+     *                                   el circuito
+     * @param slowCallDuration           Duración a partir de la cual una llamada
+     *                                   es lenta
+     * @param slidingWindowSize          Últimas llamadas que se evalúan
+     * @param minimumNumberOfCalls       Llamadas mínimas antes de evaluar
+     * @param waitDurationInOpenState    Tiempo con el circuito abierto antes de
+     *                                   probar de nuevo
+     * @param permittedCallsInHalfOpen   Llamadas de prueba en semiabierto
+     * @return Registro de circuit breakers
+     */
+    @Bean
+    public CircuitBreakerRegistry catalogueCircuitBreakerRegistry(
+            @Value("${payments.catalogue.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${payments.catalogue.circuit-breaker.slow-call-rate-threshold:80}") float slowCallRateThreshold,
+            @Value("${payments.catalogue.circuit-breaker.slow-call-duration:2s}") Duration slowCallDuration,
+            @Value("${payments.catalogue.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${payments.catalogue.circuit-breaker.minimum-number-of-calls:10}") int minimumNumberOfCalls,
+            @Value("${payments.catalogue.circuit-breaker.wait-duration-in-open-state:10s}") Duration waitDurationInOpenState,
+            @Value("${payments.catalogue.circuit-breaker.permitted-calls-in-half-open-state:3}") int permittedCallsInHalfOpen) {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpen)
+                .ignoreExceptions(HttpClientErrorException.class) // 4xx: el catálogo responde
+                .build());
+    }
+
+    /**
+     * Circuit breaker de las llamadas al catálogo.
+     *
+     * @param registry Registro de circuit breakers
+     * @return Circuit breaker del catálogo
+     */
+    @Bean
+    public CircuitBreaker catalogueCircuitBreaker(CircuitBreakerRegistry registry) {
+        return registry.circuitBreaker(CATALOGUE);
+    }
+
+    /**
+     * Registro de bulkheads con la configuración de payments.catalogue.bulkhead.*.
+     *
+     * @param maxConcurrentCalls Llamadas simultáneas máximas al catálogo
+     * @param maxWaitDuration    Espera máxima por un hueco (0: fallo inmediato)
+     * @return Registro de bulkheads
+     */
+    @Bean
+    public BulkheadRegistry catalogueBulkheadRegistry(
+            @Value("${payments.catalogue.bulkhead.max-concurrent-calls:200}") int maxConcurrentCalls,
+            @Value("${payments.catalogue.bulkhead.max-wait-duration:0ms}") Duration maxWaitDuration) {
+        return BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWaitDuration)
+                .build());
+    }
+
+    /**
+     * Bulkhead de las llamadas al catálogo.
+     *
+     * @param registry Registro de bulkheads
+     * @return Bulkhead del catálogo
+     */
+    @Bean
+    public Bulkhead catalogueBulkhead(BulkheadRegistry registry) {
+        return registry.bulkhead(CATALOGUE);
+    }
+
+    /**
+     * Publica en Actuator el estado del circuit breaker
+     * (resilience4j.circuitbreaker.state, .calls, .failure.rate,
+     * .not.permitted.calls) con la etiqueta name=catalogue.
+     *
+     * @param registry Registro de circuit breakers
+     * @return Binder de métricas
+     */
+    @Bean
+    public MeterBinder catalogueCircuitBreakerMetrics(CircuitBreakerRegistry registry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry);
+    }
+
+    /**
+     * Publica en Actuator el estado del bulkhead
+     * (resilience4j.bulkhead.available.concurrent.calls,
+     * .max.allowed.concurrent.calls) con la etiqueta name=catalogue.
+     *
+     * @param registry Registro de bulkheads
+     * @return Binder de métricas
+     */
+    @Bean
+    public MeterBinder catalogueBulkheadMetrics(BulkheadRegistry registry) {
+        return TaggedBulkheadMetrics.ofBulkheadRegistry(registry);
+    }
+
+    /**
+     * Crea el executor en el que se suscriben las peticiones de disponibilidad
+     * con cobertura (CatalogueHedger). Con spring.threads.virtual.enabled cada
+     * petición usa un hilo virtual nuevo; sin hilos virtuales se usa un pool
+     * del tamaño del bulkhead (nunca hay más peticiones en curso), cuyos hilos
+     * se liberan tras un minuto sin uso.
+     *
+     * @param maxConcurrentCalls Llamadas simultáneas máximas al catálogo
+     * @param virtualThreads     Si se usan hilos virtuales
+     * @return Executor de las peticiones con cobertura
+     */
+    @Bean
+    public AsyncTaskExecutor catalogueHedgeExecutor(
+            @Value("${payments.catalogue.bulkhead.max-concurrent-calls:200}") int maxConcurrentCalls,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("catalogue-hedge-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentCalls);
+        executor.setMaxPoolSize(maxConcurrentCalls);
+        executor.setAllowCoreThreadTimeOut(true); // sin tráfico no se mantienen hilos
+        executor.setThreadNamePrefix("catalogue-hedge-");
+        return executor;
+    }
+}
@@ -1,11 +1,25 @@
 package com.relatosdepapel.ms_books_payments.config;
 
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
 /**
  * Configuración de RestTemplate para comunicación entre microservicios,
  * proporciona métodos para hacer peticiones HTTP: GET, POST, PUT, DELETE, etc.
@@ -20,13 +34,107 @@ public class RestTemplateConfig {
      *               Ejemplo: "http://MS-BOOKS-CATALOGUE" se traduce a
      *               "http://192.168.1.5:8081"
      * 
+     * @param httpClient Cliente HTTP con pool de conexiones
      * @return RestTemplate configurado para microservicios
      */
     @Bean // Crea un objeto que Spring puede inyectar en otros componentes
     @LoadBalanced // CLAVE: permite usar nombres Eureka (MS-BOOKS-CATALOGUE)
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
         RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setRequestFactory(new HttpComponentsClientHttpRequestFactory());
+        restTemplate.setRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient));
         return restTemplate;
     }
-}
\ No newline at end of file
+
+    /**
+     * Crea el pool de conexiones al catálogo (Apache HttpClient 5).
+     * Las llamadas son bloqueantes y funcionan igual en hilos de plataforma y en
+     * hilos virtuales (spring.threads.virtual.enabled); con hilos virtuales el
+     * límite de llamadas simultáneas al catálogo lo marca el pool, no el número
+     * de hilos, por lo que el pool por defecto del cliente (5 conexiones por
+     * instancia) se amplía con payments.catalogue.http.*.
+     * Los timeouts evitan que una instancia lenta del catálogo retenga los hilos
+     * de payments indefinidamente.
+     * 
+     * @param maxConnections          Conexiones máximas en total
+     * @param maxConnectionsPerRoute  Conexiones máximas por instancia del
+     *                                catálogo
+     * @param connectTimeout          Tiempo máximo para abrir la conexión TCP
+     * @param responseTimeout         Tiempo máximo de espera entre bytes de la
+     *                                respuesta
+     * @param validateAfterInactivity Inactividad tras la que se comprueba una
+     *                                conexión antes de reutilizarla
+     * @param timeToLive              Vida máxima de una conexión (permite
+     *                                repartirse entre instancias nuevas)
+     * @return Pool de conexiones
+     */
+    @Bean // El cierre lo infiere Spring (close)
+    public PoolingHttpClientConnectionManager catalogueConnectionManager(
+            @Value("${payments.catalogue.http.max-connections:200}") int maxConnections,
+            @Value("${payments.catalogue.http.max-connections-per-route:100}") int maxConnectionsPerRoute,
+            @Value("${payments.catalogue.http.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${payments.catalogue.http.response-timeout:5s}") Duration responseTimeout,
+            @Value("${payments.catalogue.http.validate-after-inactivity:2s}") Duration validateAfterInactivity,
+            @Value("${payments.catalogue.http.time-to-live:5m}") Duration timeToLive) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(responseTimeout.toMillis()))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivity.toMillis()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(timeToLive.toMillis()))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Crea el cliente HTTP sobre el pool de conexiones al catálogo.
+     * Un hilo que no consigue conexión del pool en connection-request-timeout
+     * falla en lugar de quedarse esperando; las conexiones inactivas se cierran
+     * en segundo plano tras idle-timeout.
+     * 
+     * @param connectionManager        Pool de conexiones al catálogo
+     * @param connectionRequestTimeout Tiempo máximo de espera por una conexión
+     *                                 libre del pool
+     * @param responseTimeout          Tiempo máximo de espera de la respuesta
+     * @param keepAlive                Tiempo que se mantiene abierta una conexión
+     *                                 si el catálogo no indica Keep-Alive
+     * @param idleTimeout              Inactividad tras la que se cierra una
+     *                                 conexión del pool
+     * @return Cliente HTTP
+     */
+    @Bean(destroyMethod = "close") // Cierra el cliente al parar
+    public CloseableHttpClient catalogueHttpClient(
+            PoolingHttpClientConnectionManager connectionManager,
+            @Value("${payments.catalogue.http.connection-request-timeout:2s}") Duration connectionRequestTimeout,
+            @Value("${payments.catalogue.http.response-timeout:5s}") Duration responseTimeout,
+            @Value("${payments.catalogue.http.keep-alive:30s}") Duration keepAlive,
+            @Value("${payments.catalogue.http.idle-timeout:30s}") Duration idleTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setConnectionManagerShared(true) // el pool lo cierra su propio bean
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeout.toMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout.toMillis()))
+                        .setConnectionKeepAlive(TimeValue.ofMilliseconds(keepAlive.toMillis()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout.toMillis()))
+                .build();
+    }
+
+    /**
+     * Publica en Actuator el estado del pool de conexiones al catálogo:
+     * httpcomponents.httpclient.pool.total.connections (state=leased|available),
+     * httpcomponents.httpclient.pool.total.pending y
+     * httpcomponents.httpclient.pool.total.max, con la etiqueta
+     * httpclient=catalogue.
+     * 
+     * @param connectionManager Pool de conexiones al catálogo
+     * @return Binder de métricas del pool
+     */
+    @Bean
+    public MeterBinder catalogueConnectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "catalogue");
+    }
+}
@@ -0,0 +1,47 @@
+package com.relatosdepapel.ms_books_payments.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pool de workers que ejecuta los pasos del saga de pagos (envío de comandos
+ * de stock al catálogo y transiciones de estado), fuera de los hilos HTTP.
+ */
+@Configuration
+public class SagaConfig {
+
+    /**
+     * Crea el executor del saga. Con spring.threads.virtual.enabled cada lote
+     * se ejecuta en un hilo virtual nuevo, limitando a payments.saga.workers los
+     * lotes simultáneos; sin hilos virtuales se usa un pool fijo de
+     * payments.saga.workers hilos.
+     * 
+     * @param workers        Lotes en paralelo (payments.saga.workers)
+     * @param virtualThreads Si se usan hilos virtuales
+     * @return Executor del saga
+     */
+    @Bean
+    public AsyncTaskExecutor sagaExecutor(@Value("${payments.saga.workers:4}") int workers,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("payment-saga-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(workers);
+            // Al parar, esperar a los lotes en curso antes de cerrar el contexto
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setThreadNamePrefix("payment-saga-");
+        // Al parar, terminar los lotes en curso antes de cerrar el contexto
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,17 @@
+package com.relatosdepapel.ms_books_payments.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (@Scheduled) de ms-books-payments, como la
+ * purga de claves de idempotencia caducadas o el envío del outbox de stock.
+ * Con payments.scheduling.enabled=false no se programa ninguna (los tests
+ * las ejecutan directamente).
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "payments.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
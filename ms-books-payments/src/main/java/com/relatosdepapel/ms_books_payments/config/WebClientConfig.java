@@ -0,0 +1,79 @@
+package com.relatosdepapel.ms_books_payments.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Configuración del WebClient no bloqueante hacia el catálogo, usado cuando
+ * payments.catalogue.client=webclient (WebClientCatalogueTransport).
+ * Usa los mismos límites y timeouts que el cliente bloqueante
+ * (payments.catalogue.http.*).
+ */
+@Configuration
+@ConditionalOnProperty(name = "payments.catalogue.client", havingValue = "webclient")
+public class WebClientConfig {
+
+    /**
+     * Crea el pool de conexiones de Reactor Netty hacia el catálogo. Reactor
+     * Netty mantiene un pool por instancia, por lo que su límite es
+     * max-connections-per-route. Con metrics(true) Actuator publica
+     * reactor.netty.connection.provider.active.connections, .idle.connections
+     * y .pending.connections.
+     *
+     * @param maxConnectionsPerRoute   Conexiones máximas por instancia del
+     *                                 catálogo
+     * @param connectionRequestTimeout Tiempo máximo de espera por una conexión
+     *                                 libre del pool
+     * @param idleTimeout              Inactividad tras la que se cierra una
+     *                                 conexión del pool
+     * @param timeToLive               Vida máxima de una conexión
+     * @return Pool de conexiones
+     */
+    @Bean(destroyMethod = "dispose") // Cierra las conexiones al parar
+    public ConnectionProvider catalogueConnectionProvider(
+            @Value("${payments.catalogue.http.max-connections-per-route:100}") int maxConnectionsPerRoute,
+            @Value("${payments.catalogue.http.connection-request-timeout:2s}") Duration connectionRequestTimeout,
+            @Value("${payments.catalogue.http.idle-timeout:30s}") Duration idleTimeout,
+            @Value("${payments.catalogue.http.time-to-live:5m}") Duration timeToLive) {
+        return ConnectionProvider.builder("catalogue")
+                .maxConnections(maxConnectionsPerRoute)
+                .pendingAcquireTimeout(connectionRequestTimeout)
+                .maxIdleTime(idleTimeout)
+                .maxLifeTime(timeToLive)
+                .evictInBackground(idleTimeout)
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * Crea el WebClient.Builder con balanceo de carga (@LoadBalanced resuelve
+     * MS-BOOKS-CATALOGUE con Eureka, igual que el RestTemplate).
+     *
+     * @param connectionProvider Pool de conexiones al catálogo
+     * @param connectTimeout     Tiempo máximo para abrir la conexión TCP
+     * @param responseTimeout    Tiempo máximo de espera de la respuesta
+     * @return Builder del WebClient del catálogo
+     */
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder catalogueWebClientBuilder(ConnectionProvider connectionProvider,
+            @Value("${payments.catalogue.http.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${payments.catalogue.http.response-timeout:5s}") Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+}
@@ -1,22 +1,44 @@
 package com.relatosdepapel.ms_books_payments.controller;
 
 import com.relatosdepapel.ms_books_payments.dto.ErrorResponseDTO;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatus;
+import com.relatosdepapel.ms_books_payments.entity.IdempotencyRecord;
+import com.relatosdepapel.ms_books_payments.dto.OrderLineDTO;
+import com.relatosdepapel.ms_books_payments.dto.OrderRequestDTO;
+import com.relatosdepapel.ms_books_payments.dto.OrderResponseDTO;
 import com.relatosdepapel.ms_books_payments.dto.PaymentRequestDTO;
 import com.relatosdepapel.ms_books_payments.dto.PaymentResponseDTO;
 import com.relatosdepapel.ms_books_payments.dto.PaymentStatusDTO;
 import com.relatosdepapel.ms_books_payments.exception.BookNotFoundException;
+import com.relatosdepapel.ms_books_payments.service.IdempotencyService;
 import com.relatosdepapel.ms_books_payments.service.PaymentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/payments")
 @RequiredArgsConstructor
 public class PaymentController {
+    /** Cabecera con la clave de idempotencia enviada por el cliente */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /** Cabecera que marca las respuestas servidas desde la tabla de idempotencia */
+    public static final String IDEMPOTENCY_REPLAYED_HEADER = "Idempotency-Replayed";
+
+    // Longitud máxima de la clave de idempotencia
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+
+    // Máximo de líneas aceptadas en un pedido
+    private static final int MAX_ORDER_LINES = 100;
 
     /**
      * GET /api/payments
@@ -37,13 +59,24 @@ public class PaymentController {
      * @param bookId ID del libro (opcional)
      * @param status Estado del pago (opcional)
      * @return 200 OK con lista de pagos filtrada
+     *         400 Bad Request si el estado no existe
      */
     @GetMapping("/search")
-    public ResponseEntity<List<PaymentResponseDTO>> search(
+    public ResponseEntity<?> search(
             @RequestParam(required = false) Long userId,
             @RequestParam(required = false) Long bookId,
             @RequestParam(required = false) String status) {
 
+        // Validar el estado antes de construir la consulta
+        if (status != null && !status.isEmpty()) {
+            try {
+                PaymentStatus.from(status);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponseDTO(400, e.getMessage()));
+            }
+        }
+
         List<PaymentResponseDTO> payments = paymentService.search(userId, bookId, status);
         return ResponseEntity.ok(payments); // 200 OK
     }
@@ -69,14 +102,27 @@ public class PaymentController {
      * POST /api/payments
      * Crea un nuevo pago
      *
-     * @param dto Datos del pago a crear
+     * @param idempotencyKey Clave de idempotencia (opcional); los reintentos con
+     *                       la misma clave reciben la respuesta original
+     * @param dto            Datos del pago a crear
      * @return 201 Created con el pago creado
      *         400 Bad Request si hay error de validación
      *         404 Not Found si el libro no existe
+     *         409 Conflict si la petición con la misma clave sigue en curso
+     *         422 Unprocessable Content si la clave se usó con otro cuerpo
      *         500 Internal Server Error si hay error inesperado
      */
     @PostMapping
-    public ResponseEntity<?> create(@RequestBody PaymentRequestDTO dto) {
+    public ResponseEntity<?> create(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody PaymentRequestDTO dto) {
+        return idempotent(idempotencyKey, "POST /api/payments", dto, () -> createPayment(dto));
+    }
+
+    /**
+     * Crea un pago (lógica de POST /api/payments sin idempotencia).
+     */
+    private ResponseEntity<?> createPayment(PaymentRequestDTO dto) {
         // Validación 1: userId válido
         if (dto.getUserId() == null || dto.getUserId() <= 0) {
             return ResponseEntity.badRequest()
@@ -112,6 +158,71 @@ public class PaymentController {
         }
     }
 
+    /**
+     * POST /api/payments/orders
+     * Crea un pedido con varios libros (un pago por libro) como una sola unidad:
+     * se crean todos los pagos o ninguno
+     *
+     * @param idempotencyKey Clave de idempotencia (opcional); los reintentos con
+     *                       la misma clave reciben la respuesta original
+     * @param dto            Datos del pedido (userId y líneas bookId/quantity)
+     * @return 201 Created con los pagos creados y los totales del pedido
+     *         400 Bad Request si hay error de validación o stock insuficiente
+     *         404 Not Found si algún libro no existe
+     *         409 Conflict si la petición con la misma clave sigue en curso
+     *         422 Unprocessable Content si la clave se usó con otro cuerpo
+     *         500 Internal Server Error si hay error inesperado
+     */
+    @PostMapping("/orders")
+    public ResponseEntity<?> createOrder(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody OrderRequestDTO dto) {
+        return idempotent(idempotencyKey, "POST /api/payments/orders", dto, () -> placeOrder(dto));
+    }
+
+    /**
+     * Crea un pedido (lógica de POST /api/payments/orders sin idempotencia).
+     */
+    private ResponseEntity<?> placeOrder(OrderRequestDTO dto) {
+        // Validación 1: userId válido
+        if (dto.getUserId() == null || dto.getUserId() <= 0) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, "userId debe ser mayor a 0"));
+        }
+
+        // Validación 2: entre 1 y MAX_ORDER_LINES líneas
+        if (dto.getLines() == null || dto.getLines().isEmpty() || dto.getLines().size() > MAX_ORDER_LINES) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400,
+                            "El pedido debe tener entre 1 y " + MAX_ORDER_LINES + " líneas"));
+        }
+
+        // Validación 3: cada línea con bookId y quantity válidos
+        for (OrderLineDTO line : dto.getLines()) {
+            if (line.getBookId() == null || line.getBookId() <= 0
+                    || line.getQuantity() == null || line.getQuantity() <= 0) {
+                return ResponseEntity.badRequest()
+                        .body(new ErrorResponseDTO(400, "bookId y quantity deben ser mayores a 0"));
+            }
+        }
+
+        try {
+            OrderResponseDTO createdOrder = paymentService.createOrder(dto);
+            return ResponseEntity.status(201).body(createdOrder);
+        } catch (BookNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ErrorResponseDTO(404, "Libro no encontrado"));
+        } catch (IllegalArgumentException e) {
+            // Captura validaciones de negocio del servicio (ej: Stock insuficiente)
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, "No fue posible crear el pedido"));
+        } catch (RuntimeException e) {
+            // Captura errores inesperados o de conexión con otros MS
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorResponseDTO(500, "Error interno al procesar la compra"));
+        }
+    }
+
     /**
      * PATCH /api/payments/{id}
      * Actualiza el estado de un pago
@@ -119,7 +230,9 @@ public class PaymentController {
      * @param id  ID del pago
      * @param dto Nuevo estado
      * @return 200 OK con el pago actualizado
+     *         400 Bad Request si el estado no existe
      *         404 Not Found si no existe
+     *         409 Conflict si el saga no permite la transición
      */
     @PatchMapping("/{id}")
     public ResponseEntity<?> updateStatus(
@@ -132,13 +245,23 @@ public class PaymentController {
                     .body(new ErrorResponseDTO(400, "El estado no puede estar vacío"));
         }
 
-        // El servicio retorna null si no encuentra el pago
-        PaymentResponseDTO updatedPayment = paymentService.updateStatus(id, dto);
+        try {
+            // El servicio retorna null si no encuentra el pago
+            PaymentResponseDTO updatedPayment = paymentService.updateStatus(id, dto);
 
-        if (updatedPayment == null) {
-            return ResponseEntity.notFound().build(); // 404 Not Found
+            if (updatedPayment == null) {
+                return ResponseEntity.notFound().build(); // 404 Not Found
+            }
+            return ResponseEntity.ok(updatedPayment); // 200 OK
+        } catch (IllegalArgumentException e) {
+            // Estado desconocido
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Transición no permitida (solo RESERVED → COMPLETED)
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponseDTO(409, e.getMessage()));
         }
-        return ResponseEntity.ok(updatedPayment); // 200 OK
     }
 
     /**
@@ -146,9 +269,10 @@ public class PaymentController {
      * Cancela un pago
      *
      * @param id ID del pago a cancelar
-     * @return 204 No Content si se canceló correctamente
+     * @return 204 No Content si se inició la cancelación (COMPENSATING; el stock
+     *         se restaura en segundo plano y el pago pasa a CANCELLED)
      *         404 Not Found si el pago no existe
-     *         409 Conflict si ya estaba cancelado
+     *         409 Conflict si ya estaba cancelado o aún se está procesando
      *         500 Internal Server Error si falla
      */
     @DeleteMapping("/{id}")
@@ -159,8 +283,8 @@ public class PaymentController {
         }
 
         try {
-            // El servicio devuelve false si el pago ya estaba cancelado o no existe (aunque
-            // ya validamos existencia arriba)
+            // El servicio devuelve false si el pago ya estaba cancelado o cancelándose
+            // o no existe (aunque ya validamos existencia arriba)
             boolean cancelled = paymentService.cancelPayment(id);
             if (!cancelled) {
                 // Si retorna false, es porque ya estaba cancelado
@@ -168,10 +292,77 @@ public class PaymentController {
                         .body(new ErrorResponseDTO(409, "El pago ya se encuentra cancelado"));
             }
             return ResponseEntity.noContent().build(); // 204 No Content
+        } catch (IllegalStateException e) {
+            // El stock del pago aún se está reservando
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponseDTO(409, e.getMessage()));
         } catch (RuntimeException e) {
-            // Error al restaurar stock (inconsistencia grave)
+            // Error al guardar la cancelación
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new ErrorResponseDTO(500, "No se pudo cancelar el pago"));
         }
     }
+
+    // METODOS HELPERS
+
+    /**
+     * Ejecuta una petición respetando la cabecera Idempotency-Key.
+     * Sin clave se ejecuta normalmente. Con clave, la primera petición se
+     * ejecuta y su respuesta se guarda; los reintentos con la misma clave y el
+     * mismo cuerpo reciben la respuesta guardada sin volver a crear pagos ni
+     * llamar al catálogo. Las respuestas 5xx no se guardan para permitir
+     * reintentar.
+     *
+     * @param idempotencyKey Clave recibida (puede ser null)
+     * @param endpoint       Método y ruta, forman parte de la huella
+     * @param request        Cuerpo de la petición
+     * @param action         Lógica del endpoint
+     * @return Respuesta original o guardada
+     */
+    private ResponseEntity<?> idempotent(String idempotencyKey, String endpoint, Object request,
+            Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        // Validación: clave no vacía y de longitud acotada
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(new ErrorResponseDTO(400, IDEMPOTENCY_KEY_HEADER + " debe tener entre 1 y "
+                            + MAX_IDEMPOTENCY_KEY_LENGTH + " caracteres"));
+        }
+
+        String requestHash = idempotencyService.fingerprint(endpoint, request);
+        String leaseToken = UUID.randomUUID().toString(); // identifica esta ejecución de la clave
+        IdempotencyRecord existing = idempotencyService.begin(idempotencyKey, requestHash, leaseToken);
+        if (existing != null) {
+            if (!existing.getRequestHash().equals(requestHash)) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_CONTENT)
+                        .body(new ErrorResponseDTO(422, "La clave de idempotencia ya se usó con otra petición"));
+            }
+            if (existing.getResponseStatus() == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ErrorResponseDTO(409, "La petición con esta clave de idempotencia sigue en curso"));
+            }
+            // Reintento: responder desde la tabla
+            return ResponseEntity.status(existing.getResponseStatus())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(IDEMPOTENCY_REPLAYED_HEADER, "true")
+                    .body(existing.getResponseBody());
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            idempotencyService.release(idempotencyKey, leaseToken);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            idempotencyService.release(idempotencyKey, leaseToken); // permitir reintentar
+        } else {
+            idempotencyService.complete(idempotencyKey, leaseToken, response.getStatusCode().value(),
+                    response.getBody());
+        }
+        return response;
+    }
 }
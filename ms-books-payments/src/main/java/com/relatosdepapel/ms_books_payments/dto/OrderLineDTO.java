@@ -0,0 +1,20 @@
+package com.relatosdepapel.ms_books_payments.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO para una línea de un pedido
+ * Indica el libro y la cantidad a comprar
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderLineDTO {
+    /** ID del libro a comprar */
+    private Long bookId;
+
+    /** Cantidad de libros a comprar */
+    private Integer quantity;
+}
@@ -0,0 +1,21 @@
+package com.relatosdepapel.ms_books_payments.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+/**
+ * DTO para crear un pedido con varios libros (carrito)
+ * Se procesa como una unidad: se crean todos los pagos o ninguno
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRequestDTO {
+    /** ID del usuario que realiza la compra */
+    private Long userId;
+
+    /** Líneas del pedido (libro y cantidad) */
+    private List<OrderLineDTO> lines;
+}
@@ -0,0 +1,28 @@
+package com.relatosdepapel.ms_books_payments.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO para respuesta de un pedido
+ * Incluye un pago por cada libro comprado y los totales del pedido
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderResponseDTO {
+    /** ID del usuario */
+    private Long userId;
+
+    /** Pagos creados (uno por libro) */
+    private List<PaymentResponseDTO> payments;
+
+    /** Cantidad total de libros comprados */
+    private Integer totalItems;
+
+    /** Monto total del pedido (suma de todos los totalPrice) */
+    private BigDecimal totalAmount;
+}
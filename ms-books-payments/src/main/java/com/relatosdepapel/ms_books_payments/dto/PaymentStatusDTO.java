@@ -12,6 +12,9 @@ import lombok.AllArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PaymentStatusDTO {
-    /** Nuevo estado del pago: COMPLETED o CANCELLED */
+    /**
+     * Nuevo estado del pago; solo se permite completar un pago RESERVED
+     * (COMPLETED). Para cancelar se usa DELETE /api/payments/{id}
+     */
     private String status;
 }
\ No newline at end of file
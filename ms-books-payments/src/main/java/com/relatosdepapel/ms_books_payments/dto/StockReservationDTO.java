@@ -0,0 +1,25 @@
+package com.relatosdepapel.ms_books_payments.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO para reservar stock de un libro en MS Books Catalogue
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+    /**
+     * ID de la reserva; MS Books Catalogue no vuelve a reservar stock para un ID
+     * ya reservado, por lo que reenviarlo es seguro
+     */
+    private String reservationId;
+
+    /** ID del libro */
+    private Long bookId;
+
+    /** Unidades a reservar */
+    private Integer quantity;
+}
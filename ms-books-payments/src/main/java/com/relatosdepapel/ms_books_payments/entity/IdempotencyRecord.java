@@ -0,0 +1,90 @@
+package com.relatosdepapel.ms_books_payments.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+import com.relatosdepapel.ms_books_payments.utils.Consts;
+
+/**
+ * Entidad que guarda la respuesta de una petición hecha con cabecera
+ * Idempotency-Key.
+ * Los reintentos con la misma clave se responden desde esta tabla sin volver a
+ * crear el pago ni llamar al catálogo. Las filas caducan en expiresAt y se
+ * purgan periódicamente.
+ */
+@Entity // Indica que esta clase es una entidad JPA
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = Consts.EXPIRES_AT)) // Índice para purgar por fecha de caducidad
+@Data // Genera getters, setters, toString, equals, hashCode automáticamente
+@NoArgsConstructor // Constructor sin argumentos (requerido por JPA)
+@AllArgsConstructor // Constructor con todos los argumentos (requerido por Lombok)
+@Builder // Patron Builder
+public class IdempotencyRecord implements Persistable<String> {
+    /**
+     * Clave enviada por el cliente en la cabecera Idempotency-Key
+     */
+    @Id // La clave primaria impide registrar dos veces la misma clave
+    @Column(name = Consts.IDEMPOTENCY_KEY, length = 100)
+    private String idempotencyKey;
+    /**
+     * Huella (MD5) del endpoint y el cuerpo de la petición original
+     */
+    @Column(name = Consts.REQUEST_HASH, nullable = false, length = 32)
+    private String requestHash;
+    /**
+     * Código HTTP de la respuesta (null mientras la petición está en curso)
+     */
+    @Column(name = Consts.RESPONSE_STATUS)
+    private Integer responseStatus;
+    /**
+     * Cuerpo JSON de la respuesta
+     */
+    @Lob
+    @Column(name = Consts.RESPONSE_BODY)
+    private String responseBody;
+    /**
+     * Fecha en la que se recibió la petición
+     */
+    @Column(name = Consts.CREATED_AT, nullable = false)
+    private LocalDateTime createdAt;
+    /**
+     * Fecha a partir de la cual la clave puede reutilizarse y se purga
+     */
+    @Column(name = Consts.EXPIRES_AT, nullable = false)
+    private LocalDateTime expiresAt;
+    /**
+     * Token de la petición que registró la clave. Solo esa petición puede
+     * guardar la respuesta o liberar la clave: si su plazo vence y otra
+     * petición la registra de nuevo, la primera ya no la modifica.
+     */
+    @Column(name = Consts.LEASE_TOKEN, nullable = false, length = 36)
+    private String leaseToken;
+
+    /**
+     * Devuelve la clave (requerido por Persistable).
+     */
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    /**
+     * Las claves solo se insertan (la respuesta se guarda con un UPDATE
+     * dirigido): saveAndFlush hace INSERT sin SELECT previo, y una segunda
+     * petición con la misma clave falla por clave primaria duplicada en lugar
+     * de sobrescribir la fila de la primera.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -5,9 +5,12 @@ import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -31,7 +34,8 @@ public class Payment {
      * Identificador único del pago
      */
     @Id // Indica que este campo es la clave primaria
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Auto-incrementado por la BD
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq") // Secuencia (permite INSERT por lotes)
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50) // Reserva 50 IDs por consulta
     private Long id;
     /**
      * ID del usuario que realizó la compra
@@ -74,9 +78,10 @@ public class Payment {
     @Column(name = Consts.PURCHASE_DATE, nullable = false)
     private LocalDateTime purchaseDate;
     /**
-     * Estado del pago: COMPLETED (completado) o CANCELLED (cancelado)
+     * Estado del pago en el saga (ver PaymentStatus)
      */
-    @Column(name = Consts.STATUS, nullable = false)
-    private String status;
+    @Enumerated(EnumType.STRING) // Se guarda el nombre del estado
+    @Column(name = Consts.STATUS, nullable = false, length = 20)
+    private PaymentStatus status;
 
 }
@@ -0,0 +1,60 @@
+package com.relatosdepapel.ms_books_payments.entity;
+
+import java.util.Set;
+
+/**
+ * Estados del saga de un pago.
+ * 
+ * RESERVING → RESERVED → COMPLETED
+ * RESERVING → CANCELLED (el catálogo rechazó la reserva)
+ * RESERVED / COMPLETED → COMPENSATING → CANCELLED (cancelación)
+ * COMPLETED → CANCELLED (la reserva caducó en el catálogo antes de confirmarse)
+ * 
+ * Las transiciones las realiza PaymentSaga (RESERVED → COMPLETED con el PATCH
+ * de PaymentServiceImpl, o automáticamente si payments.saga.auto-complete está
+ * activo), siempre con UPDATE condicionales sobre el estado anterior, por lo
+ * que un pago nunca avanza dos veces.
+ */
+public enum PaymentStatus {
+    /** Pago creado; reserva de stock pendiente en el catálogo */
+    RESERVING,
+    /** Stock reservado (retenido) en el catálogo */
+    RESERVED,
+    /** Pago completado; confirmación de la reserva enviada al catálogo */
+    COMPLETED,
+    /** Cancelación en curso; liberación de la reserva pendiente en el catálogo */
+    COMPENSATING,
+    /** Pago cancelado (stock devuelto o nunca reservado) */
+    CANCELLED;
+
+    /**
+     * Indica si el saga permite pasar de este estado al indicado.
+     * 
+     * @param next Estado destino
+     * @return true si la transición es válida
+     */
+    public boolean canTransitionTo(PaymentStatus next) {
+        return switch (this) {
+            case RESERVING -> Set.of(RESERVED, CANCELLED).contains(next);
+            case RESERVED -> Set.of(COMPLETED, COMPENSATING).contains(next);
+            case COMPLETED -> Set.of(COMPENSATING, CANCELLED).contains(next);
+            case COMPENSATING -> next == CANCELLED;
+            case CANCELLED -> false;
+        };
+    }
+
+    /**
+     * Convierte un texto en estado.
+     * 
+     * @param value Nombre del estado (sin distinguir mayúsculas)
+     * @return Estado correspondiente
+     * @throws IllegalArgumentException si el estado no existe
+     */
+    public static PaymentStatus from(String value) {
+        try {
+            return PaymentStatus.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Estado de pago no válido: " + value);
+        }
+    }
+}
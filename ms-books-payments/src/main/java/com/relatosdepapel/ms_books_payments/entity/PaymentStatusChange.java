@@ -0,0 +1,69 @@
+package com.relatosdepapel.ms_books_payments.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import com.relatosdepapel.ms_books_payments.utils.Consts;
+
+/**
+ * Entidad que registra un cambio de estado de un pago que no pidió el
+ * usuario: el saga cancela el pago porque el catálogo rechazó uno de sus
+ * comandos (por ejemplo COMPLETED → CANCELLED cuando la reserva caducó antes
+ * de confirmarse). Guarda el estado anterior, el nuevo y el motivo para poder
+ * auditarlo.
+ */
+@Entity // Indica que esta clase es una entidad JPA
+@Table(name = "payment_status_changes", indexes = @Index(name = "idx_payment_status_changes_payment_id", columnList = Consts.PAYMENT_ID)) // Índice para consultar el historial de un pago
+@Data // Genera getters, setters, toString, equals, hashCode automáticamente
+@NoArgsConstructor // Constructor sin argumentos (requerido por JPA)
+@AllArgsConstructor // Constructor con todos los argumentos (requerido por Lombok)
+@Builder // Patron Builder
+public class PaymentStatusChange {
+    /**
+     * Identificador único del cambio
+     */
+    @Id // Indica que este campo es la clave primaria
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_status_changes_seq") // Secuencia (permite INSERT por lotes)
+    @SequenceGenerator(name = "payment_status_changes_seq", sequenceName = "payment_status_changes_seq", allocationSize = 50) // Reserva 50 IDs por consulta
+    private Long id;
+    /**
+     * Pago que cambió de estado
+     */
+    @Column(name = Consts.PAYMENT_ID, nullable = false)
+    private Long paymentId;
+    /**
+     * Estado anterior
+     */
+    @Enumerated(EnumType.STRING) // Se guarda el nombre del estado
+    @Column(name = Consts.FROM_STATUS, nullable = false, length = 20)
+    private PaymentStatus fromStatus;
+    /**
+     * Estado nuevo
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = Consts.TO_STATUS, nullable = false, length = 20)
+    private PaymentStatus toStatus;
+    /**
+     * Motivo del cambio (comando rechazado y respuesta del catálogo)
+     */
+    @Column(name = Consts.REASON, nullable = false, length = 600)
+    private String reason;
+    /**
+     * Fecha del cambio
+     */
+    @Column(name = Consts.CHANGED_AT, nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,119 @@
+package com.relatosdepapel.ms_books_payments.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import com.relatosdepapel.ms_books_payments.utils.Consts;
+
+/**
+ * Entidad que representa un comando de reserva de stock pendiente de enviar a
+ * MS Books Catalogue (patrón outbox): reservar, confirmar o liberar la reserva
+ * de un pago.
+ * Se guarda en la misma transacción que el pago, y StockOutboxDispatcher la
+ * envía en segundo plano, agrupando eventos y reintentando si el catálogo no
+ * responde.
+ */
+@Entity // Indica que esta clase es una entidad JPA
+@Table(name = "stock_outbox", indexes = @Index(name = "idx_stock_outbox_status_next_attempt", columnList = Consts.STATUS + ", " + Consts.NEXT_ATTEMPT_AT)) // Índice para buscar eventos pendientes
+@Data // Genera getters, setters, toString, equals, hashCode automáticamente
+@NoArgsConstructor // Constructor sin argumentos (requerido por JPA)
+@AllArgsConstructor // Constructor con todos los argumentos (requerido por Lombok)
+@Builder // Patron Builder
+public class StockOutboxEvent {
+    /** Estado: pendiente de enviar */
+    public static final String PENDING = "PENDING";
+    /** Estado: aplicado por el catálogo */
+    public static final String SENT = "SENT";
+    /** Estado: rechazado por el catálogo (libro inexistente o sin stock) */
+    public static final String FAILED = "FAILED";
+
+    /** Tipo: reservar stock para el pago */
+    public static final String RESERVE = "RESERVE";
+    /** Tipo: confirmar la reserva del pago */
+    public static final String CONFIRM = "CONFIRM";
+    /** Tipo: liberar la reserva del pago (devuelve el stock) */
+    public static final String RELEASE = "RELEASE";
+
+    /**
+     * Identificador único del evento (también define el orden de envío)
+     */
+    @Id // Indica que este campo es la clave primaria
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_outbox_seq") // Secuencia (permite INSERT por lotes)
+    @SequenceGenerator(name = "stock_outbox_seq", sequenceName = "stock_outbox_seq", allocationSize = 50) // Reserva 50 IDs por consulta
+    private Long id;
+    /**
+     * Pago que originó el cambio de stock
+     */
+    @Column(name = Consts.PAYMENT_ID, nullable = false)
+    private Long paymentId;
+    /**
+     * Eventos que deben aplicarse juntos (todos los pagos de un mismo pedido)
+     */
+    @Column(name = Consts.GROUP_ID, nullable = false, length = 36)
+    private String groupId;
+    /**
+     * Tipo de comando (RESERVE, CONFIRM, RELEASE)
+     */
+    @Column(name = Consts.TYPE, nullable = false, length = 10)
+    private String type;
+    /**
+     * ID del libro
+     */
+    @Column(name = Consts.BOOK_ID, nullable = false)
+    private Long bookId;
+    /**
+     * Unidades reservadas
+     */
+    @Column(name = Consts.QUANTITY, nullable = false)
+    private Integer quantity;
+    /**
+     * Estado del evento (PENDING, SENT, FAILED)
+     */
+    @Column(name = Consts.STATUS, nullable = false, length = 10)
+    private String status;
+    /**
+     * Número de envíos fallidos por errores técnicos
+     */
+    @Column(name = Consts.ATTEMPTS, nullable = false)
+    private Integer attempts;
+    /**
+     * Fecha a partir de la cual se puede (re)intentar el envío
+     */
+    @Column(name = Consts.NEXT_ATTEMPT_AT, nullable = false)
+    private LocalDateTime nextAttemptAt;
+    /**
+     * Fecha de creación del evento
+     */
+    @Column(name = Consts.CREATED_AT, nullable = false)
+    private LocalDateTime createdAt;
+    /**
+     * Último error recibido al enviar el evento
+     */
+    @Column(name = Consts.LAST_ERROR, length = 500)
+    private String lastError;
+    /**
+     * Envío que tiene reservado el evento (StockOutboxDispatcher lo asigna al
+     * reclamarlo, para que otra instancia no lo envíe a la vez)
+     */
+    @Column(name = Consts.CLAIM_TOKEN, length = 36)
+    private String claimToken;
+
+    /**
+     * ID de la reserva del pago en el catálogo. Al ser fijo por pago, reenviar
+     * un comando no reserva ni libera el stock dos veces
+     */
+    public String getReservationId() {
+        return "payment-" + paymentId;
+    }
+}
@@ -0,0 +1,80 @@
+package com.relatosdepapel.ms_books_payments.repository;
+
+import com.relatosdepapel.ms_books_payments.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+
+/**
+ * Repositorio JPA para la entidad IdempotencyRecord (Capa 1).
+ */
+public interface IdempotencyJpaRepository extends JpaRepository<IdempotencyRecord, String> {
+    /**
+     * Elimina en una sola sentencia todas las claves caducadas.
+     * SQL generado: DELETE FROM idempotency_keys WHERE expires_at < :now
+     * 
+     * @param now Fecha actual
+     * @return Número de claves eliminadas
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    /**
+     * Elimina una clave solo si puede reutilizarse: caducada, o en curso desde
+     * antes de staleBefore (la petición que la registró no terminó).
+     * SQL generado: DELETE FROM idempotency_keys WHERE idempotency_key = :key
+     * AND (expires_at <= :now OR (response_status IS NULL AND created_at <
+     * :staleBefore))
+     * 
+     * @param key         Clave a eliminar
+     * @param now         Fecha actual
+     * @param staleBefore Fecha límite de las claves en curso
+     * @return 1 si se eliminó, 0 si no existe o sigue vigente
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND (r.expiresAt <= :now"
+            + " OR (r.responseStatus IS NULL AND r.createdAt < :staleBefore))")
+    int deleteReusable(@Param("key") String key, @Param("now") LocalDateTime now,
+            @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Elimina una clave solo si sigue registrada por la petición del token.
+     * SQL generado: DELETE FROM idempotency_keys WHERE idempotency_key = :key
+     * AND lease_token = :leaseToken
+     * 
+     * @param key        Clave a eliminar
+     * @param leaseToken Token de la petición que la registró
+     * @return 1 si se eliminó, 0 si no existe o la registró otra petición
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.leaseToken = :leaseToken")
+    int deleteOwned(@Param("key") String key, @Param("leaseToken") String leaseToken);
+
+    /**
+     * Guarda la respuesta de una clave en curso, solo si sigue registrada por
+     * la petición del token.
+     * SQL generado: UPDATE idempotency_keys SET response_status = :status,
+     * response_body = :body WHERE idempotency_key = :key AND lease_token =
+     * :leaseToken AND response_status IS NULL
+     * 
+     * @param key        Clave de la petición
+     * @param leaseToken Token de la petición que la registró
+     * @param status     Código HTTP de la respuesta
+     * @param body       Cuerpo JSON de la respuesta
+     * @return 1 si se guardó, 0 si la clave ya no existe, la registró otra
+     *         petición o ya tenía respuesta
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseStatus = :status, r.responseBody = :body"
+            + " WHERE r.idempotencyKey = :key AND r.leaseToken = :leaseToken AND r.responseStatus IS NULL")
+    int saveResponse(@Param("key") String key, @Param("leaseToken") String leaseToken,
+            @Param("status") int status, @Param("body") String body);
+}
@@ -0,0 +1,85 @@
+package com.relatosdepapel.ms_books_payments.repository;
+
+import com.relatosdepapel.ms_books_payments.entity.IdempotencyRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+
+/**
+ * Wrapper del repositorio JPA de claves de idempotencia (Capa 2).
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyRepository {
+    private final IdempotencyJpaRepository jpaRepository;
+
+    /**
+     * Busca una clave de idempotencia.
+     * 
+     * @param key Clave recibida en la cabecera
+     * @return IdempotencyRecord si existe, null si no existe
+     */
+    public IdempotencyRecord getByKey(String key) {
+        return jpaRepository.findById(key).orElse(null);
+    }
+
+    /**
+     * Inserta una clave y la escribe inmediatamente en la base de datos, para
+     * que una petición concurrente con la misma clave falle por clave primaria
+     * duplicada (IdempotencyRecord siempre es nuevo: nunca se hace merge).
+     * 
+     * @param record Registro a guardar
+     * @return Registro guardado
+     */
+    public IdempotencyRecord saveAndFlush(IdempotencyRecord record) {
+        return jpaRepository.saveAndFlush(record);
+    }
+
+    /**
+     * Elimina una clave si está caducada o lleva en curso desde antes de
+     * staleBefore.
+     * 
+     * @param key         Clave a eliminar
+     * @param now         Fecha actual
+     * @param staleBefore Fecha límite de las claves en curso
+     * @return true si se eliminó
+     */
+    public boolean deleteReusable(String key, LocalDateTime now, LocalDateTime staleBefore) {
+        return jpaRepository.deleteReusable(key, now, staleBefore) > 0;
+    }
+
+    /**
+     * Guarda la respuesta de una clave en curso registrada por la petición del
+     * token.
+     * 
+     * @param key        Clave de la petición
+     * @param leaseToken Token de la petición que la registró
+     * @param status     Código HTTP de la respuesta
+     * @param body       Cuerpo JSON de la respuesta
+     * @return true si se guardó
+     */
+    public boolean saveResponse(String key, String leaseToken, int status, String body) {
+        return jpaRepository.saveResponse(key, leaseToken, status, body) > 0;
+    }
+
+    /**
+     * Elimina una clave registrada por la petición del token.
+     * 
+     * @param key        Clave a eliminar
+     * @param leaseToken Token de la petición que la registró
+     * @return true si se eliminó
+     */
+    public boolean deleteOwned(String key, String leaseToken) {
+        return jpaRepository.deleteOwned(key, leaseToken) > 0;
+    }
+
+    /**
+     * Elimina todas las claves caducadas.
+     * 
+     * @param now Fecha actual
+     * @return Número de claves eliminadas
+     */
+    public int deleteExpired(LocalDateTime now) {
+        return jpaRepository.deleteExpired(now);
+    }
+}
@@ -1,8 +1,14 @@
 package com.relatosdepapel.ms_books_payments.repository;
 
 import com.relatosdepapel.ms_books_payments.entity.Payment;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -33,23 +39,49 @@ public interface PaymentJpaRepository extends JpaRepository<Payment, Long>, JpaS
 
     /**
      * Busca pagos por estado.
-     * Ejemplo: findByStatus(\"PENDING\")
-     * SQL generado: SELECT * FROM payments WHERE status = 'PENDING'
+     * Ejemplo: findByStatus(PaymentStatus.RESERVED)
+     * SQL generado: SELECT * FROM payments WHERE status = 'RESERVED'
      * 
-     * @param status Estado del pago (PENDING, APPROVED, CANCELLED)
+     * @param status Estado del pago
      * @return Lista de pagos con el estado especificado
      */
-    List<Payment> findByStatus(String status);
+    List<Payment> findByStatus(PaymentStatus status);
+
+    /**
+     * Busca los primeros pagos en un estado, por orden de creación.
+     * SQL generado: SELECT * FROM payments WHERE status = ? ORDER BY id LIMIT ?
+     * 
+     * @param status Estado del pago
+     * @param limit  Máximo de pagos
+     * @return Pagos con el estado especificado
+     */
+    List<Payment> findByStatusOrderByIdAsc(PaymentStatus status, Limit limit);
 
     /**
      * Busca pagos por usuario y estado.
-     * Ejemplo: findByUserIdAndStatus(1L, \"APPROVED\")
+     * Ejemplo: findByUserIdAndStatus(1L, PaymentStatus.COMPLETED)
      * SQL generado: SELECT * FROM payments WHERE user_id = 1 AND status =
-     * 'APPROVED'
+     * 'COMPLETED'
      * 
      * @param userId ID del usuario
      * @param status Estado del pago
      * @return Lista de pagos que cumplen ambas condiciones
      */
-    List<Payment> findByUserIdAndStatus(Long userId, String status);
-}
\ No newline at end of file
+    List<Payment> findByUserIdAndStatus(Long userId, PaymentStatus status);
+
+    /**
+     * Cambia el estado de varios pagos en una sola sentencia, solo si siguen en
+     * el estado esperado (evita pisar cambios concurrentes).
+     * SQL generado: UPDATE payments SET status = :status WHERE id IN (:ids) AND
+     * status = :expected
+     * 
+     * @param ids      IDs de los pagos
+     * @param expected Estado actual esperado
+     * @param status   Nuevo estado
+     * @return Número de pagos actualizados
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :status WHERE p.id IN :ids AND p.status = :expected")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("expected") PaymentStatus expected,
+            @Param("status") PaymentStatus status);
+}
@@ -1,9 +1,13 @@
 package com.relatosdepapel.ms_books_payments.repository;
 
 import com.relatosdepapel.ms_books_payments.entity.Payment;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatus;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -44,6 +48,44 @@ public class PaymentRepository {
         return jpaRepository.save(payment);
     }
 
+    /**
+     * Guarda varios pagos en una sola transacción.
+     * Con jdbc.batch_size los INSERT se envían en lotes.
+     * 
+     * @param payments Pagos a guardar
+     * @return Pagos guardados con ID asignado
+     */
+    public List<Payment> saveAll(List<Payment> payments) {
+        return jpaRepository.saveAll(payments);
+    }
+
+    /**
+     * Cambia el estado de varios pagos que siguen en el estado esperado.
+     * 
+     * @param ids      IDs de los pagos
+     * @param expected Estado actual esperado
+     * @param status   Nuevo estado
+     * @return Número de pagos actualizados
+     */
+    @Transactional
+    public int updateStatus(Collection<Long> ids, PaymentStatus expected, PaymentStatus status) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jpaRepository.updateStatus(ids, expected, status);
+    }
+
+    /**
+     * Obtiene los primeros pagos en un estado, por orden de creación.
+     * 
+     * @param status Estado del pago
+     * @param limit  Máximo de pagos
+     * @return Pagos con el estado especificado
+     */
+    public List<Payment> getByStatus(PaymentStatus status, int limit) {
+        return jpaRepository.findByStatusOrderByIdAsc(status, Limit.of(limit));
+    }
+
     /**
      * Elimina un pago por ID.
      * 
@@ -0,0 +1,20 @@
+package com.relatosdepapel.ms_books_payments.repository;
+
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatusChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
+
+/**
+ * Repositorio JPA para la entidad PaymentStatusChange (Capa 1).
+ */
+public interface PaymentStatusChangeJpaRepository extends JpaRepository<PaymentStatusChange, Long> {
+    /**
+     * Busca los cambios de estado de un pago, del más antiguo al más reciente.
+     * SQL generado: SELECT * FROM payment_status_changes WHERE payment_id =
+     * :paymentId ORDER BY id
+     *
+     * @param paymentId ID del pago
+     * @return Cambios de estado del pago
+     */
+    List<PaymentStatusChange> findByPaymentIdOrderByIdAsc(Long paymentId);
+}
@@ -0,0 +1,35 @@
+package com.relatosdepapel.ms_books_payments.repository;
+
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatusChange;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+/**
+ * Wrapper del repositorio JPA de cambios de estado de los pagos (Capa 2).
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentStatusChangeRepository {
+    private final PaymentStatusChangeJpaRepository jpaRepository;
+
+    /**
+     * Guarda varios cambios de estado (INSERT por lotes).
+     *
+     * @param changes Cambios a guardar
+     * @return Cambios guardados con ID asignado
+     */
+    public List<PaymentStatusChange> saveAll(List<PaymentStatusChange> changes) {
+        return jpaRepository.saveAll(changes);
+    }
+
+    /**
+     * Obtiene los cambios de estado de un pago en orden.
+     *
+     * @param paymentId ID del pago
+     * @return Cambios de estado del pago
+     */
+    public List<PaymentStatusChange> getByPaymentId(Long paymentId) {
+        return jpaRepository.findByPaymentIdOrderByIdAsc(paymentId);
+    }
+}
@@ -0,0 +1,109 @@
+package com.relatosdepapel.ms_books_payments.repository;
+
+import com.relatosdepapel.ms_books_payments.entity.StockOutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio JPA para la entidad StockOutboxEvent (Capa 1).
+ */
+public interface StockOutboxJpaRepository extends JpaRepository<StockOutboxEvent, Long> {
+    /**
+     * Busca los grupos con algún evento en el estado dado cuyo envío ya toca,
+     * del más antiguo al más reciente.
+     * SQL generado: SELECT group_id FROM stock_outbox WHERE status = ? AND
+     * next_attempt_at <= ? GROUP BY group_id ORDER BY MIN(id) LIMIT ?
+     * 
+     * @param status Estado de los eventos
+     * @param now    Fecha actual
+     * @param limit  Número máximo de grupos
+     * @return Lista de groupId
+     */
+    @Query("SELECT e.groupId FROM StockOutboxEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now "
+            + "GROUP BY e.groupId ORDER BY MIN(e.id)")
+    List<String> findDueGroupIds(@Param("status") String status, @Param("now") LocalDateTime now, Limit limit);
+
+    /**
+     * Reclama todos los eventos pendientes de los grupos indicados cuyo envío
+     * ya toca: les asigna el token y aplaza su siguiente intento hasta
+     * leaseUntil. Si otra instancia los reclamó antes, la condición ya no se
+     * cumple y no se actualizan.
+     * SQL generado: UPDATE stock_outbox SET claim_token = ?, next_attempt_at = ?
+     * WHERE group_id IN (?) AND status = 'PENDING' AND next_attempt_at <= ?
+     * 
+     * @param groupIds   Grupos de los eventos
+     * @param token      Token del envío
+     * @param now        Fecha actual
+     * @param leaseUntil Fecha hasta la que los eventos quedan reservados
+     * @return Número de eventos reclamados
+     */
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.claimToken = :token, e.nextAttemptAt = :leaseUntil "
+            + "WHERE e.groupId IN :groupIds AND e.status = 'PENDING' AND e.nextAttemptAt <= :now")
+    int claim(@Param("groupIds") Collection<String> groupIds, @Param("token") String token,
+            @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Busca los eventos reclamados con el token dado, en orden de creación.
+     * SQL generado: SELECT * FROM stock_outbox WHERE claim_token = ? ORDER BY id
+     * 
+     * @param claimToken Token del envío
+     * @return Lista de eventos
+     */
+    List<StockOutboxEvent> findByClaimTokenOrderByIdAsc(String claimToken);
+
+    /**
+     * Programa el reintento de varios eventos que siguen pendientes y
+     * reclamados por el envío dado (no modifica eventos que otra instancia ya
+     * marcó como enviados o rechazados).
+     * SQL generado: UPDATE stock_outbox SET attempts = ?, next_attempt_at = ?,
+     * last_error = ?, claim_token = NULL WHERE id IN (?) AND status = 'PENDING'
+     * AND claim_token = ?
+     * 
+     * @param ids           IDs de los eventos
+     * @param token         Token del envío
+     * @param attempts      Nuevo número de intentos
+     * @param nextAttemptAt Fecha del siguiente intento
+     * @param lastError     Error a registrar
+     * @return Número de eventos actualizados
+     */
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.lastError = :lastError, e.claimToken = NULL "
+            + "WHERE e.id IN :ids AND e.status = 'PENDING' AND e.claimToken = :token")
+    int scheduleRetry(@Param("ids") Collection<Long> ids, @Param("token") String token,
+            @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("lastError") String lastError);
+
+    /**
+     * Cambia el estado de varios eventos en una sola sentencia.
+     * 
+     * @param ids       IDs de los eventos
+     * @param status    Nuevo estado
+     * @param lastError Error a registrar (null si no hay)
+     * @return Número de eventos actualizados
+     */
+    @Modifying
+    @Query("UPDATE StockOutboxEvent e SET e.status = :status, e.lastError = :lastError WHERE e.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") String status,
+            @Param("lastError") String lastError);
+
+    /**
+     * Elimina en una sola sentencia los eventos con el estado dado creados antes
+     * de la fecha indicada.
+     * SQL generado: DELETE FROM stock_outbox WHERE status = ? AND created_at < ?
+     * 
+     * @param status Estado de los eventos
+     * @param before Fecha límite
+     * @return Número de eventos eliminados
+     */
+    @Modifying
+    @Query("DELETE FROM StockOutboxEvent e WHERE e.status = :status AND e.createdAt < :before")
+    int deleteByStatusCreatedBefore(@Param("status") String status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,96 @@
+package com.relatosdepapel.ms_books_payments.repository;
+
+import com.relatosdepapel.ms_books_payments.entity.StockOutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wrapper del repositorio JPA del outbox de stock (Capa 2).
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockOutboxRepository {
+    private final StockOutboxJpaRepository jpaRepository;
+
+    /**
+     * Guarda varios eventos (INSERT por lotes).
+     * 
+     * @param events Eventos a guardar
+     * @return Eventos guardados con ID asignado
+     */
+    public List<StockOutboxEvent> saveAll(List<StockOutboxEvent> events) {
+        return jpaRepository.saveAll(events);
+    }
+
+    /**
+     * Reclama los eventos pendientes cuyo envío ya toca de hasta limit grupos,
+     * en orden de creación. Cada grupo se reclama entero (un pedido se envía
+     * en una sola petición y se aplica o se rechaza completo), así que puede
+     * devolver más de limit eventos. Los eventos reclamados no vuelven a
+     * estar disponibles para otra instancia hasta leaseUntil (si el envío no
+     * termina antes, por ejemplo porque la instancia se cayó, se reintentan).
+     * 
+     * @param now        Fecha actual
+     * @param limit      Número máximo de grupos
+     * @param leaseUntil Fecha hasta la que los eventos quedan reservados
+     * @return Eventos reclamados (con su claimToken)
+     */
+    @Transactional
+    public List<StockOutboxEvent> claimDue(LocalDateTime now, int limit, LocalDateTime leaseUntil) {
+        List<String> groupIds = jpaRepository.findDueGroupIds(StockOutboxEvent.PENDING, now, Limit.of(limit));
+        if (groupIds.isEmpty()) {
+            return List.of();
+        }
+        String token = UUID.randomUUID().toString();
+        if (jpaRepository.claim(groupIds, token, now, leaseUntil) == 0) {
+            return List.of();
+        }
+        return jpaRepository.findByClaimTokenOrderByIdAsc(token);
+    }
+
+    /**
+     * Programa el reintento de varios eventos reclamados con el mismo número
+     * de intentos.
+     * 
+     * @param ids           IDs de los eventos
+     * @param claimToken    Token del envío que los reclamó
+     * @param attempts      Nuevo número de intentos
+     * @param nextAttemptAt Fecha del siguiente intento
+     * @param lastError     Error a registrar
+     * @return Número de eventos actualizados
+     */
+    @Transactional
+    public int scheduleRetry(Collection<Long> ids, String claimToken, int attempts, LocalDateTime nextAttemptAt,
+            String lastError) {
+        return jpaRepository.scheduleRetry(ids, claimToken, attempts, nextAttemptAt, lastError);
+    }
+
+    /**
+     * Cambia el estado de varios eventos.
+     * 
+     * @param ids       IDs de los eventos
+     * @param status    Nuevo estado
+     * @param lastError Error a registrar (null si no hay)
+     * @return Número de eventos actualizados
+     */
+    public int updateStatus(Collection<Long> ids, String status, String lastError) {
+        return jpaRepository.updateStatus(ids, status, lastError);
+    }
+
+    /**
+     * Elimina los eventos enviados creados antes de la fecha indicada.
+     * 
+     * @param before Fecha límite
+     * @return Número de eventos eliminados
+     */
+    @Transactional
+    public int deleteSentBefore(LocalDateTime before) {
+        return jpaRepository.deleteByStatusCreatedBefore(StockOutboxEvent.SENT, before);
+    }
+}
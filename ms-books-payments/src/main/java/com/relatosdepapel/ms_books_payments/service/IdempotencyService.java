@@ -0,0 +1,60 @@
+package com.relatosdepapel.ms_books_payments.service;
+
+import com.relatosdepapel.ms_books_payments.entity.IdempotencyRecord;
+
+/**
+ * Interfaz del servicio de claves de idempotencia.
+ * Permite responder los reintentos de una petición con la respuesta guardada
+ * de la primera ejecución.
+ */
+public interface IdempotencyService {
+    /**
+     * Calcula la huella de una petición (endpoint + cuerpo).
+     * 
+     * @param endpoint Método y ruta de la petición
+     * @param request  Cuerpo de la petición
+     * @return Huella de la petición
+     */
+    String fingerprint(String endpoint, Object request);
+
+    /**
+     * Registra una clave como "en curso".
+     * 
+     * @param key         Clave recibida en la cabecera
+     * @param requestHash Huella de la petición
+     * @param leaseToken  Token único de esta petición, necesario para completar
+     *                    o liberar la clave
+     * @return null si la clave se registró (primera ejecución), o el registro
+     *         existente si ya se había usado
+     */
+    IdempotencyRecord begin(String key, String requestHash, String leaseToken);
+
+    /**
+     * Guarda la respuesta de una petición registrada con begin.
+     * 
+     * @param key        Clave de la petición
+     * @param leaseToken Token con el que se registró
+     * @param status     Código HTTP de la respuesta
+     * @param body       Cuerpo de la respuesta
+     * @return false si la petición perdió la clave (purgada o registrada de
+     *         nuevo por otra petición tras vencer su plazo)
+     */
+    boolean complete(String key, String leaseToken, int status, Object body);
+
+    /**
+     * Libera una clave para que la petición pueda reintentarse (por ejemplo,
+     * tras un error interno).
+     * 
+     * @param key        Clave a liberar
+     * @param leaseToken Token con el que se registró
+     * @return false si la petición perdió la clave
+     */
+    boolean release(String key, String leaseToken);
+
+    /**
+     * Elimina las claves caducadas.
+     * 
+     * @return Número de claves eliminadas
+     */
+    int purgeExpired();
+}
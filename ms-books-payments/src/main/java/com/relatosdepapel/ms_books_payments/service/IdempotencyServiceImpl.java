@@ -0,0 +1,159 @@
+package com.relatosdepapel.ms_books_payments.service;
+
+import com.relatosdepapel.ms_books_payments.entity.IdempotencyRecord;
+import com.relatosdepapel.ms_books_payments.repository.IdempotencyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Implementación del servicio de claves de idempotencia.
+ * La clave primaria de la tabla idempotency_keys hace de cerrojo: solo la
+ * primera petición con una clave consigue insertarla; las demás reciben el
+ * registro existente (en curso o con la respuesta guardada). Cada registro
+ * lleva el token de la petición que lo creó, y solo ella puede completarlo o
+ * liberarlo.
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private final IdempotencyRepository idempotencyRepository; // Inyección de dependencias Repository
+    private final ObjectMapper objectMapper; // Serializador JSON de peticiones y respuestas
+    private final Duration ttl; // Tiempo que se conserva cada clave
+    private final Duration lease; // Tiempo máximo de una petición en curso
+
+    public IdempotencyServiceImpl(IdempotencyRepository idempotencyRepository, ObjectMapper objectMapper,
+            @Value("${payments.idempotency.ttl:24h}") Duration ttl,
+            @Value("${payments.idempotency.lease:1m}") Duration lease) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lease = lease;
+    }
+
+    /**
+     * Calcula la huella MD5 del endpoint y del cuerpo serializado en JSON.
+     * 
+     * @param endpoint Método y ruta de la petición
+     * @param request  Cuerpo de la petición
+     * @return Huella en hexadecimal
+     */
+    @Override
+    public String fingerprint(String endpoint, Object request) {
+        String json = endpoint + " " + objectMapper.writeValueAsString(request);
+        return DigestUtils.md5DigestAsHex(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Registra una clave como "en curso".
+     * Si la clave existe pero ya caducó (aún no purgada), o lleva en curso más
+     * de payments.idempotency.lease (la instancia que la registró se cayó
+     * antes de completarla o liberarla), se elimina y se registra de nuevo.
+     * 
+     * @param key         Clave recibida en la cabecera
+     * @param requestHash Huella de la petición
+     * @param leaseToken  Token de la petición
+     * @return null si la clave se registró, o el registro existente
+     */
+    @Override
+    public IdempotencyRecord begin(String key, String requestHash, String leaseToken) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord existing = idempotencyRepository.getByKey(key);
+        if (existing != null && isActive(existing, now)) {
+            return existing; // reintento de una petición conocida (o aún en curso)
+        }
+        if (existing != null) {
+            // clave caducada o abandonada: se elimina solo si sigue así (otra petición puede haberla reutilizado)
+            idempotencyRepository.deleteReusable(key, now, now.minus(lease));
+        }
+        try {
+            idempotencyRepository.saveAndFlush(IdempotencyRecord.builder()
+                    .idempotencyKey(key)
+                    .requestHash(requestHash)
+                    .createdAt(now)
+                    .expiresAt(now.plus(ttl))
+                    .leaseToken(leaseToken)
+                    .build());
+            return null;
+        } catch (DataIntegrityViolationException e) {
+            // Otra petición con la misma clave la registró entre medias
+            return idempotencyRepository.getByKey(key);
+        }
+    }
+
+    /**
+     * Guarda la respuesta serializada en JSON, solo si la clave sigue
+     * registrada con el token de la petición.
+     * 
+     * @param key        Clave de la petición
+     * @param leaseToken Token de la petición
+     * @param status     Código HTTP de la respuesta
+     * @param body       Cuerpo de la respuesta
+     * @return false si la petición perdió la clave
+     */
+    @Override
+    public boolean complete(String key, String leaseToken, int status, Object body) {
+        String json = body == null ? null : objectMapper.writeValueAsString(body);
+        if (!idempotencyRepository.saveResponse(key, leaseToken, status, json)) {
+            log.warn("Clave de idempotencia {} perdida antes de guardar la respuesta (purgada o registrada"
+                    + " de nuevo tras vencer el plazo)", key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Libera una clave eliminándola, solo si sigue registrada con el token de
+     * la petición (si su plazo venció, la clave puede ser ya de otra petición).
+     * 
+     * @param key        Clave a liberar
+     * @param leaseToken Token de la petición
+     * @return false si la petición perdió la clave
+     */
+    @Override
+    public boolean release(String key, String leaseToken) {
+        if (!idempotencyRepository.deleteOwned(key, leaseToken)) {
+            log.warn("Clave de idempotencia {} perdida antes de liberarla (purgada o registrada de nuevo"
+                    + " tras vencer el plazo)", key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Elimina en bloque las claves caducadas. Se ejecuta periódicamente según
+     * payments.idempotency.purge-interval.
+     * 
+     * @return Número de claves eliminadas
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${payments.idempotency.purge-interval:10m}")
+    public int purgeExpired() {
+        int deleted = idempotencyRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Claves de idempotencia caducadas eliminadas: {}", deleted);
+        }
+        return deleted;
+    }
+
+    // METODOS HELPERS
+
+    /**
+     * Indica si una clave sigue vigente: no caducada y, si está en curso, dentro
+     * del plazo payments.idempotency.lease.
+     */
+    private boolean isActive(IdempotencyRecord record, LocalDateTime now) {
+        if (!record.getExpiresAt().isAfter(now)) {
+            return false;
+        }
+        return record.getResponseStatus() != null || !record.getCreatedAt().isBefore(now.minus(lease));
+    }
+}
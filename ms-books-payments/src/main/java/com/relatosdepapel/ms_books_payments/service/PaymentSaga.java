@@ -0,0 +1,255 @@
+package com.relatosdepapel.ms_books_payments.service;
+
+import com.relatosdepapel.ms_books_payments.entity.Payment;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatus;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatusChange;
+import com.relatosdepapel.ms_books_payments.entity.StockOutboxEvent;
+import com.relatosdepapel.ms_books_payments.repository.PaymentRepository;
+import com.relatosdepapel.ms_books_payments.repository.PaymentStatusChangeRepository;
+import com.relatosdepapel.ms_books_payments.repository.StockOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Máquina de estados (saga) del ciclo de vida de un pago.
+ * 
+ * Cada paso se persiste: el estado del pago y el comando de reserva pendiente
+ * (outbox) se guardan en la misma transacción, por lo que un pago en curso
+ * continúa tras un reinicio. Los comandos (reservar, confirmar y liberar la
+ * reserva de stock del pago en el catálogo) los envía StockOutboxDispatcher
+ * con su pool de workers y las respuestas del catálogo vuelven aquí como
+ * transiciones. Ningún paso se ejecuta en el hilo de la petición HTTP.
+ * 
+ * Los pagos RESERVED se completan con PATCH /api/payments/{id}, o
+ * automáticamente si payments.saga.auto-complete está activo. Las
+ * cancelaciones por un rechazo del catálogo quedan registradas en
+ * payment_status_changes con su motivo.
+ */
+@Slf4j
+@Component
+public class PaymentSaga {
+    private final PaymentRepository paymentRepository; // Estado de los pagos
+    private final StockOutboxRepository stockOutboxRepository; // Comandos de reserva pendientes
+    private final PaymentStatusChangeRepository paymentStatusChangeRepository; // Cancelaciones por rechazo
+    private final TransactionTemplate transactionTemplate; // Transacciones locales (pagos + outbox)
+    private final boolean autoComplete; // Completar los pagos RESERVED sin esperar al PATCH
+    private final int completeBatchSize; // Pagos completados por ejecución
+
+    public PaymentSaga(PaymentRepository paymentRepository, StockOutboxRepository stockOutboxRepository,
+            PaymentStatusChangeRepository paymentStatusChangeRepository, TransactionTemplate transactionTemplate,
+            @Value("${payments.saga.auto-complete:false}") boolean autoComplete,
+            @Value("${payments.saga.complete-batch-size:500}") int completeBatchSize) {
+        this.paymentRepository = paymentRepository;
+        this.stockOutboxRepository = stockOutboxRepository;
+        this.paymentStatusChangeRepository = paymentStatusChangeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.autoComplete = autoComplete;
+        this.completeBatchSize = completeBatchSize;
+    }
+
+    /**
+     * Inicia el saga: guarda los pagos en RESERVING y un comando de reserva de
+     * stock por pago, todos con el mismo groupId (se reservan juntos).
+     * 
+     * @param payments Pagos a crear
+     * @return Pagos guardados
+     */
+    public List<Payment> start(List<Payment> payments) {
+        String groupId = UUID.randomUUID().toString();
+        payments.forEach(payment -> payment.setStatus(PaymentStatus.RESERVING));
+        return transactionTemplate.execute(tx -> {
+            List<Payment> savedPayments = paymentRepository.saveAll(payments);
+            stockOutboxRepository.saveAll(savedPayments.stream()
+                    .map(payment -> toOutboxEvent(payment, groupId, StockOutboxEvent.RESERVE))
+                    .toList());
+            return savedPayments;
+        });
+    }
+
+    /**
+     * Completa pagos reservados: RESERVED → COMPLETED y comando de confirmación
+     * de la reserva (cada pago en su propio grupo).
+     * 
+     * @param payments Pagos reservados
+     * @return Número de pagos completados
+     */
+    public int complete(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return 0;
+        }
+        Integer completed = transactionTemplate.execute(tx -> {
+            // UPDATE condicional: los pagos cancelados entre medias no se completan
+            int updated = paymentRepository.updateStatus(payments.stream().map(Payment::getId).toList(),
+                    PaymentStatus.RESERVED, PaymentStatus.COMPLETED);
+            if (updated > 0) {
+                // Si alguno se canceló entre medias, el catálogo rechaza su
+                // confirmación (reserva liberada) o la libera después: el stock
+                // queda igual en ambos casos
+                stockOutboxRepository.saveAll(payments.stream()
+                        .map(payment -> toOutboxEvent(payment, UUID.randomUUID().toString(),
+                                StockOutboxEvent.CONFIRM))
+                        .toList());
+            }
+            return updated;
+        });
+        return completed == null ? 0 : completed;
+    }
+
+    /**
+     * Último paso del saga cuando payments.saga.auto-complete está activo:
+     * completa los pagos RESERVED en lotes de complete-batch-size. Se ejecuta
+     * cada payments.saga.complete-interval. Desactivado (por defecto), los
+     * pagos esperan en RESERVED al PATCH que los completa.
+     * 
+     * @return Número de pagos completados
+     */
+    @Scheduled(fixedDelayString = "${payments.saga.complete-interval:200ms}")
+    public int completeReserved() {
+        if (!autoComplete) {
+            return 0;
+        }
+        int total = 0;
+        List<Payment> reserved;
+        do {
+            reserved = paymentRepository.getByStatus(PaymentStatus.RESERVED, completeBatchSize);
+            total += complete(reserved);
+        } while (reserved.size() == completeBatchSize);
+        return total;
+    }
+
+    /**
+     * Inicia la compensación de un pago: RESERVED / COMPLETED → COMPENSATING y
+     * comando de liberación de la reserva.
+     * 
+     * @param payment Pago a cancelar
+     * @return true si se inició la compensación, false si otra operación cambió
+     *         el estado del pago entre medias
+     */
+    public boolean compensate(Payment payment) {
+        Boolean started = transactionTemplate.execute(tx -> {
+            // UPDATE condicional: si otra petición lo canceló entre medias no se
+            // libera la reserva dos veces
+            if (paymentRepository.updateStatus(List.of(payment.getId()), payment.getStatus(),
+                    PaymentStatus.COMPENSATING) == 0) {
+                return false;
+            }
+            stockOutboxRepository.saveAll(List.of(
+                    toOutboxEvent(payment, UUID.randomUUID().toString(), StockOutboxEvent.RELEASE)));
+            return true;
+        });
+        return Boolean.TRUE.equals(started);
+    }
+
+    /**
+     * El catálogo aplicó los comandos: las reservas pasan a RESERVED y las
+     * liberaciones a CANCELLED (las confirmaciones no cambian el pago, que ya
+     * está COMPLETED).
+     * 
+     * @param events Comandos aplicados (todos del mismo tipo)
+     */
+    public void onStockApplied(List<StockOutboxEvent> events) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            stockOutboxRepository.updateStatus(ids(events), StockOutboxEvent.SENT, null);
+            switch (events.get(0).getType()) {
+                case StockOutboxEvent.RESERVE -> paymentRepository.updateStatus(paymentIds(events),
+                        PaymentStatus.RESERVING, PaymentStatus.RESERVED);
+                case StockOutboxEvent.RELEASE -> paymentRepository.updateStatus(paymentIds(events),
+                        PaymentStatus.COMPENSATING, PaymentStatus.CANCELLED);
+                default -> {
+                    // CONFIRM: el pago ya está COMPLETED
+                }
+            }
+        });
+    }
+
+    /**
+     * El catálogo rechazó los comandos:
+     * - RESERVE (libro inexistente o sin stock): el pago se cancela sin nada que
+     * compensar.
+     * - CONFIRM (la reserva caducó antes de confirmarse): el catálogo ya
+     * devolvió el stock, el pago se cancela.
+     * - RELEASE (reserva inexistente): no hay stock que devolver, el pago se
+     * cancela.
+     * Cada cancelación se registra en payment_status_changes con el estado
+     * anterior y el motivo.
+     * 
+     * @param events Comandos rechazados (todos del mismo tipo)
+     * @param error  Motivo del rechazo
+     */
+    public void onStockRejected(List<StockOutboxEvent> events, String error) {
+        String type = events.get(0).getType();
+        log.warn("{} rechazado por el catálogo (grupo {}): {}", type, events.get(0).getGroupId(), error);
+        PaymentStatus expected = switch (type) {
+            case StockOutboxEvent.RESERVE -> PaymentStatus.RESERVING;
+            case StockOutboxEvent.CONFIRM -> PaymentStatus.COMPLETED;
+            default -> PaymentStatus.COMPENSATING;
+        };
+        String reason = type + " rechazado por el catálogo: " + error;
+        transactionTemplate.executeWithoutResult(tx -> {
+            stockOutboxRepository.updateStatus(ids(events), StockOutboxEvent.FAILED, error);
+            LocalDateTime now = LocalDateTime.now();
+            List<PaymentStatusChange> changes = new ArrayList<>();
+            for (Long paymentId : paymentIds(events)) {
+                // UPDATE condicional por pago para registrar solo los que cambian
+                // (los rechazos son raros: no hace falta agruparlos)
+                if (paymentRepository.updateStatus(List.of(paymentId), expected, PaymentStatus.CANCELLED) > 0) {
+                    changes.add(PaymentStatusChange.builder()
+                            .paymentId(paymentId)
+                            .fromStatus(expected)
+                            .toStatus(PaymentStatus.CANCELLED)
+                            .reason(reason)
+                            .changedAt(now)
+                            .build());
+                }
+            }
+            paymentStatusChangeRepository.saveAll(changes);
+        });
+    }
+
+    // MÉTODOS HELPER
+
+    /**
+     * Crea el comando de outbox para la reserva de un pago.
+     *
+     * @param payment Pago que origina el comando
+     * @param groupId Grupo de comandos que se aplican juntos
+     * @param type    RESERVE, CONFIRM o RELEASE
+     * @return Comando listo para guardar
+     */
+    private StockOutboxEvent toOutboxEvent(Payment payment, String groupId, String type) {
+        LocalDateTime now = LocalDateTime.now();
+        return StockOutboxEvent.builder()
+                .paymentId(payment.getId())
+                .groupId(groupId)
+                .type(type)
+                .bookId(payment.getBookId())
+                .quantity(payment.getQuantity())
+                .status(StockOutboxEvent.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+    }
+
+    /**
+     * IDs de los comandos.
+     */
+    private List<Long> ids(List<StockOutboxEvent> events) {
+        return events.stream().map(StockOutboxEvent::getId).toList();
+    }
+
+    /**
+     * IDs de los pagos de los comandos.
+     */
+    private List<Long> paymentIds(List<StockOutboxEvent> events) {
+        return events.stream().map(StockOutboxEvent::getPaymentId).toList();
+    }
+}
@@ -1,5 +1,7 @@
 package com.relatosdepapel.ms_books_payments.service;
 
+import com.relatosdepapel.ms_books_payments.dto.OrderRequestDTO;
+import com.relatosdepapel.ms_books_payments.dto.OrderResponseDTO;
 import com.relatosdepapel.ms_books_payments.dto.PaymentRequestDTO;
 import com.relatosdepapel.ms_books_payments.dto.PaymentResponseDTO;
 import com.relatosdepapel.ms_books_payments.dto.PaymentStatusDTO;
@@ -35,6 +37,16 @@ public interface PaymentService {
      */
     PaymentResponseDTO create(PaymentRequestDTO dto);
 
+    /**
+     * Crea un pedido con varios libros.
+     * Valida la disponibilidad y decrementa el stock de todos los libros como
+     * una sola unidad (todo o nada).
+     * 
+     * @param dto Datos del pedido (userId y líneas)
+     * @return OrderResponseDTO con los pagos creados y los totales
+     */
+    OrderResponseDTO createOrder(OrderRequestDTO dto);
+
     /**
      * Busca pagos con filtros dinámicos.
      * 
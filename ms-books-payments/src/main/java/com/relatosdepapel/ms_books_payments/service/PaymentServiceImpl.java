@@ -3,6 +3,7 @@ package com.relatosdepapel.ms_books_payments.service;
 import com.relatosdepapel.ms_books_payments.client.BookCatalogueClient;
 import com.relatosdepapel.ms_books_payments.dto.*;
 import com.relatosdepapel.ms_books_payments.entity.Payment;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatus;
 import com.relatosdepapel.ms_books_payments.exception.BookNotFoundException;
 import com.relatosdepapel.ms_books_payments.repository.PaymentRepository;
 import com.relatosdepapel.ms_books_payments.specification.PaymentSpecification;
@@ -13,7 +14,10 @@ import org.springframework.web.client.HttpClientErrorException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementación del servicio de pagos.
@@ -25,6 +29,7 @@ import java.util.List;
 public class PaymentServiceImpl implements PaymentService {
     private final PaymentRepository paymentRepository; // Inyección de dependencias Repository
     private final BookCatalogueClient catalogueClient; // Inyección de dependencias Client peticiones a MS Catalogue
+    private final PaymentSaga paymentSaga; // Saga del ciclo de vida de los pagos
 
     // METODOS CRUD
 
@@ -95,55 +100,64 @@ public class PaymentServiceImpl implements PaymentService {
             throw new IllegalArgumentException("quantity debe ser mayor a 0");
         }
 
-        // 1. Llamar a MS Catalogue para verificar disponibilidad
-        BookAvailabilityDTO book;
-        try {
-            book = catalogueClient.checkAvailability(dto.getBookId());
-        } catch (HttpClientErrorException.NotFound e) {
-            // Libro no existe en catálogo
-            throw new BookNotFoundException("El libro con ID " + dto.getBookId() + " no existe");
-        } catch (HttpClientErrorException e) {
-            // Error 4xx distinto de 404
-            throw new IllegalArgumentException("No fue posible validar el libro solicitado");
-        } catch (Exception e) {
-            // Error de conexión u otros fallos
-            throw new RuntimeException("El servicio de catálogo no está disponible");
-        }
-        // 2. Validar que el libro esté marcado como visible/disponible
-        if (Boolean.FALSE.equals(book.getAvailable())) {
-            throw new IllegalArgumentException("El libro '" + book.getTitle() + "' no está disponible para la venta");
+        // Un pago individual es un pedido de una sola línea
+        Payment savedPayment = checkout(dto.getUserId(), Map.of(dto.getBookId(), dto.getQuantity())).get(0);
+        return toResponseDTO(savedPayment);
+    }
+
+    /**
+     * Crea un pedido con varios libros como una sola unidad.
+     * Se hace una única consulta de disponibilidad y un único INSERT por lotes;
+     * el stock de todos los libros se descuenta después en una sola reserva en
+     * MS Catalogue, y si se rechaza se cancelan todos los pagos del pedido.
+     * 
+     * @param dto Datos del pedido (userId y líneas bookId/quantity)
+     * @return OrderResponseDTO con los pagos creados y los totales
+     * @throws BookNotFoundException    si algún libro no existe
+     * @throws IllegalArgumentException si los datos son inválidos o stock
+     *                                  insuficiente
+     * @throws RuntimeException         si el servicio de catálogo no está
+     *                                  disponible
+     */
+    @Override
+    public OrderResponseDTO createOrder(OrderRequestDTO dto) {
+        // Validación 1: userId debe ser mayor a 0
+        if (dto.getUserId() == null || dto.getUserId() <= 0) {
+            throw new IllegalArgumentException("userId debe ser mayor a 0");
         }
-        // 3. Validar Stock suficiente
-        if (book.getStock() < dto.getQuantity()) {
-            throw new IllegalArgumentException("Stock insuficiente para el libro '" + book.getTitle() +
-                    "'. Solicitado: " + dto.getQuantity() + ", Disponible: " + book.getStock());
+
+        // Validación 2: al menos una línea
+        if (dto.getLines() == null || dto.getLines().isEmpty()) {
+            throw new IllegalArgumentException("El pedido debe tener al menos una línea");
         }
-        // Usar datos REALES del libro
-        String bookTitle = book.getTitle();
-        String bookIsbn = book.getIsbn();
-        BigDecimal unitPrice = book.getPrice();
 
-        // Usar el helper toEntity() para crear el Payment
-        Payment payment = toEntity(dto, bookTitle, bookIsbn, unitPrice);
+        // Agrupar las líneas por libro (sumando cantidades repetidas)
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderLineDTO line : dto.getLines()) {
+            // Validación 3: bookId debe ser mayor a 0
+            if (line.getBookId() == null || line.getBookId() <= 0) {
+                throw new IllegalArgumentException("bookId debe ser mayor a 0");
+            }
+            // Validación 4: quantity debe ser mayor a 0
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new IllegalArgumentException("quantity debe ser mayor a 0");
+            }
+            quantities.merge(line.getBookId(), line.getQuantity(), Integer::sum);
+        }
 
-        // Guardar en la base de datos
-        Payment savedPayment = paymentRepository.save(payment);
+        List<Payment> payments = checkout(dto.getUserId(), quantities);
 
-        // Decremento del stock en MS Catalogue
-        try {
-            // Llamar a MS Catalogue para restar el stock
-            catalogueClient.decrementStock(dto.getBookId(), dto.getQuantity());
-        } catch (Exception e) {
-            // FALLÓ LA ACTUALIZACIÓN DE STOCK
-            // ROLLBACK MANUAL: Borrar el pago que acabamos de crear para no dejar datos
-            // inconsistentes
-            paymentRepository.delete(savedPayment.getId());
+        List<PaymentResponseDTO> paymentDTOs = payments.stream()
+                .map(this::toResponseDTO)
+                .toList();
+        int totalItems = payments.stream()
+                .mapToInt(Payment::getQuantity)
+                .sum();
+        BigDecimal totalAmount = payments.stream()
+                .map(Payment::getTotalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-            throw new RuntimeException(
-                    "Error al actualizar el stock. Se ha cancelado el pago. Error: " + e.getMessage());
-        }
-        // Si todo salió bien, retornamos el pago creado
-        return toResponseDTO(savedPayment);
+        return new OrderResponseDTO(dto.getUserId(), paymentDTOs, totalItems, totalAmount);
     }
 
     /**
@@ -160,21 +174,29 @@ public class PaymentServiceImpl implements PaymentService {
         if (payment == null) {
             return null; // Retornamos null si no existe
         }
-        // Actualizar estado
-        payment.setStatus(dto.getStatus());
-        // Guardar cambios
-        Payment updatedPayment = paymentRepository.save(payment);
+        // Solo se permite completar manualmente un pago reservado; el resto de
+        // transiciones las realiza el saga
+        PaymentStatus next = PaymentStatus.from(dto.getStatus());
+        // El saga completa el pago y confirma su reserva en el catálogo; falla si
+        // el estado cambió entre medias
+        if (next != PaymentStatus.COMPLETED || payment.getStatus() != PaymentStatus.RESERVED
+                || paymentSaga.complete(List.of(payment)) == 0) {
+            throw new IllegalStateException(
+                    "No se puede pasar el pago de " + payment.getStatus() + " a " + next);
+        }
         // Retornar DTO
-        return toResponseDTO(updatedPayment);
+        payment.setStatus(next);
+        return toResponseDTO(payment);
     }
 
     /**
-     * Cancela un pago y restaura el stock si es necesario.
+     * Cancela un pago iniciando su compensación en el saga
+     * (COMPENSATING → CANCELLED cuando el catálogo devuelva el stock).
      * 
      * @param id ID del pago a cancelar
-     * @return true si se canceló correctamente, false si no existe o ya estaba
-     *         cancelado
-     * @throws RuntimeException si falla la restauración de stock
+     * @return true si se inició la cancelación, false si no existe o ya estaba
+     *         cancelado o cancelándose
+     * @throws IllegalStateException si el pago aún está reservando stock
      */
     @Override
     public boolean cancelPayment(Long id) {
@@ -183,27 +205,14 @@ public class PaymentServiceImpl implements PaymentService {
         if (payment == null) {
             return false; // Retornamos false si no existe
         }
-        // Si ya está cancelado, devolvemos success (idempotencia) o false según lógica
-        // de negocio.
-        // En BookController delete devuelve false si no existe.
-        // Aquí si ya está cancelado, podríamos decir que ya está hecho, pero para
-        // seguir lógica estricta:
-        if ("CANCELLED".equals(payment.getStatus())) {
-            return false; // Ya estaba cancelado
+        if (payment.getStatus() == PaymentStatus.RESERVING) {
+            // El stock aún no se ha reservado: no hay nada que compensar todavía
+            throw new IllegalStateException("El pago aún se está procesando");
         }
-        // Restaurar stock en MS Catalogue (solo si ya se había descontado lo lógico)
-        // Asumimos que PENDING y APPROVED ya descontaron stock al crearse
-        try {
-            catalogueClient.restoreStock(payment.getBookId(), payment.getQuantity());
-        } catch (Exception e) {
-            // Si falla la restauración, no podemos cancelar el pago (inconsistencia)
-            throw new RuntimeException(
-                    "Error al restaurar el stock. No se puede cancelar el pago. Error: " + e.getMessage());
+        if (!payment.getStatus().canTransitionTo(PaymentStatus.COMPENSATING)) {
+            return false; // Ya estaba cancelado o cancelándose
         }
-        // Actualizar estado a CANCELLED
-        payment.setStatus("CANCELLED");
-        paymentRepository.save(payment);
-        return true;
+        return paymentSaga.compensate(payment);
     }
 
     /**
@@ -227,6 +236,84 @@ public class PaymentServiceImpl implements PaymentService {
     }
     // MÉTODOS HELPER
 
+    /**
+     * Procesa la compra de uno o varios libros como una sola unidad.
+     * 1. Una consulta de disponibilidad para todos los libros (cache cercana;
+     * como mucho una llamada a MS Catalogue).
+     * 2. Inicio del saga en una transacción local: saveAll de los pagos
+     * (RESERVING) y de un comando de reserva de stock por pago.
+     * El saga continúa en segundo plano (ver PaymentSaga).
+     *
+     * @param userId     ID del usuario
+     * @param quantities Mapa ID del libro → cantidad (sin libros repetidos)
+     * @return Pagos creados, en el mismo orden que las líneas
+     */
+    private List<Payment> checkout(Long userId, Map<Long, Integer> quantities) {
+        // 1. Consultar la disponibilidad en la cache cercana; los libros que no
+        // están cacheados y aquellos cuya pista indica que no alcanza se
+        // confirman con MS Catalogue en una sola llamada antes de rechazar la compra
+        Map<Long, BookAvailabilityDTO> books = fetchAvailability(quantities);
+
+        List<Payment> payments = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            BookAvailabilityDTO book = books.get(line.getKey());
+            // 2. Validar que el libro exista
+            if (book == null) {
+                throw new BookNotFoundException("El libro con ID " + line.getKey() + " no existe");
+            }
+            // 3. Validar que el libro esté marcado como visible/disponible
+            if (Boolean.FALSE.equals(book.getAvailable())) {
+                throw new IllegalArgumentException(
+                        "El libro '" + book.getTitle() + "' no está disponible para la venta");
+            }
+            // 4. Validar Stock suficiente
+            if (book.getStock() < line.getValue()) {
+                throw new IllegalArgumentException("Stock insuficiente para el libro '" + book.getTitle() +
+                        "'. Solicitado: " + line.getValue() + ", Disponible: " + book.getStock());
+            }
+            // Usar datos REALES del libro
+            payments.add(toEntity(userId, line.getKey(), line.getValue(), book.getTitle(), book.getIsbn(),
+                    book.getPrice()));
+        }
+
+        // Guardar los pagos y sus comandos de reserva (inicio del saga)
+        return paymentSaga.start(payments);
+    }
+
+    /**
+     * Obtiene la disponibilidad de los libros del pedido desde la cache cercana
+     * y, en una sola petición, desde MS Catalogue para los que no están
+     * cacheados o cuya pista de stock no alcanza.
+     *
+     * @param quantities Mapa ID del libro → cantidad
+     * @return Mapa ID → BookAvailabilityDTO (los libros inexistentes se omiten)
+     * @throws IllegalArgumentException si el catálogo rechaza la consulta
+     * @throws RuntimeException         si el catálogo no está disponible
+     */
+    private Map<Long, BookAvailabilityDTO> fetchAvailability(Map<Long, Integer> quantities) {
+        try {
+            return catalogueClient.getCachedAvailability(quantities.keySet(),
+                    (bookId, book) -> canFulfil(book, quantities.get(bookId)));
+        } catch (HttpClientErrorException e) {
+            // Error 4xx
+            throw new IllegalArgumentException("No fue posible validar los libros solicitados");
+        } catch (Exception e) {
+            // Error de conexión u otros fallos
+            throw new RuntimeException("El servicio de catálogo no está disponible");
+        }
+    }
+
+    /**
+     * Indica si el libro está disponible y tiene stock para la cantidad pedida.
+     *
+     * @param book     Disponibilidad del libro
+     * @param quantity Cantidad solicitada
+     * @return true si se puede vender la cantidad pedida
+     */
+    private boolean canFulfil(BookAvailabilityDTO book, Integer quantity) {
+        return !Boolean.FALSE.equals(book.getAvailable()) && book.getStock() >= quantity;
+    }
+
     /**
      * Convierte una entidad Payment a PaymentResponseDTO.
      *
@@ -244,32 +331,35 @@ public class PaymentServiceImpl implements PaymentService {
                 payment.getUnitPrice(),
                 payment.getTotalPrice(),
                 payment.getPurchaseDate(),
-                payment.getStatus());
+                payment.getStatus().name());
     }
 
     /**
-     * Convierte un PaymentRequestDTO a entidad Payment.
+     * Crea la entidad Payment de una línea de compra.
      * 
-     * @param dto       DTO recibido del cliente
+     * @param userId    ID del usuario
+     * @param bookId    ID del libro
+     * @param quantity  Cantidad comprada
      * @param bookTitle Título del libro (obtenido de MS Catalogue)
      * @param bookIsbn  ISBN del libro (obtenido de MS Catalogue)
      * @param unitPrice Precio unitario (obtenido de MS Catalogue)
      * @return Entidad Payment lista para guardar en BD
      */
-    private Payment toEntity(PaymentRequestDTO dto, String bookTitle, String bookIsbn, BigDecimal unitPrice) {
+    private Payment toEntity(Long userId, Long bookId, Integer quantity, String bookTitle, String bookIsbn,
+            BigDecimal unitPrice) {
         // Multiplica precio por cantidad
-        BigDecimal totalPrice = unitPrice.multiply(BigDecimal.valueOf(dto.getQuantity()));
+        BigDecimal totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
 
         return Payment.builder()
-                .userId(dto.getUserId())
-                .bookId(dto.getBookId())
+                .userId(userId)
+                .bookId(bookId)
                 .bookTitle(bookTitle)
                 .bookIsbn(bookIsbn)
-                .quantity(dto.getQuantity())
+                .quantity(quantity)
                 .unitPrice(unitPrice)
                 .totalPrice(totalPrice)
                 .purchaseDate(LocalDateTime.now())
-                .status("COMPLETED")
+                .status(PaymentStatus.RESERVING) // Estado inicial del saga
                 .build();
     }
 
@@ -0,0 +1,233 @@
+package com.relatosdepapel.ms_books_payments.service;
+
+import com.relatosdepapel.ms_books_payments.client.BookCatalogueClient;
+import com.relatosdepapel.ms_books_payments.dto.StockReservationDTO;
+import com.relatosdepapel.ms_books_payments.entity.StockOutboxEvent;
+import com.relatosdepapel.ms_books_payments.repository.StockOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Envía a MS Books Catalogue los comandos de reserva guardados en el outbox
+ * (reservar, confirmar o liberar la reserva de stock de un pago).
+ * 
+ * En cada ejecución reclama los comandos pendientes de hasta batch-size *
+ * payments.saga.workers grupos, siempre pedidos completos (un UPDATE
+ * condicional los reserva durante claim-timeout, así que varias instancias de
+ * payments no envían el mismo comando a la vez), los
+ * reparte en lotes (sin partir grupos) y cada worker del
+ * sagaExecutor envía su lote con una petición por tipo de comando
+ * (/api/books/reservations, /confirm, /release). El resultado se comunica a
+ * PaymentSaga, que avanza el estado de los pagos. Si el catálogo rechaza una
+ * petición (libro sin stock o inexistente, reserva caducada) se reenvía grupo
+ * a grupo para aislar el pedido rechazado. Los errores técnicos (catálogo
+ * caído, timeouts) se reintentan con espera exponencial; como el ID de la
+ * reserva es fijo por pago, los reenvíos no cambian el stock dos veces.
+ */
+@Slf4j
+@Component
+public class StockOutboxDispatcher {
+    /** Tipos de comando, en el orden en que se envían dentro de un lote */
+    private static final List<String> COMMAND_TYPES = List.of(StockOutboxEvent.RESERVE,
+            StockOutboxEvent.CONFIRM, StockOutboxEvent.RELEASE);
+
+    private final StockOutboxRepository stockOutboxRepository; // Comandos de reserva pendientes
+    private final PaymentSaga paymentSaga; // Transiciones de estado de los pagos
+    private final BookCatalogueClient catalogueClient; // Peticiones a MS Catalogue
+    private final Executor sagaExecutor; // Workers que envían los lotes
+    private final int workers; // Lotes enviados en paralelo
+    private final int batchSize; // Eventos por petición al catálogo
+    private final Duration initialBackoff; // Espera tras el primer error técnico
+    private final Duration maxBackoff; // Espera máxima entre reintentos
+    private final Duration claimTimeout; // Tiempo que un envío reserva los eventos reclamados
+    private final Duration retention; // Tiempo que se conservan los eventos enviados
+
+    public StockOutboxDispatcher(StockOutboxRepository stockOutboxRepository, PaymentSaga paymentSaga,
+            BookCatalogueClient catalogueClient, @Qualifier("sagaExecutor") Executor sagaExecutor,
+            @Value("${payments.saga.workers:4}") int workers,
+            @Value("${payments.outbox.batch-size:200}") int batchSize,
+            @Value("${payments.outbox.initial-backoff:500ms}") Duration initialBackoff,
+            @Value("${payments.outbox.max-backoff:1m}") Duration maxBackoff,
+            @Value("${payments.outbox.claim-timeout:1m}") Duration claimTimeout,
+            @Value("${payments.outbox.retention:1d}") Duration retention) {
+        this.stockOutboxRepository = stockOutboxRepository;
+        this.paymentSaga = paymentSaga;
+        this.catalogueClient = catalogueClient;
+        this.sagaExecutor = sagaExecutor;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.claimTimeout = claimTimeout;
+        this.retention = retention;
+    }
+
+    /**
+     * Reclama los eventos pendientes, los envía repartidos entre los workers
+     * del saga y espera a que terminen. Se ejecuta cada
+     * payments.outbox.poll-interval.
+     * 
+     * @return Número de eventos procesados
+     */
+    @Scheduled(fixedDelayString = "${payments.outbox.poll-interval:200ms}")
+    public int dispatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockOutboxEvent> events = stockOutboxRepository.claimDue(now, batchSize * workers,
+                now.plus(claimTimeout));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        // Cada lote en un worker; se espera a todos antes de reclamar más
+        CompletableFuture.allOf(batches(events).stream()
+                .map(batch -> CompletableFuture.runAsync(() -> dispatchBatch(batch), sagaExecutor))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        return events.size();
+    }
+
+    /**
+     * Elimina los eventos enviados con más antigüedad que
+     * payments.outbox.retention.
+     * 
+     * @return Número de eventos eliminados
+     */
+    @Scheduled(fixedDelayString = "${payments.outbox.purge-interval:1h}")
+    public int purgeSent() {
+        return stockOutboxRepository.deleteSentBefore(LocalDateTime.now().minus(retention));
+    }
+
+    // MÉTODOS HELPER
+
+    /**
+     * Envía un lote: una petición por tipo de comando, en orden RESERVE,
+     * CONFIRM, RELEASE.
+     */
+    private void dispatchBatch(List<StockOutboxEvent> batch) {
+        for (String type : COMMAND_TYPES) {
+            List<StockOutboxEvent> commands = batch.stream()
+                    .filter(event -> type.equals(event.getType()))
+                    .toList();
+            if (!commands.isEmpty()) {
+                dispatchCommands(commands);
+            }
+        }
+    }
+
+    /**
+     * Envía comandos de un mismo tipo; si el catálogo los rechaza, los reenvía
+     * grupo a grupo.
+     */
+    private void dispatchCommands(List<StockOutboxEvent> commands) {
+        try {
+            send(commands);
+        } catch (HttpClientErrorException e) {
+            // Algún grupo fue rechazado: reenviar grupo a grupo para aislarlo
+            for (List<StockOutboxEvent> group : groupById(commands).values()) {
+                try {
+                    send(group);
+                } catch (HttpClientErrorException rejected) {
+                    paymentSaga.onStockRejected(group,
+                            truncate(rejected.getStatusCode() + " " + rejected.getResponseBodyAsString()));
+                } catch (Exception error) {
+                    scheduleRetry(group, error);
+                }
+            }
+        } catch (Exception e) {
+            // Error técnico: reintentar todos los comandos más tarde
+            scheduleRetry(commands, e);
+        }
+    }
+
+    /**
+     * Envía comandos de un mismo tipo al catálogo en una sola petición y, si se
+     * aplican, avanza el saga de sus pagos.
+     */
+    private void send(List<StockOutboxEvent> events) {
+        List<StockReservationDTO> reservations = events.stream()
+                .map(event -> new StockReservationDTO(event.getReservationId(), event.getBookId(),
+                        event.getQuantity()))
+                .toList();
+        switch (events.get(0).getType()) {
+            case StockOutboxEvent.RESERVE -> catalogueClient.reserveStock(reservations);
+            case StockOutboxEvent.CONFIRM -> catalogueClient.confirmReservations(reservations);
+            default -> catalogueClient.releaseReservations(reservations);
+        }
+        paymentSaga.onStockApplied(events);
+    }
+
+    /**
+     * Programa el reintento de los eventos con espera exponencial
+     * (initial-backoff * 2^intentos, como máximo max-backoff), con un UPDATE
+     * por número de intentos que solo afecta a los eventos aún pendientes y
+     * reclamados por este envío.
+     */
+    private void scheduleRetry(List<StockOutboxEvent> events, Exception error) {
+        log.warn("No se pudo enviar {} comandos de reserva al catálogo: {}", events.size(), error.getMessage());
+        LocalDateTime now = LocalDateTime.now();
+        String lastError = truncate(error.getMessage());
+        Map<Integer, List<Long>> idsByAttempts = new LinkedHashMap<>();
+        for (StockOutboxEvent event : events) {
+            idsByAttempts.computeIfAbsent(event.getAttempts() + 1, a -> new ArrayList<>()).add(event.getId());
+        }
+        String claimToken = events.get(0).getClaimToken(); // todos son del mismo envío
+        idsByAttempts.forEach((attempts, ids) -> {
+            Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+            stockOutboxRepository.scheduleRetry(ids, claimToken, attempts,
+                    now.plus(backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff), lastError);
+        });
+    }
+
+    /**
+     * Reparte los eventos en lotes de unos batch-size eventos sin separar los
+     * de un mismo grupo (un pedido se aplica o se rechaza entero).
+     */
+    private List<List<StockOutboxEvent>> batches(List<StockOutboxEvent> events) {
+        List<List<StockOutboxEvent>> batches = new ArrayList<>();
+        List<StockOutboxEvent> current = new ArrayList<>();
+        for (List<StockOutboxEvent> group : groupById(events).values()) {
+            if (!current.isEmpty() && current.size() + group.size() > batchSize) {
+                batches.add(current);
+                current = new ArrayList<>();
+            }
+            current.addAll(group);
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * Agrupa los eventos por groupId manteniendo el orden.
+     */
+    private Map<String, List<StockOutboxEvent>> groupById(List<StockOutboxEvent> events) {
+        Map<String, List<StockOutboxEvent>> groups = new LinkedHashMap<>();
+        for (StockOutboxEvent event : events) {
+            groups.computeIfAbsent(event.getGroupId(), g -> new ArrayList<>()).add(event);
+        }
+        return groups;
+    }
+
+    /**
+     * Acorta el mensaje de error al tamaño de la columna lastError.
+     */
+    private String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+}
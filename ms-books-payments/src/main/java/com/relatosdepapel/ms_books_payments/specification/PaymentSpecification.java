@@ -1,6 +1,7 @@
 package com.relatosdepapel.ms_books_payments.specification;
 
 import com.relatosdepapel.ms_books_payments.entity.Payment;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatus;
 import com.relatosdepapel.ms_books_payments.utils.Consts;
 import org.springframework.data.jpa.domain.Specification;
 import java.time.LocalDateTime;
@@ -46,15 +47,17 @@ public class PaymentSpecification {
      * Filtra pagos por estado.
      * SQL generado: WHERE status = status
      * 
-     * @param status Estado del pago (PENDING, APPROVED, CANCELLED)
+     * @param status Estado del pago (RESERVING, RESERVED, COMPLETED, COMPENSATING,
+     *               CANCELLED)
      * @return Specification para filtrar por estado
+     * @throws IllegalArgumentException si el estado no existe
      */
     public static Specification<Payment> hasStatus(String status) {
         return (root, query, criteriaBuilder) -> {
             if (status == null || status.isEmpty()) {
                 return null;
             }
-            return criteriaBuilder.equal(root.get(Consts.STATUS), status);
+            return criteriaBuilder.equal(root.get(Consts.STATUS), PaymentStatus.from(status));
         };
     }
 
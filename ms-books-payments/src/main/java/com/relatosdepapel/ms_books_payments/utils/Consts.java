@@ -18,6 +18,30 @@ public class Consts {
     public static final String PURCHASE_DATE = "purchaseDate";
     public static final String STATUS = "status";
 
+    // columnas de la tabla idempotency_keys
+    public static final String IDEMPOTENCY_KEY = "idempotencyKey";
+    public static final String REQUEST_HASH = "requestHash";
+    public static final String RESPONSE_STATUS = "responseStatus";
+    public static final String RESPONSE_BODY = "responseBody";
+    public static final String CREATED_AT = "createdAt";
+    public static final String EXPIRES_AT = "expiresAt";
+    public static final String LEASE_TOKEN = "leaseToken";
+
+    // columnas de la tabla stock_outbox
+    public static final String PAYMENT_ID = "paymentId";
+    public static final String GROUP_ID = "groupId";
+    public static final String TYPE = "type";
+    public static final String ATTEMPTS = "attempts";
+    public static final String NEXT_ATTEMPT_AT = "nextAttemptAt";
+    public static final String LAST_ERROR = "lastError";
+    public static final String CLAIM_TOKEN = "claimToken";
+
+    // columnas de la tabla payment_status_changes
+    public static final String FROM_STATUS = "fromStatus";
+    public static final String TO_STATUS = "toStatus";
+    public static final String REASON = "reason";
+    public static final String CHANGED_AT = "changedAt";
+
     // constructor privado para evitar instanciación
     private Consts() {
         throw new UnsupportedOperationException("Esta es una clase de utilidad y no puede ser instanciada");
@@ -3,7 +3,7 @@ package com.relatosdepapel.ms_books_payments;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "payments.scheduling.enabled=false")
 class MsBooksPaymentsApplicationTests {
 
 	@Test
@@ -0,0 +1,212 @@
+package com.relatosdepapel.ms_books_payments.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.relatosdepapel.ms_books_payments.MsBooksPaymentsApplication;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Benchmark de ms-books-payments con hilos de plataforma frente a hilos
+ * virtuales (spring.threads.virtual.enabled).
+ * 
+ * Arranca un catálogo simulado que tarda benchmark.catalogue-latency-ms en
+ * responder y lanza benchmark.requests pedidos (POST /api/payments/orders)
+ * con benchmark.concurrency peticiones simultáneas contra la aplicación
+ * arrancada en cada modo. Muestra el throughput y los percentiles de latencia.
+ * 
+ * Cada pedido hace una llamada bloqueante al catálogo (la consulta de
+ * disponibilidad) en el hilo de la petición: la cache cercana se desactiva
+ * (spring.cache.type=none), cada pedido es de un libro distinto y el bulkhead
+ * y el pool de conexiones admiten benchmark.concurrency llamadas simultáneas,
+ * así que cada petición ocupa su hilo mientras espera al catálogo. La reserva
+ * de stock se envía después por el outbox, fuera de la petición.
+ * 
+ * No se ejecuta con mvn test; se lanza con:
+ * mvn test -Pbenchmark [-Dbenchmark.concurrency=1000 -Dbenchmark.requests=5000
+ * -Dbenchmark.catalogue-latency-ms=200]
+ */
+@Tag("benchmark")
+class VirtualThreadsBenchmark {
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 1000);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 5000);
+    private static final int WARMUP_REQUESTS = Integer.getInteger("benchmark.warmup-requests", 500);
+    private static final long CATALOGUE_LATENCY_MS = Long.getLong("benchmark.catalogue-latency-ms", 200);
+
+    private static final String ORDER = "{\"userId\": 1, \"lines\": [{\"bookId\": %d, \"quantity\": 1}]}";
+    private static final String AVAILABILITY = "\"%s\": {\"id\": %s, \"title\": \"El Quijote\", "
+            + "\"isbn\": \"9788467033601\", \"available\": true, \"stock\": 1000000000, \"price\": 19.99}";
+
+    @Test
+    void platformVsVirtualThreads() throws Exception {
+        HttpServer catalogue = startSlowCatalogue();
+        try {
+            Result platform = run(catalogue.getAddress().getPort(), false);
+            Result virtual = run(catalogue.getAddress().getPort(), true);
+            System.out.printf("%nCatálogo: %d ms por llamada, %d pedidos, %d simultáneos%n",
+                    CATALOGUE_LATENCY_MS, REQUESTS, CONCURRENCY);
+            System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "Hilos", "Pedidos/s", "p50 (ms)", "p99 (ms)",
+                    "max (ms)", "Errores");
+            platform.print("plataforma");
+            virtual.print("virtuales");
+        } finally {
+            catalogue.stop(0);
+        }
+    }
+
+    /**
+     * Arranca ms-books-payments en el modo indicado y mide la carga.
+     */
+    private Result run(int cataloguePort, boolean virtualThreads) throws Exception {
+        // Como argumentos de línea de comandos para que prevalezcan sobre application.yaml
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(MsBooksPaymentsApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--eureka.client.enabled=false",
+                        "--spring.cloud.discovery.client.simple.instances.MS-BOOKS-CATALOGUE[0].uri=http://localhost:"
+                                + cataloguePort,
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark_" + virtualThreads,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--spring.cache.type=none", // cada pedido consulta al catálogo
+                        // el bulkhead también lo usan los envíos del outbox
+                        "--payments.catalogue.bulkhead.max-concurrent-calls=" + CONCURRENCY * 2,
+                        // las esperas en cola no deben abrir el circuito a mitad de la medida
+                        "--payments.catalogue.circuit-breaker.slow-call-duration=1m",
+                        "--spring.datasource.hikari.maximum-pool-size=50", // la base de datos no debe ser el límite
+                        "--payments.catalogue.http.max-connections=" + CONCURRENCY,
+                        "--payments.catalogue.http.max-connections-per-route=" + CONCURRENCY)) {
+            URI orders = URI.create("http://localhost:" + app.getEnvironment().getProperty("local.server.port")
+                    + "/api/payments/orders");
+            load(orders, WARMUP_REQUESTS);
+            return load(orders, REQUESTS);
+        }
+    }
+
+    /**
+     * Envía requests pedidos con CONCURRENCY peticiones simultáneas.
+     */
+    private Result load(URI orders, int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                inFlight.acquire();
+                clients.submit(() -> {
+                    // un libro distinto en cada pedido
+                    HttpRequest request = HttpRequest.newBuilder(orders)
+                            .timeout(Duration.ofMinutes(1))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(ORDER.formatted(index + 1)))
+                            .build();
+                    long sent = System.nanoTime();
+                    try {
+                        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 201) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        latencies[index] = System.nanoTime() - sent;
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        return new Result(requests, System.nanoTime() - start, latencies, errors.get());
+    }
+
+    /**
+     * Catálogo simulado: responde a la disponibilidad de los libros pedidos
+     * (?ids=1,2,...) tras CATALOGUE_LATENCY_MS y acepta las reservas que envía
+     * el saga.
+     */
+    private HttpServer startSlowCatalogue() throws IOException {
+        // Por defecto el servidor cierra las conexiones inactivas por encima de
+        // 200, que el pool del cliente reutilizaría ya cerradas
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(CONCURRENCY * 2));
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        // Hilos de plataforma: con hilos virtuales el servidor del JDK dejaba
+        // consultas sin responder dentro del response-timeout bajo carga
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/books/availability", exchange -> {
+            sleep(CATALOGUE_LATENCY_MS);
+            String ids = exchange.getRequestURI().getQuery().substring("ids=".length());
+            respond(exchange, 200, Arrays.stream(ids.split(","))
+                    .map(id -> AVAILABILITY.formatted(id, id))
+                    .collect(Collectors.joining(",", "{", "}")));
+        });
+        server.createContext("/api/books/reservations", exchange -> respond(exchange,
+                exchange.getRequestURI().getPath().endsWith("/reservations") ? 201 : 204, "[]"));
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (status == 204) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Resultado de una ejecución.
+     */
+    private record Result(int requests, long elapsedNanos, long[] latencies, int errors) {
+        void print(String mode) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-10s %12.1f %10d %10d %10d %8d%n", mode,
+                    requests / (elapsedNanos / 1e9),
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1_000_000,
+                    errors);
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            return sorted[(int) Math.ceil(p * sorted.length) - 1] / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.relatosdepapel.ms_books_payments.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.relatosdepapel.ms_books_payments.entity.StockOutboxEvent;
+
+/**
+ * Reclamación de comandos del outbox entre envíos concurrentes.
+ */
+@SpringBootTest(properties = "payments.scheduling.enabled=false") // el dispatcher no reclama los eventos del test
+class StockOutboxRepositoryTests {
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private StockOutboxJpaRepository stockOutboxJpaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LocalDateTime now;
+    private long nextPaymentId = 1000;
+
+    @BeforeEach
+    void setUp() {
+        stockOutboxJpaRepository.deleteAll();
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void concurrentClaimsNeverReturnTheSameEvent() throws Exception {
+        Set<Long> created = ids(save(100));
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<StockOutboxEvent>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return stockOutboxRepository.claimDue(now, 100, now.plusMinutes(1));
+                }));
+            }
+            start.countDown();
+            List<Long> claimed = new ArrayList<>();
+            for (Future<List<StockOutboxEvent>> result : results) {
+                claimed.addAll(result.get().stream().map(StockOutboxEvent::getId).toList());
+            }
+            // cada evento lo reclama un solo envío
+            assertEquals(claimed.size(), new HashSet<>(claimed).size());
+            assertEquals(created, new HashSet<>(claimed));
+        }
+    }
+
+    @Test
+    void claimsWholeGroupsWhenTheLimitFallsInsideOne() {
+        // grupos a (1 evento), b (3 eventos, pedido de varias líneas) y c (1 evento)
+        List<StockOutboxEvent> a = save("a", 1);
+        List<StockOutboxEvent> b = save("b", 3);
+        List<StockOutboxEvent> c = save("c", 1);
+
+        List<StockOutboxEvent> first = stockOutboxRepository.claimDue(now, 2, now.plusMinutes(1));
+        Set<Long> expected = ids(a);
+        expected.addAll(ids(b));
+        assertEquals(expected, ids(first));
+        assertEquals(ids(c), ids(stockOutboxRepository.claimDue(now, 2, now.plusMinutes(1))));
+    }
+
+    @Test
+    void concurrentClaimsNeverSplitAGroup() throws Exception {
+        for (int group = 0; group < 30; group++) {
+            save("order-" + group, group % 4 + 1);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<StockOutboxEvent>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return stockOutboxRepository.claimDue(now, 5, now.plusMinutes(1));
+                }));
+            }
+            start.countDown();
+            Map<String, String> claimedBy = new HashMap<>();
+            for (Future<List<StockOutboxEvent>> result : results) {
+                for (StockOutboxEvent event : result.get()) {
+                    // todos los eventos de un grupo los reclama el mismo envío
+                    assertEquals(event.getClaimToken(),
+                            claimedBy.computeIfAbsent(event.getGroupId(), g -> event.getClaimToken()));
+                }
+            }
+        }
+    }
+
+    @Test
+    void claimedEventsWaitForTheClaimTimeout() {
+        List<StockOutboxEvent> events = save(3);
+
+        assertEquals(ids(events), ids(stockOutboxRepository.claimDue(now, 10, now.plusMinutes(1))));
+        assertEquals(List.of(), stockOutboxRepository.claimDue(now.plusSeconds(30), 10, now.plusMinutes(2)));
+        // el envío no terminó a tiempo: otra instancia los reintenta
+        assertEquals(ids(events),
+                ids(stockOutboxRepository.claimDue(now.plusSeconds(61), 10, now.plusMinutes(2))));
+    }
+
+    @Test
+    void retryOnlyUpdatesPendingEventsOfItsClaim() {
+        save(2);
+        List<StockOutboxEvent> claimed = stockOutboxRepository.claimDue(now, 10, now.plusMinutes(1));
+        Long sent = claimed.get(0).getId();
+        Long pending = claimed.get(1).getId();
+        // otro envío (tras vencer la reserva) ya aplicó el primero
+        transactionTemplate.executeWithoutResult(
+                tx -> stockOutboxRepository.updateStatus(List.of(sent), StockOutboxEvent.SENT, null));
+
+        assertEquals(1, stockOutboxRepository.scheduleRetry(List.of(sent, pending), claimed.get(0).getClaimToken(),
+                1, now.plusSeconds(1), "timeout"));
+        assertEquals(0, stockOutboxRepository.scheduleRetry(List.of(pending), "otro-envio", 2,
+                now.plusSeconds(5), "timeout"));
+
+        StockOutboxEvent sentEvent = stockOutboxJpaRepository.findById(sent).orElseThrow();
+        StockOutboxEvent retried = stockOutboxJpaRepository.findById(pending).orElseThrow();
+        assertEquals(StockOutboxEvent.SENT, sentEvent.getStatus());
+        assertEquals(0, sentEvent.getAttempts());
+        assertEquals(StockOutboxEvent.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertEquals("timeout", retried.getLastError());
+    }
+
+    /**
+     * Guarda count eventos, cada uno en su propio grupo.
+     */
+    private List<StockOutboxEvent> save(int count) {
+        List<StockOutboxEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.addAll(save("group-" + i, 1));
+        }
+        return events;
+    }
+
+    /**
+     * Guarda count eventos de un mismo grupo.
+     */
+    private List<StockOutboxEvent> save(String groupId, int count) {
+        List<StockOutboxEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(StockOutboxEvent.builder()
+                    .paymentId(nextPaymentId++)
+                    .groupId(groupId)
+                    .type(StockOutboxEvent.RESERVE)
+                    .bookId(1L)
+                    .quantity(1)
+                    .status(StockOutboxEvent.PENDING)
+                    .attempts(0)
+                    .nextAttemptAt(now.minusSeconds(1))
+                    .createdAt(now)
+                    .build());
+        }
+        return stockOutboxRepository.saveAll(events);
+    }
+
+    private static Set<Long> ids(List<StockOutboxEvent> events) {
+        return new HashSet<>(events.stream().map(StockOutboxEvent::getId).toList());
+    }
+}
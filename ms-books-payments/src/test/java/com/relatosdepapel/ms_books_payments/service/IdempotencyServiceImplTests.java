@@ -0,0 +1,122 @@
+package com.relatosdepapel.ms_books_payments.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.relatosdepapel.ms_books_payments.entity.IdempotencyRecord;
+import com.relatosdepapel.ms_books_payments.repository.IdempotencyRepository;
+
+@SpringBootTest(properties = { "payments.idempotency.lease=1m", "payments.scheduling.enabled=false" })
+class IdempotencyServiceImplTests {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRepository idempotencyRepository;
+
+    @Test
+    void concurrentBeginRegistersTheKeyOnce() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<IdempotencyRecord>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return idempotencyService.begin("race", "hash", UUID.randomUUID().toString());
+                }));
+            }
+            start.countDown();
+            int registered = 0;
+            for (Future<IdempotencyRecord> result : results) {
+                if (result.get() == null) {
+                    registered++;
+                }
+            }
+            assertEquals(1, registered);
+        }
+    }
+
+    @Test
+    void retryReceivesTheStoredResponse() {
+        assertNull(idempotencyService.begin("completed", "hash", "first"));
+        IdempotencyRecord inFlight = idempotencyService.begin("completed", "hash", "retry");
+        assertNotNull(inFlight);
+        assertNull(inFlight.getResponseStatus());
+
+        assertTrue(idempotencyService.complete("completed", "first", 201, "ok"));
+        IdempotencyRecord replay = idempotencyService.begin("completed", "hash", "retry");
+        assertEquals(201, replay.getResponseStatus());
+        assertEquals("\"ok\"", replay.getResponseBody());
+    }
+
+    @Test
+    void abandonedKeyIsTakenOverAfterTheLease() {
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        idempotencyRepository.saveAndFlush(IdempotencyRecord.builder()
+                .idempotencyKey("abandoned")
+                .requestHash("hash")
+                .createdAt(createdAt)
+                .expiresAt(createdAt.plusHours(24))
+                .leaseToken("abandoned-request")
+                .build());
+
+        assertNull(idempotencyService.begin("abandoned", "hash", "new-request"));
+        assertNotNull(idempotencyService.begin("abandoned", "hash", "retry")); // la nueva ejecución sigue en curso
+    }
+
+    @Test
+    void requestThatLostTheKeyCannotTouchTheNewOwner() {
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        idempotencyRepository.saveAndFlush(IdempotencyRecord.builder()
+                .idempotencyKey("taken-over")
+                .requestHash("hash")
+                .createdAt(createdAt)
+                .expiresAt(createdAt.plusHours(24))
+                .leaseToken("stale-request")
+                .build());
+        assertNull(idempotencyService.begin("taken-over", "hash", "new-request"));
+
+        // la petición que perdió la clave termina tarde: no libera ni completa la del nuevo dueño
+        assertFalse(idempotencyService.release("taken-over", "stale-request"));
+        assertFalse(idempotencyService.complete("taken-over", "stale-request", 500, "tarde"));
+        IdempotencyRecord inFlight = idempotencyRepository.getByKey("taken-over");
+        assertEquals("new-request", inFlight.getLeaseToken());
+        assertNull(inFlight.getResponseStatus());
+
+        assertTrue(idempotencyService.complete("taken-over", "new-request", 201, "ok"));
+        assertEquals(201, idempotencyRepository.getByKey("taken-over").getResponseStatus());
+    }
+
+    @Test
+    void completedKeyIsNotTakenOverAfterTheLease() {
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        idempotencyRepository.saveAndFlush(IdempotencyRecord.builder()
+                .idempotencyKey("old-response")
+                .requestHash("hash")
+                .responseStatus(201)
+                .createdAt(createdAt)
+                .expiresAt(createdAt.plusHours(24))
+                .leaseToken("first")
+                .build());
+
+        assertEquals(201, idempotencyService.begin("old-response", "hash", "retry").getResponseStatus());
+    }
+}
@@ -0,0 +1,94 @@
+package com.relatosdepapel.ms_books_payments.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.relatosdepapel.ms_books_payments.entity.Payment;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatus;
+import com.relatosdepapel.ms_books_payments.entity.PaymentStatusChange;
+import com.relatosdepapel.ms_books_payments.entity.StockOutboxEvent;
+import com.relatosdepapel.ms_books_payments.repository.PaymentRepository;
+import com.relatosdepapel.ms_books_payments.repository.PaymentStatusChangeRepository;
+import com.relatosdepapel.ms_books_payments.repository.StockOutboxRepository;
+
+/**
+ * Transiciones de PaymentSaga que no pide el usuario: el completado
+ * automático (desactivado por defecto) y las cancelaciones por rechazo del
+ * catálogo, que quedan registradas.
+ */
+@SpringBootTest(properties = "payments.scheduling.enabled=false") // el dispatcher no envía los comandos del test
+class PaymentSagaTests {
+
+    @Autowired
+    private PaymentSaga paymentSaga;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private StockOutboxRepository stockOutboxRepository;
+
+    @Autowired
+    private PaymentStatusChangeRepository paymentStatusChangeRepository;
+
+    @Test
+    void reservedPaymentsWaitForThePatchByDefault() {
+        Payment payment = save(PaymentStatus.RESERVED);
+
+        assertEquals(0, paymentSaga.completeReserved());
+        assertEquals(PaymentStatus.RESERVED, paymentRepository.getById(payment.getId()).getStatus());
+    }
+
+    @Test
+    void rejectedConfirmationCancelsThePaymentAndRecordsWhy() {
+        Payment payment = save(PaymentStatus.COMPLETED);
+        List<StockOutboxEvent> confirm = stockOutboxRepository.saveAll(List.of(event(payment)));
+
+        paymentSaga.onStockRejected(confirm, "409 reserva caducada");
+        // un reenvío del mismo rechazo no vuelve a registrar el cambio
+        paymentSaga.onStockRejected(confirm, "409 reserva caducada");
+
+        assertEquals(PaymentStatus.CANCELLED, paymentRepository.getById(payment.getId()).getStatus());
+        List<PaymentStatusChange> changes = paymentStatusChangeRepository.getByPaymentId(payment.getId());
+        assertEquals(1, changes.size());
+        assertEquals(PaymentStatus.COMPLETED, changes.get(0).getFromStatus());
+        assertEquals(PaymentStatus.CANCELLED, changes.get(0).getToStatus());
+        assertEquals("CONFIRM rechazado por el catálogo: 409 reserva caducada", changes.get(0).getReason());
+    }
+
+    private Payment save(PaymentStatus status) {
+        return paymentRepository.save(Payment.builder()
+                .userId(1L)
+                .bookId(1L)
+                .bookTitle("El Quijote")
+                .bookIsbn("9788467033601")
+                .quantity(1)
+                .unitPrice(BigDecimal.TEN)
+                .totalPrice(BigDecimal.TEN)
+                .purchaseDate(LocalDateTime.now())
+                .status(status)
+                .build());
+    }
+
+    private static StockOutboxEvent event(Payment payment) {
+        LocalDateTime now = LocalDateTime.now();
+        return StockOutboxEvent.builder()
+                .paymentId(payment.getId())
+                .groupId("confirm-" + payment.getId())
+                .type(StockOutboxEvent.CONFIRM)
+                .bookId(payment.getBookId())
+                .quantity(payment.getQuantity())
+                .status(StockOutboxEvent.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+    }
+}